@@ -16,6 +16,7 @@
 package com.okta.oidc.example;
 
 import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.okhttp.OktaOkHttpClient;
 
 /**
  * Simple connection factory.
@@ -27,11 +28,6 @@ public class MyConnectionFactory {
      */
     public static final int USE_OK_HTTP = 1;
 
-    /**
-     * The constant USE_SYNC_OK_HTTP.
-     */
-    public static final int USE_SYNC_OK_HTTP = 2;
-
     private int clientType = 0;
 
     /**
@@ -42,9 +38,7 @@ public class MyConnectionFactory {
     public OktaHttpClient build() {
         switch (clientType) {
             case USE_OK_HTTP:
-                return new OkHttp();
-            case USE_SYNC_OK_HTTP:
-                return new SyncOkHttp();
+                return new OktaOkHttpClient();
             default:
                 return null;//sdk will use default implementation if null is provided.
         }
@@ -414,7 +414,7 @@ public class PlainActivity extends Activity {
 
         //use custom connection factory
         MyConnectionFactory factory = new MyConnectionFactory();
-        factory.setClientType(MyConnectionFactory.USE_SYNC_OK_HTTP);
+        factory.setClientType(MyConnectionFactory.USE_OK_HTTP);
 
         boolean isEmulator = isEmulator();
 
@@ -424,7 +424,7 @@ public class SampleActivity extends AppCompatActivity implements SignInDialog.Si
 
         //use custom connection factory
         MyConnectionFactory factory = new MyConnectionFactory();
-        factory.setClientType(MyConnectionFactory.USE_SYNC_OK_HTTP);
+        factory.setClientType(MyConnectionFactory.USE_OK_HTTP);
 
         try {
             mEncryptedSharedPref = new EncryptedSharedPreferenceStorage(this);
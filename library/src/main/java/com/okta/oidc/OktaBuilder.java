@@ -71,6 +71,16 @@ public abstract class OktaBuilder<A, T extends OktaBuilder<A, T>> {
      */
     private boolean mCacheMode = true;
 
+    /**
+     * Write-behind mode for the default storage.
+     */
+    private boolean mWriteBehind;
+
+    /**
+     * Generate the default encryption keys in the background.
+     */
+    private boolean mAsyncKeyGeneration;
+
     /**
      * Used to prevent lint issues.
      *
@@ -176,6 +186,52 @@ public abstract class OktaBuilder<A, T extends OktaBuilder<A, T>> {
         return toThis();
     }
 
+    /**
+     * Sets if the default {@link SharedPreferenceStorage} writes to disk in the background.
+     * Saved data is available right away but token refresh and sign-in no longer wait for the
+     * disk write. Has no effect if a storage is set with {@link #withStorage(OktaStorage)}.
+     *
+     * @param writeBehind true to write in the background.
+     * @return current builder
+     */
+    public T setWriteBehind(boolean writeBehind) {
+        mWriteBehind = writeBehind;
+        return toThis();
+    }
+
+    /**
+     * Sets if the default {@link DefaultEncryptionManager} generates and loads its keystore keys
+     * on a background thread. The first launch no longer blocks {@link #create()} on key
+     * generation, storage operations wait for the keys only when they need to encrypt or
+     * decrypt. Has no effect if an encryption manager is set with
+     * {@link #withEncryptionManager(EncryptionManager)}.
+     *
+     * @param asyncKeyGeneration true to generate keys in the background.
+     * @return current builder
+     */
+    public T setAsyncKeyGeneration(boolean asyncKeyGeneration) {
+        mAsyncKeyGeneration = asyncKeyGeneration;
+        return toThis();
+    }
+
+    /**
+     * Starts preparing the default {@link DefaultEncryptionManager} in the background right
+     * away, e.g. from Application.onCreate(), so the keys are ready by the time the client is
+     * created and used. Requires {@link #withContext(Context)} to be set first. Has no effect if
+     * an encryption manager is already set.
+     *
+     * @return current builder
+     */
+    public T warmUp() {
+        if (mEncryptionManager == null) {
+            if (mContext == null) {
+                throw new IllegalStateException("warmUp requires a context");
+            }
+            mEncryptionManager = new DefaultEncryptionManager(mContext, true);
+        }
+        return toThis();
+    }
+
     /**
      * Create auth client.
      *
@@ -189,13 +245,13 @@ public abstract class OktaBuilder<A, T extends OktaBuilder<A, T>> {
         // By default we enable encryption for all our clients. To change this behaviour, create
         // you own Builder.
         if (mEncryptionManager == null) {
-            mEncryptionManager = new DefaultEncryptionManager(mContext);
+            mEncryptionManager = new DefaultEncryptionManager(mContext, mAsyncKeyGeneration);
         }
         if (mClient == null) {
             mClient = new HttpClientImpl();
         }
         if (mStorage == null) {
-            mStorage = new SharedPreferenceStorage(mContext);
+            mStorage = new SharedPreferenceStorage(mContext, null, mWriteBehind);
         }
         return this.mClientFactory.createClient(mOidcConfig,
                 mContext, mStorage, mEncryptionManager,
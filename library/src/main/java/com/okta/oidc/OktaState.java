@@ -20,12 +20,17 @@ import androidx.annotation.RestrictTo;
 import com.okta.oidc.clients.State;
 import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.request.web.WebRequest;
+import com.okta.oidc.net.response.TokenMetadata;
+import com.okta.oidc.net.response.TokenRecord;
 import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.storage.OktaRepository;
 import com.okta.oidc.storage.OktaRepository.EncryptionException;
+import com.okta.oidc.storage.OktaStorage;
 import com.okta.oidc.storage.Persistable;
 import com.okta.oidc.storage.security.EncryptionManager;
 
+import java.util.concurrent.TimeoutException;
+
 import static com.okta.oidc.clients.State.IDLE;
 
 /**
@@ -37,17 +42,60 @@ public class OktaState {
 
     private State currentState;
 
+    private final TokenStateDispatcher mTokenStateDispatcher = new TokenStateDispatcher();
+
     public OktaState(OktaRepository mOktaRepository) {
         this.mOktaRepo = mOktaRepository;
         this.currentState = IDLE;
     }
 
     public TokenResponse getTokenResponse() throws EncryptionException {
-        return mOktaRepo.get(TokenResponse.RESTORE);
+        return TokenRecord.read(mOktaRepo, TokenResponse.Part.values());
+    }
+
+    /**
+     * Reads the token response with only the given tokens, the others are not decrypted.
+     * Token type, expiration and scope are always included.
+     *
+     * @param parts the tokens to read
+     * @return the partial token response or null if there is none
+     * @throws EncryptionException if a token can't be decrypted
+     */
+    public TokenResponse getTokenResponse(TokenResponse.Part... parts)
+            throws EncryptionException {
+        return TokenRecord.read(mOktaRepo, parts);
     }
 
     public boolean hasTokenResponse() {
-        return mOktaRepo.contains(TokenResponse.RESTORE);
+        return TokenRecord.contains(mOktaRepo);
+    }
+
+    public void save(TokenResponse tokenResponse) throws EncryptionException {
+        TokenRecord.save(mOktaRepo.beginTransaction(), tokenResponse).commit();
+    }
+
+    public OktaRepository.Transaction saveTokenResponse(OktaRepository.Transaction transaction,
+                                                        TokenResponse tokenResponse)
+            throws EncryptionException {
+        return TokenRecord.save(transaction, tokenResponse);
+    }
+
+    public OktaRepository.Transaction deleteTokenResponse(
+            OktaRepository.Transaction transaction) {
+        return TokenRecord.delete(transaction);
+    }
+
+    /**
+     * Metadata of the persisted token response. Reading it never decrypts anything.
+     *
+     * @return the metadata or null if there is no token or it was saved without metadata.
+     */
+    public TokenMetadata getTokenMetadata() {
+        return TokenMetadata.parse(mOktaRepo.getMetadata(TokenResponse.RESTORE));
+    }
+
+    public void saveTokenMetadata(TokenResponse tokenResponse) {
+        mOktaRepo.saveMetadata(tokenResponse);
     }
 
     public ProviderConfiguration getProviderConfiguration() throws EncryptionException {
@@ -58,6 +106,10 @@ public class OktaState {
         return mOktaRepo.get(WebRequest.RESTORE);
     }
 
+    public TokenStateDispatcher getTokenStateDispatcher() {
+        return mTokenStateDispatcher;
+    }
+
     public void setCurrentState(State state) {
         this.currentState = state;
     }
@@ -74,10 +126,42 @@ public class OktaState {
         mOktaRepo.delete(persistable);
     }
 
+    public void deleteTokenResponse() {
+        TokenRecord.delete(mOktaRepo.beginTransaction()).commit();
+    }
+
     public void delete(String key) {
         mOktaRepo.delete(key);
     }
 
+    public void flush() {
+        mOktaRepo.flush();
+    }
+
+    /**
+     * Runs the task while no other thread or process sharing the storage holds the lock with the
+     * given name. Values saved by previous holders of the lock are visible to the task.
+     */
+    public <T, E extends Exception> T runExclusive(String name,
+                                                   OktaStorage.ExclusiveTask<T, E> task)
+            throws E {
+        return mOktaRepo.runExclusive(name, task);
+    }
+
+    /**
+     * Like {@link #runExclusive(String, OktaStorage.ExclusiveTask)}, but stops waiting for the
+     * lock once the timeout has passed.
+     */
+    public <T, E extends Exception> T runExclusive(String name, long timeoutMs,
+                                                   OktaStorage.ExclusiveTask<T, E> task)
+            throws E, TimeoutException {
+        return mOktaRepo.runExclusive(name, timeoutMs, task);
+    }
+
+    public OktaRepository.Transaction beginTransaction() {
+        return mOktaRepo.beginTransaction();
+    }
+
     public void setEncryptionManager(EncryptionManager encryptionManager) {
         this.mOktaRepo.setEncryptionManager(encryptionManager);
     }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.okta.oidc.net.response.TokenResponse;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @hide Delivers {@link TokenStateEvent}s to the registered {@link TokenStateListener}s. Every
+ * listener has its own executor and at most one pending event, a newer event replaces one that
+ * was not delivered yet.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class TokenStateDispatcher {
+    private static final String TAG = TokenStateDispatcher.class.getSimpleName();
+
+    private final CopyOnWriteArrayList<Registration> mRegistrations =
+            new CopyOnWriteArrayList<>();
+
+    public void addListener(@NonNull TokenStateListener listener, @NonNull Executor executor) {
+        mRegistrations.add(new Registration(listener, executor));
+    }
+
+    public void removeListener(@NonNull TokenStateListener listener) {
+        for (Registration registration : mRegistrations) {
+            if (registration.mListener == listener) {
+                registration.mRemoved = true;
+                mRegistrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * Notifies all listeners. Does nothing, not even building the {@link Tokens}, if there are
+     * none.
+     *
+     * @param type     the kind of change
+     * @param response the tokens after the change
+     */
+    public void notify(@NonNull TokenStateEvent.Type type, @Nullable TokenResponse response) {
+        if (mRegistrations.isEmpty()) {
+            return;
+        }
+        TokenStateEvent event = new TokenStateEvent(type,
+                response == null ? null : new Tokens(response));
+        for (Registration registration : mRegistrations) {
+            registration.post(event);
+        }
+    }
+
+    private static final class Registration implements Runnable {
+        private final TokenStateListener mListener;
+        private final Executor mExecutor;
+        private final AtomicReference<TokenStateEvent> mPending = new AtomicReference<>();
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        private volatile boolean mRemoved;
+
+        Registration(TokenStateListener listener, Executor executor) {
+            mListener = listener;
+            mExecutor = executor;
+        }
+
+        void post(TokenStateEvent event) {
+            mPending.set(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (mScheduled.compareAndSet(false, true)) {
+                try {
+                    mExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    Log.w(TAG, "Token state event dropped", e);
+                    mScheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            TokenStateEvent event = mPending.getAndSet(null);
+            if (event != null && !mRemoved) {
+                try {
+                    mListener.onTokenStateChanged(event);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "TokenStateListener failed", e);
+                }
+            }
+            mScheduled.set(false);
+            // An event posted during delivery found mScheduled set and relies on this run.
+            if (mPending.get() != null) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A change of the persisted tokens, see {@link TokenStateListener}.
+ */
+public final class TokenStateEvent {
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /**
+         * Tokens were saved after sign in.
+         */
+        SAVED,
+        /**
+         * Tokens were replaced by a token refresh.
+         */
+        REFRESHED,
+        /**
+         * Tokens were removed.
+         */
+        CLEARED,
+        /**
+         * Tokens were encrypted again with another encryption manager.
+         */
+        MIGRATED
+    }
+
+    private final Type mType;
+    private final Tokens mTokens;
+
+    TokenStateEvent(@NonNull Type type, @Nullable Tokens tokens) {
+        mType = type;
+        mTokens = tokens;
+    }
+
+    /**
+     * The kind of change.
+     *
+     * @return the type
+     */
+    @NonNull
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * The tokens after the change. Reading them doesn't access the storage.
+     *
+     * @return the tokens or null if there are none, e.g. after {@link Type#CLEARED}.
+     */
+    @Nullable
+    public Tokens getTokens() {
+        return mTokens;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Listener for changes of the persisted tokens. Register it with
+ * {@link com.okta.oidc.clients.sessions.SessionClient#addTokenStateListener(TokenStateListener,
+ * java.util.concurrent.Executor)} to react to sign in, refresh and sign out instead of polling
+ * {@link com.okta.oidc.clients.sessions.SessionClient#isAuthenticated()}.
+ */
+public interface TokenStateListener {
+    /**
+     * Called after the tokens changed. Events that arrive while an earlier one is still being
+     * delivered are coalesced, the listener only receives the latest.
+     *
+     * @param event the change
+     */
+    void onTokenStateChanged(@NonNull TokenStateEvent event);
+}
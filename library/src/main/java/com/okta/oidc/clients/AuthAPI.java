@@ -20,6 +20,8 @@ import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
@@ -28,6 +30,8 @@ import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.OktaState;
 import com.okta.oidc.Tokens;
 import com.okta.oidc.clients.sessions.SyncSessionClient;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.HttpCacheEntry;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.net.request.BaseRequest;
 import com.okta.oidc.net.request.ConfigurationRequest;
@@ -90,13 +94,33 @@ public class AuthAPI {
     }
 
     protected ProviderConfiguration obtainNewConfiguration() throws AuthorizationException {
+        return obtainNewConfiguration(Deadline.NONE);
+    }
+
+    /**
+     * The stored configuration, fetched or revalidated first if needed.
+     *
+     * @param deadline the deadline of the call needing the configuration
+     * @return the configuration
+     * @throws AuthorizationException if the configuration can't be obtained
+     */
+    protected ProviderConfiguration obtainNewConfiguration(@NonNull Deadline deadline)
+            throws AuthorizationException {
         try {
             ProviderConfiguration config = mOktaState.getProviderConfiguration();
             Uri discoveryUri = mOidcConfig.getDiscoveryUri();
             if (discoveryUri != null) {
-                if (config == null || !discoveryUri.toString().contains(config.issuer)) {
+                if (config != null && !discoveryUri.toString().contains(config.issuer)) {
+                    config = null;
+                }
+                //Without caching headers the stored configuration is kept until the issuer
+                //changes, otherwise it is revalidated once it's stale.
+                HttpCacheEntry entry = config == null ? null : config.getCacheEntry();
+                if (config == null
+                        || (entry != null && !entry.isFresh(System.currentTimeMillis()))) {
                     mOktaState.setCurrentState(State.OBTAIN_CONFIGURATION);
-                    ConfigurationRequest request = configurationRequest();
+                    ConfigurationRequest request = configurationRequest(config);
+                    request.setDeadline(deadline);
                     mCurrentRequest.set(new WeakReference<>(request));
                     config = request.executeRequest(mHttpClient);
                     mOktaState.save(config);
@@ -113,8 +137,23 @@ public class AuthAPI {
 
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     public ConfigurationRequest configurationRequest() throws AuthorizationException {
+        return configurationRequest(null);
+    }
+
+    /**
+     * The request for the configuration, conditional if a stored configuration can be
+     * revalidated.
+     *
+     * @param cached the stored configuration of the same issuer or null
+     * @return the request
+     * @throws AuthorizationException if the config is invalid
+     */
+    @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
+    public ConfigurationRequest configurationRequest(@Nullable ProviderConfiguration cached)
+            throws AuthorizationException {
         return HttpRequestBuilder.newConfigurationRequest()
                 .config(mOidcConfig)
+                .providerConfiguration(cached)
                 .createRequest();
     }
 
@@ -15,10 +15,12 @@
 
 package com.okta.oidc.clients;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.okta.oidc.AuthenticationPayload;
 import com.okta.oidc.clients.sessions.SyncSessionClient;
+import com.okta.oidc.net.Deadline;
 import com.okta.oidc.results.Result;
 import com.okta.oidc.storage.security.EncryptionManager;
 import com.okta.oidc.util.AuthorizationException;
@@ -44,6 +46,20 @@ public interface SyncAuthClient extends BaseAuth<SyncSessionClient> {
      */
     Result signIn(String sessionToken, @Nullable AuthenticationPayload payload);
 
+    /**
+     * Sign in with a session token within a time budget. The discovery, authorize and token
+     * requests share the deadline, each of them gets at most the time left. Once the deadline
+     * has passed the sign in fails with an {@link AuthorizationException} caused by a
+     * {@link com.okta.oidc.net.DeadlineExceededException}.
+     *
+     * @param sessionToken the session token
+     * @param payload      the {@link AuthenticationPayload payload}
+     * @param deadline     the deadline of the sign in
+     * @return the {@link Result authorizationResult}
+     */
+    Result signIn(String sessionToken, @Nullable AuthenticationPayload payload,
+                  @NonNull Deadline deadline);
+
     /**
      * Attempt to cancel the current api request. Does not guarantee that the current call
      * will not finish.
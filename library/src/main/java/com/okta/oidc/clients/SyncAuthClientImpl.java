@@ -17,14 +17,17 @@ package com.okta.oidc.clients;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.okta.oidc.AuthenticationPayload;
 import com.okta.oidc.OIDCConfig;
+import com.okta.oidc.TokenStateEvent;
 import com.okta.oidc.clients.sessions.SyncSessionClient;
 import com.okta.oidc.clients.sessions.SyncSessionClientFactoryImpl;
+import com.okta.oidc.net.Deadline;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.net.request.NativeAuthorizeRequest;
 import com.okta.oidc.net.request.ProviderConfiguration;
@@ -73,19 +76,27 @@ class SyncAuthClientImpl extends AuthAPI implements SyncAuthClient {
     @WorkerThread
     @Override
     public Result signIn(String sessionToken, @Nullable AuthenticationPayload payload) {
+        return signIn(sessionToken, payload, Deadline.NONE);
+    }
+
+    @WorkerThread
+    @Override
+    public Result signIn(String sessionToken, @Nullable AuthenticationPayload payload,
+                         @NonNull Deadline deadline) {
         try {
             mCancel.set(false);
-            ProviderConfiguration providerConfiguration = obtainNewConfiguration();
+            ProviderConfiguration providerConfiguration = obtainNewConfiguration(deadline);
             checkIfCanceled();
 
             mOktaState.setCurrentState(State.SIGN_IN_REQUEST);
             NativeAuthorizeRequest request = nativeAuthorizeRequest(sessionToken,
                     providerConfiguration, payload);
+            request.setDeadline(deadline);
             mCurrentRequest.set(new WeakReference<>(request));
 
             //Save the nativeAuth request in a AuthRequest because it is needed to verify results.
+            //It is persisted together with the token response in a single write.
             AuthorizeRequest authRequest = new AuthorizeRequest(request.getParameters());
-            mOktaState.save(authRequest);
             AuthorizeResponse authResponse = request.executeRequest(mHttpClient);
             checkIfCanceled();
             //native sign in depends on okta-java-sdk to do self registration.
@@ -100,10 +111,13 @@ class SyncAuthClientImpl extends AuthAPI implements SyncAuthClient {
             mOktaState.setCurrentState(State.TOKEN_EXCHANGE);
             TokenRequest requestToken = tokenExchange(authResponse, providerConfiguration,
                     authRequest);
+            requestToken.setDeadline(deadline);
             mCurrentRequest.set(new WeakReference<>(requestToken));
             TokenResponse tokenResponse = requestToken.executeRequest(mHttpClient);
 
-            mOktaState.save(tokenResponse);
+            mOktaState.saveTokenResponse(mOktaState.beginTransaction().save(authRequest),
+                    tokenResponse).commit();
+            mOktaState.getTokenStateDispatcher().notify(TokenStateEvent.Type.SAVED, tokenResponse);
             return Result.success();
         } catch (AuthorizationException e) {
             return Result.error(e);
@@ -15,9 +15,15 @@
 
 package com.okta.oidc.clients.sessions;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.okta.oidc.TokenStateListener;
 import com.okta.oidc.storage.security.EncryptionManager;
 import com.okta.oidc.util.AuthorizationException;
 
+import java.util.concurrent.Executor;
+
 interface BaseSessionClient {
     /**
      * Checks to see if the user is authenticated. If the client have a access or ID token then
@@ -37,4 +43,24 @@ interface BaseSessionClient {
      * @throws AuthorizationException exception if migration fails.
      */
     void migrateTo(EncryptionManager manager) throws AuthorizationException;
+
+    /**
+     * Registers a listener that is called when the tokens are saved, refreshed, cleared or
+     * migrated to another encryption manager. Every event carries the new {@link
+     * com.okta.oidc.Tokens}, so listeners don't need to read the storage again.
+     *
+     * @param listener the listener
+     * @param executor the executor to call the listener on. If null, asynchronous clients use
+     *                 their callback executor and synchronous clients call the listener on the
+     *                 thread that changed the tokens.
+     */
+    void addTokenStateListener(@NonNull TokenStateListener listener, @Nullable Executor executor);
+
+    /**
+     * Removes a listener added by {@link #addTokenStateListener(TokenStateListener, Executor)}.
+     * Pending events are not delivered anymore.
+     *
+     * @param listener the listener
+     */
+    void removeTokenStateListener(@NonNull TokenStateListener listener);
 }
@@ -24,6 +24,7 @@ import com.okta.oidc.RequestCallback;
 import com.okta.oidc.Tokens;
 import com.okta.oidc.net.ConnectionParameters;
 import com.okta.oidc.net.response.IntrospectInfo;
+import com.okta.oidc.net.response.ResponseDecoder;
 import com.okta.oidc.net.response.UserInfo;
 import com.okta.oidc.util.AuthorizationException;
 
@@ -99,6 +100,26 @@ public interface SessionClient extends BaseSessionClient {
                            @NonNull ConnectionParameters.RequestMethod method,
                            RequestCallback<JSONObject, AuthorizationException> cb);
 
+    /**
+     * Performs a custom authorized request and decodes the response with the given decoder
+     * on a background thread. The decoder reads the body from the connection, so JSON arrays,
+     * other formats and large responses can be processed without buffering the whole body.
+     * A status other than 2xx fails the request before the decoder is called.
+     *
+     * @param uri            the uri to protected resource
+     * @param properties     the query request properties
+     * @param postParameters the post parameters
+     * @param method         the http method {@link ConnectionParameters.RequestMethod}
+     * @param decoder        the decoder of the response
+     * @param cb             the RequestCallback to be executed when request is finished
+     * @param <T>            the decoded type
+     */
+    <T> void authorizedRequest(@NonNull Uri uri, @Nullable Map<String, String> properties,
+                               @Nullable Map<String, String> postParameters,
+                               @NonNull ConnectionParameters.RequestMethod method,
+                               @NonNull ResponseDecoder<T> decoder,
+                               RequestCallback<T, AuthorizationException> cb);
+
     /**
      * Get user profile returns any claims for the currently logged-in user.
      *
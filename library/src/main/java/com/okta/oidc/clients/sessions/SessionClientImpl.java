@@ -23,9 +23,11 @@ import androidx.annotation.Nullable;
 
 import com.okta.oidc.RequestCallback;
 import com.okta.oidc.RequestDispatcher;
+import com.okta.oidc.TokenStateListener;
 import com.okta.oidc.Tokens;
 import com.okta.oidc.net.ConnectionParameters;
 import com.okta.oidc.net.response.IntrospectInfo;
+import com.okta.oidc.net.response.ResponseDecoder;
 import com.okta.oidc.net.response.UserInfo;
 import com.okta.oidc.storage.security.EncryptionManager;
 import com.okta.oidc.util.AuthorizationException;
@@ -141,6 +143,28 @@ class SessionClientImpl implements SessionClient {
         });
     }
 
+    @Override
+    public <T> void authorizedRequest(@NonNull Uri uri, @Nullable Map<String, String> properties,
+                                      @Nullable Map<String, String> postParameters,
+                                      @NonNull ConnectionParameters.RequestMethod method,
+                                      @NonNull ResponseDecoder<T> decoder,
+                                      final RequestCallback<T, AuthorizationException> cb) {
+        cancelFuture();
+        mFutureTask = mDispatcher.submit(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                T result = mSyncSessionClient
+                        .authorizedRequest(uri, properties, postParameters, method, decoder);
+                mDispatcher.submitResults(() -> cb.onSuccess(result));
+            } catch (AuthorizationException ae) {
+                mDispatcher.submitResults(() -> cb.onError(ae.error, ae));
+            } catch (Exception ex) {
+                mDispatcher.submitResults(() -> cb.onError(ex.getMessage(),
+                        new AuthorizationException(ex.getMessage(), ex)));
+            }
+        });
+    }
+
     public boolean isAuthenticated() {
         return mSyncSessionClient.isAuthenticated();
     }
@@ -162,6 +186,18 @@ class SessionClientImpl implements SessionClient {
         mSyncSessionClient.migrateTo(manager);
     }
 
+    @Override
+    public void addTokenStateListener(@NonNull TokenStateListener listener,
+                                      @Nullable Executor executor) {
+        mSyncSessionClient.addTokenStateListener(listener,
+                executor != null ? executor : mDispatcher::submitResults);
+    }
+
+    @Override
+    public void removeTokenStateListener(@NonNull TokenStateListener listener) {
+        mSyncSessionClient.removeTokenStateListener(listener);
+    }
+
     private void cancelFuture() {
         if (mFutureTask != null && (!mFutureTask.isDone() || !mFutureTask.isCancelled())) {
             mFutureTask.cancel(true);
@@ -22,7 +22,10 @@ import androidx.annotation.Nullable;
 
 import com.okta.oidc.Tokens;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.response.AuthorizedResponse;
 import com.okta.oidc.net.response.IntrospectInfo;
+import com.okta.oidc.net.response.ResponseDecoder;
 import com.okta.oidc.net.response.UserInfo;
 import com.okta.oidc.util.AuthorizationException;
 
@@ -92,6 +95,72 @@ public interface SyncSessionClient extends BaseSessionClient {
                                  @NonNull ConnectionParameters.RequestMethod method)
             throws AuthorizationException;
 
+    /**
+     * Performs a custom authorized request like
+     * {@link #authorizedRequest(Uri, Map, Map, ConnectionParameters.RequestMethod)} and decodes
+     * the response with the given decoder. The decoder reads the body from the connection, so
+     * JSON arrays, other formats and large responses can be processed without buffering the
+     * whole body. A status other than 2xx fails the request before the decoder is called.
+     * Example usage:
+     * {@code
+     * <pre>
+     * try {
+     *     List<Group> groups = client.authorizedRequest(uri, null, null,
+     *             ConnectionParameters.RequestMethod.GET,
+     *             response -> readGroups(new JsonReader(
+     *                     new InputStreamReader(response.getBody(), "UTF-8"))));
+     *     //handle results
+     * } catch (AuthorizationException ex) {
+     *     //handle exception
+     * }
+     * </pre>
+     * }
+     *
+     * @param uri            the uri to protected resource
+     * @param properties     the query request properties
+     * @param postParameters the post parameters
+     * @param method         the http method {@link ConnectionParameters.RequestMethod}
+     * @param decoder        the decoder of the response
+     * @param <T>            the decoded type
+     * @return the decoded result
+     * @throws AuthorizationException the authorization exception
+     */
+    <T> T authorizedRequest(@NonNull Uri uri, @Nullable Map<String, String> properties,
+                            @Nullable Map<String, String> postParameters,
+                            @NonNull ConnectionParameters.RequestMethod method,
+                            @NonNull ResponseDecoder<T> decoder)
+            throws AuthorizationException;
+
+    /**
+     * Performs a custom authorized request and returns the response with its body unread.
+     * The response is returned for any status. It must be closed after use.
+     * Example usage:
+     * {@code
+     * <pre>
+     * try (AuthorizedResponse response = client.openAuthorizedRequest(uri, null, null,
+     *         ConnectionParameters.RequestMethod.GET)) {
+     *     if (response.getStatusCode() == HttpURLConnection.HTTP_OK) {
+     *         //read response.getBody()
+     *     }
+     * } catch (AuthorizationException ex) {
+     *     //handle exception
+     * }
+     * </pre>
+     * }
+     *
+     * @param uri            the uri to protected resource
+     * @param properties     the query request properties
+     * @param postParameters the post parameters
+     * @param method         the http method {@link ConnectionParameters.RequestMethod}
+     * @return the response
+     * @throws AuthorizationException the authorization exception
+     */
+    AuthorizedResponse openAuthorizedRequest(@NonNull Uri uri,
+                                             @Nullable Map<String, String> properties,
+                                             @Nullable Map<String, String> postParameters,
+                                             @NonNull ConnectionParameters.RequestMethod method)
+            throws AuthorizationException;
+
     /**
      * Get user profile returns any claims for the currently logged-in user.
      *
@@ -207,4 +276,25 @@ public interface SyncSessionClient extends BaseSessionClient {
      * will not finish.
      */
     void cancel();
+
+    /**
+     * A client sharing the tokens of this one whose requests are bounded by the deadline.
+     * Calls made through it fail with an {@link AuthorizationException} caused by a
+     * {@link com.okta.oidc.net.DeadlineExceededException} once the deadline has passed, e.g.
+     * to bound a refresh followed by a user profile request. {@link #cancel()} of either
+     * client cancels the current request of both.
+     *
+     * <pre>
+     * {@code
+     * SyncSessionClient bounded = client.withDeadline(Deadline.after(5, TimeUnit.SECONDS));
+     * bounded.refreshToken();
+     * UserInfo userInfo = bounded.getUserProfile();
+     * }
+     * </pre>
+     *
+     * @param deadline the deadline
+     * @return the bounded client
+     */
+    @NonNull
+    SyncSessionClient withDeadline(@NonNull Deadline deadline);
 }
@@ -20,10 +20,15 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.google.gson.JsonObject;
 import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.OktaState;
+import com.okta.oidc.TokenStateEvent;
+import com.okta.oidc.TokenStateListener;
 import com.okta.oidc.Tokens;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.DeadlineExceededException;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.net.request.AuthorizedRequest;
 import com.okta.oidc.net.request.BaseRequest;
@@ -33,10 +38,14 @@ import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.request.RefreshTokenRequest;
 import com.okta.oidc.net.request.RevokeTokenRequest;
 import com.okta.oidc.net.request.web.WebRequest;
+import com.okta.oidc.net.response.AuthorizedResponse;
 import com.okta.oidc.net.response.IntrospectInfo;
+import com.okta.oidc.net.response.ResponseDecoder;
+import com.okta.oidc.net.response.TokenMetadata;
 import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.net.response.UserInfo;
 import com.okta.oidc.storage.OktaRepository;
+import com.okta.oidc.storage.OktaStorage;
 import com.okta.oidc.storage.security.EncryptionManager;
 import com.okta.oidc.util.AuthorizationException;
 
@@ -44,17 +53,23 @@ import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.okta.oidc.clients.State.IDLE;
 import static com.okta.oidc.storage.OktaRepository.EncryptionException.INVALID_KEYS_ERROR;
 
 class SyncSessionClientImpl implements SyncSessionClient {
+    // Storage lock held while refreshing, see OktaStorage#runExclusive.
+    private static final String REFRESH_LOCK = "refresh";
+
     private OIDCConfig mOidcConfig;
     private OktaState mOktaState;
     OktaHttpClient mHttpClient;
     private AtomicReference<WeakReference<BaseRequest>> mCurrentRequest =
             new AtomicReference<>(new WeakReference<>(null));
+    private Deadline mDeadline = Deadline.NONE;
 
     SyncSessionClientImpl(OIDCConfig oidcConfig, OktaState oktaState,
                           OktaHttpClient httpClient) {
@@ -63,6 +78,24 @@ class SyncSessionClientImpl implements SyncSessionClient {
         mHttpClient = httpClient;
     }
 
+    private SyncSessionClientImpl(SyncSessionClientImpl client, Deadline deadline) {
+        this(client.mOidcConfig, client.mOktaState, client.mHttpClient);
+        mCurrentRequest = client.mCurrentRequest;
+        mDeadline = deadline;
+    }
+
+    @NonNull
+    @Override
+    public SyncSessionClient withDeadline(@NonNull Deadline deadline) {
+        return new SyncSessionClientImpl(this, deadline);
+    }
+
+    //Bounds the request by the deadline of this client and makes it the one to cancel.
+    private void setCurrentRequest(BaseRequest request) {
+        request.setDeadline(mDeadline);
+        mCurrentRequest.set(new WeakReference<>(request));
+    }
+
     AuthorizedRequest createAuthorizedRequest(@NonNull Uri uri,
                                               @Nullable Map<String, String> properties,
                                               @Nullable Map<String, String> postParameters,
@@ -86,13 +119,41 @@ class SyncSessionClientImpl implements SyncSessionClient {
                                         @Nullable Map<String, String> postParameters,
                                         @NonNull ConnectionParameters.RequestMethod method)
             throws AuthorizationException {
+        return newAuthorizedRequest(uri, properties, postParameters, method)
+                .executeRequest(mHttpClient);
+    }
+
+    @Override
+    public <T> T authorizedRequest(@NonNull Uri uri,
+                                   @Nullable Map<String, String> properties,
+                                   @Nullable Map<String, String> postParameters,
+                                   @NonNull ConnectionParameters.RequestMethod method,
+                                   @NonNull ResponseDecoder<T> decoder)
+            throws AuthorizationException {
+        return newAuthorizedRequest(uri, properties, postParameters, method)
+                .executeRequest(mHttpClient, decoder);
+    }
+
+    @Override
+    public AuthorizedResponse openAuthorizedRequest(
+            @NonNull Uri uri, @Nullable Map<String, String> properties,
+            @Nullable Map<String, String> postParameters,
+            @NonNull ConnectionParameters.RequestMethod method) throws AuthorizationException {
+        return newAuthorizedRequest(uri, properties, postParameters, method).open(mHttpClient);
+    }
+
+    private AuthorizedRequest newAuthorizedRequest(
+            @NonNull Uri uri, @Nullable Map<String, String> properties,
+            @Nullable Map<String, String> postParameters,
+            @NonNull ConnectionParameters.RequestMethod method) throws AuthorizationException {
         try {
             ProviderConfiguration providerConfiguration = mOktaState.getProviderConfiguration();
-            TokenResponse tokenResponse = mOktaState.getTokenResponse();
+            TokenResponse tokenResponse =
+                    mOktaState.getTokenResponse(TokenResponse.Part.ACCESS_TOKEN);
             AuthorizedRequest request = createAuthorizedRequest(uri, properties, postParameters,
                     method, providerConfiguration, tokenResponse);
-            mCurrentRequest.set(new WeakReference<>(request));
-            return request.executeRequest(mHttpClient);
+            setCurrentRequest(request);
+            return request;
         } catch (OktaRepository.EncryptionException e) {
             throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
         }
@@ -117,11 +178,11 @@ class SyncSessionClientImpl implements SyncSessionClient {
     public UserInfo getUserProfile() throws AuthorizationException {
         try {
             ProviderConfiguration providerConfiguration = mOktaState.getProviderConfiguration();
-            TokenResponse tokenResponse = mOktaState.getTokenResponse();
+            TokenResponse tokenResponse =
+                    mOktaState.getTokenResponse(TokenResponse.Part.ACCESS_TOKEN);
             AuthorizedRequest request = userProfileRequest(providerConfiguration, tokenResponse);
-            JSONObject userInfo = request.executeRequest(mHttpClient);
-            mCurrentRequest.set(new WeakReference<>(request));
-            return new UserInfo(userInfo);
+            setCurrentRequest(request);
+            return UserInfo.fromJson(request.executeRequest(mHttpClient, JsonObject.class));
         } catch (OktaRepository.EncryptionException e) {
             throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
         }
@@ -143,7 +204,7 @@ class SyncSessionClientImpl implements SyncSessionClient {
         try {
             IntrospectRequest request = introspectTokenRequest(token, tokenType,
                     mOktaState.getProviderConfiguration());
-            mCurrentRequest.set(new WeakReference<>(request));
+            setCurrentRequest(request);
             return request.executeRequest(mHttpClient);
         } catch (OktaRepository.EncryptionException e) {
             throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
@@ -164,7 +225,7 @@ class SyncSessionClientImpl implements SyncSessionClient {
         try {
             RevokeTokenRequest request = revokeTokenRequest(token,
                     mOktaState.getProviderConfiguration());
-            mCurrentRequest.set(new WeakReference<>(request));
+            setCurrentRequest(request);
             return request.executeRequest(mHttpClient);
         } catch (OktaRepository.EncryptionException e) {
             throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
@@ -183,15 +244,42 @@ class SyncSessionClientImpl implements SyncSessionClient {
 
     @Override
     public Tokens refreshToken() throws AuthorizationException {
+        //Threads and processes sharing the storage refresh one at a time. If the token changed
+        //while waiting for the lock it was just refreshed, so it is used instead of refreshing
+        //again with a refresh token that may already be rotated. With a deadline, waiting for
+        //the lock stops once it has passed.
+        TokenMetadata before = mOktaState.getTokenMetadata();
+        OktaStorage.ExclusiveTask<Tokens, AuthorizationException> refresh = () -> {
+            try {
+                TokenMetadata current = mOktaState.getTokenMetadata();
+                if (before != null && current != null
+                        && before.getExpiresAt() != current.getExpiresAt()) {
+                    TokenResponse refreshed = mOktaState.getTokenResponse();
+                    if (refreshed != null) {
+                        return new Tokens(refreshed);
+                    }
+                }
+                RefreshTokenRequest request = refreshTokenRequest(
+                        mOktaState.getProviderConfiguration(),
+                        mOktaState.getTokenResponse(TokenResponse.Part.REFRESH_TOKEN));
+                setCurrentRequest(request);
+                TokenResponse tokenResponse = request.executeRequest(mHttpClient);
+                mOktaState.save(tokenResponse);
+                mOktaState.getTokenStateDispatcher()
+                        .notify(TokenStateEvent.Type.REFRESHED, tokenResponse);
+                return new Tokens(tokenResponse);
+            } catch (OktaRepository.EncryptionException e) {
+                throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
+            }
+        };
+        if (!mDeadline.isBounded()) {
+            return mOktaState.runExclusive(REFRESH_LOCK, refresh);
+        }
         try {
-            RefreshTokenRequest request = refreshTokenRequest(mOktaState.getProviderConfiguration(),
-                    mOktaState.getTokenResponse());
-            mCurrentRequest.set(new WeakReference<>(request));
-            TokenResponse tokenResponse = request.executeRequest(mHttpClient);
-            mOktaState.save(tokenResponse);
-            return new Tokens(tokenResponse);
-        } catch (OktaRepository.EncryptionException e) {
-            throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
+            return mOktaState.runExclusive(REFRESH_LOCK, mDeadline.getRemainingMs(), refresh);
+        } catch (TimeoutException e) {
+            DeadlineExceededException exceeded = new DeadlineExceededException(e);
+            throw new AuthorizationException(exceeded.getMessage(), exceeded);
         }
     }
 
@@ -210,12 +298,21 @@ class SyncSessionClientImpl implements SyncSessionClient {
 
     @Override
     public boolean isAuthenticated() {
+        //Metadata is written together with the token, so its presence means a token is stored.
+        if (mOktaState.getTokenMetadata() != null) {
+            return true;
+        }
         boolean hasTokenResponse = mOktaState.hasTokenResponse();
         if (!hasTokenResponse) {
             return false;
         }
         try {
-            TokenResponse tokenResponse = mOktaState.getTokenResponse();
+            //Only token type, expiration and scope are needed, the tokens stay encrypted.
+            TokenResponse tokenResponse = mOktaState.getTokenResponse(TokenResponse.Part.INFO);
+            if (tokenResponse != null) {
+                //Token persisted before metadata existed, add it so this is the last decrypt.
+                mOktaState.saveTokenMetadata(tokenResponse);
+            }
             return tokenResponse != null;
         } catch (OktaRepository.EncryptionException e) {
             // Here we check if we can decrypt saved token.
@@ -234,10 +331,12 @@ class SyncSessionClientImpl implements SyncSessionClient {
 
     @Override
     public void clear() {
-        mOktaState.delete(ProviderConfiguration.RESTORE.getKey());
-        mOktaState.delete(TokenResponse.RESTORE.getKey());
-        mOktaState.delete(WebRequest.RESTORE.getKey());
+        OktaRepository.Transaction transaction = mOktaState.beginTransaction()
+                .delete(ProviderConfiguration.RESTORE.getKey())
+                .delete(WebRequest.RESTORE.getKey());
+        mOktaState.deleteTokenResponse(transaction).commit();
         mOktaState.setCurrentState(IDLE);
+        mOktaState.getTokenStateDispatcher().notify(TokenStateEvent.Type.CLEARED, null);
     }
 
     @Override
@@ -256,18 +355,43 @@ class SyncSessionClientImpl implements SyncSessionClient {
             final TokenResponse tokenResponse = mOktaState.getTokenResponse();
             final WebRequest authorizedRequest = mOktaState.getAuthorizeRequest();
 
-            clear();
+            //Replace all records with one write so a failure never leaves a partial session.
+            //Keys are hashed by the manager, so the deletes are added before switching.
+            OktaRepository.Transaction transaction = mOktaState.beginTransaction()
+                    .delete(ProviderConfiguration.RESTORE.getKey())
+                    .delete(WebRequest.RESTORE.getKey());
+            mOktaState.deleteTokenResponse(transaction);
 
             mOktaState.setEncryptionManager(manager);
 
-            mOktaState.save(providerConfiguration);
-            mOktaState.save(tokenResponse);
-            mOktaState.save(authorizedRequest);
+            transaction.save(providerConfiguration)
+                    .save(authorizedRequest);
+            if (tokenResponse != null) {
+                mOktaState.saveTokenResponse(transaction, tokenResponse);
+            }
+            transaction.commit();
+            //Data encrypted with the previous manager is gone, make sure the new copy is durable.
+            mOktaState.flush();
+            mOktaState.setCurrentState(IDLE);
+            mOktaState.getTokenStateDispatcher()
+                    .notify(TokenStateEvent.Type.MIGRATED, tokenResponse);
         } catch (OktaRepository.EncryptionException e) {
             throw AuthorizationException.EncryptionErrors.byEncryptionException(e);
         }
     }
 
+    @Override
+    public void addTokenStateListener(@NonNull TokenStateListener listener,
+                                      @Nullable Executor executor) {
+        mOktaState.getTokenStateDispatcher().addListener(listener,
+                executor != null ? executor : Runnable::run);
+    }
+
+    @Override
+    public void removeTokenStateListener(@NonNull TokenStateListener listener) {
+        mOktaState.getTokenStateDispatcher().removeListener(listener);
+    }
+
     OktaState getOktaState() {
         return mOktaState;
     }
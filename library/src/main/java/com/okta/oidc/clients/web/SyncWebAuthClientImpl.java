@@ -40,6 +40,7 @@ import com.okta.oidc.AuthenticationResultHandler.StateResult;
 import com.okta.oidc.CustomTabOptions;
 import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.OktaRedirectActivity;
+import com.okta.oidc.TokenStateEvent;
 import com.okta.oidc.clients.AuthAPI;
 import com.okta.oidc.clients.State;
 import com.okta.oidc.clients.sessions.SyncSessionClient;
@@ -297,6 +298,8 @@ class SyncWebAuthClientImpl extends AuthAPI implements SyncWebAuthClient {
                     mCurrentRequest.set(new WeakReference<>(request));
                     response = request.executeRequest(mHttpClient);
                     mOktaState.save(response);
+                    mOktaState.getTokenStateDispatcher()
+                            .notify(TokenStateEvent.Type.SAVED, response);
                 } catch (OktaRepository.EncryptionException e) {
                     return Result.error(EncryptionErrors.byEncryptionException(e));
                 } catch (AuthorizationException e) {
@@ -339,7 +342,7 @@ class SyncWebAuthClientImpl extends AuthAPI implements SyncWebAuthClient {
             request = new LogoutRequest.Builder()
                     .provideConfiguration(mOktaState.getProviderConfiguration())
                     .config(mOidcConfig)
-                    .tokenResponse(mOktaState.getTokenResponse())
+                    .tokenResponse(mOktaState.getTokenResponse(TokenResponse.Part.ID_TOKEN))
                     .state(CodeVerifierUtil.generateRandomState())
                     .create();
             mOktaState.save(request);
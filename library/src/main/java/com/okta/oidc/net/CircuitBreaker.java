@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * @hide The circuit breaker of an endpoint, see {@link RequestPolicy}. Closed, it counts
+ * consecutive failures. Open, it rejects requests until the open duration elapsed. Then the
+ * next request is the only one let through, a failure reopens the breaker and a success
+ * closes it.
+ * <p>
+ * Each call to {@link #acquire(RequestPolicy)} must be followed by {@link #onSuccess()},
+ * {@link #onFailure(RequestPolicy)} or {@link #release()}.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class CircuitBreaker {
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private final String mEndpoint;
+    private final Clock mClock;
+    private int mFailures;
+    // Zero while closed.
+    private long mOpenUntil;
+    private boolean mProbing;
+
+    CircuitBreaker(String endpoint) {
+        // SystemClock doesn't advance in Robolectric tests.
+        this(endpoint, () -> System.nanoTime() / 1000000);
+    }
+
+    @VisibleForTesting
+    CircuitBreaker(String endpoint, Clock clock) {
+        mEndpoint = endpoint;
+        mClock = clock;
+    }
+
+    /**
+     * Called before sending a request.
+     *
+     * @param policy the policy of the request
+     * @throws CircuitOpenException if the breaker is open
+     */
+    public synchronized void acquire(@NonNull RequestPolicy policy) throws CircuitOpenException {
+        if (mOpenUntil == 0 || policy.getFailureThreshold() <= 0) {
+            return;
+        }
+        long now = mClock.elapsedRealtime();
+        if (now < mOpenUntil || mProbing) {
+            throw new CircuitOpenException(mEndpoint, Math.max(0, mOpenUntil - now));
+        }
+        mProbing = true;
+    }
+
+    public synchronized void onSuccess() {
+        mFailures = 0;
+        mOpenUntil = 0;
+        mProbing = false;
+    }
+
+    /**
+     * Called after a request failed because of the endpoint or the network.
+     *
+     * @param policy the policy of the request
+     */
+    public synchronized void onFailure(@NonNull RequestPolicy policy) {
+        mFailures++;
+        int threshold = policy.getFailureThreshold();
+        if (threshold > 0 && (mProbing || mFailures >= threshold)) {
+            mOpenUntil = mClock.elapsedRealtime() + policy.getOpenDurationMs();
+        }
+        mProbing = false;
+    }
+
+    /**
+     * Called if the request ended without an outcome, e.g. it was canceled.
+     */
+    public synchronized void release() {
+        mProbing = false;
+    }
+
+    public synchronized boolean isOpen() {
+        return mOpenUntil != 0 && mClock.elapsedRealtime() < mOpenUntil;
+    }
+}
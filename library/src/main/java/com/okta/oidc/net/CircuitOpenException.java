@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of its endpoint is open.
+ * See {@link RequestPolicy}.
+ */
+public class CircuitOpenException extends IOException {
+    private final long mRetryAfterMs;
+
+    /**
+     * Instantiates a new exception.
+     *
+     * @param endpoint     the endpoint
+     * @param retryAfterMs how long the breaker stays open, in milliseconds
+     */
+    public CircuitOpenException(String endpoint, long retryAfterMs) {
+        super("Circuit breaker open for " + endpoint);
+        mRetryAfterMs = retryAfterMs;
+    }
+
+    /**
+     * How long requests to the endpoint keep failing fast.
+     *
+     * @return the time in milliseconds
+     */
+    public long getRetryAfterMs() {
+        return mRetryAfterMs;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the requests sent by the default {@link OktaHttpClient} and of the TLS
+ * connections it opened. Requests that don't need a new connection reuse a pooled one.
+ */
+public final class ConnectionMetrics {
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mConnections = new AtomicLong();
+    private final AtomicLong mHandshakes = new AtomicLong();
+
+    ConnectionMetrics() {
+        //NO-OP
+    }
+
+    /**
+     * The number of requests sent.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * The number of TLS connections opened.
+     *
+     * @return the connection count
+     */
+    public long getConnectionCount() {
+        return mConnections.get();
+    }
+
+    /**
+     * The number of completed TLS handshakes, including abbreviated handshakes resuming a
+     * cached session.
+     *
+     * @return the handshake count
+     */
+    public long getHandshakeCount() {
+        return mHandshakes.get();
+    }
+
+    /**
+     * The number of requests sent over a connection opened for an earlier request.
+     *
+     * @return the reused connection count
+     */
+    public long getReusedConnectionCount() {
+        return Math.max(0, mRequests.get() - mConnections.get());
+    }
+
+    void onRequest() {
+        mRequests.incrementAndGet();
+    }
+
+    /**
+     * @hide
+     */
+    public void onConnection() {
+        mConnections.incrementAndGet();
+    }
+
+    /**
+     * @hide
+     */
+    public void onHandshake() {
+        mHandshakes.incrementAndGet();
+    }
+}
@@ -92,6 +92,7 @@ public class ConnectionParameters {
     private int mConnectionTimeoutMs;
     private int mReadTimeOutMs;
     private RequestType mRequestType;
+    private Deadline mDeadline = Deadline.NONE;
 
     /**
      * Instantiates a new Connection parameters.
@@ -144,13 +145,18 @@ public class ConnectionParameters {
     }
 
     /**
-     * Request properties map.
+     * Request properties map. Unless set explicitly, {@code Accept-Encoding} lists the encodings
+     * of {@link ContentEncodings}, response bodies are then decoded by the library.
      *
      * @return the map
      */
     public Map<String, String> requestProperties() {
         mRequestProperties.put(CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
         mRequestProperties.put(USER_AGENT, USER_AGENT_HEADER);
+        if (!mRequestProperties.containsKey(ContentEncodings.ACCEPT_ENCODING)) {
+            mRequestProperties.put(ContentEncodings.ACCEPT_ENCODING,
+                    ContentEncodings.getAcceptEncoding());
+        }
         return mRequestProperties;
     }
 
@@ -164,21 +170,40 @@ public class ConnectionParameters {
     }
 
     /**
-     * Connection timeout ms int.
+     * Connection timeout ms int, shortened to the time left of the {@link #getDeadline()}.
      *
      * @return the int
      */
     public int connectionTimeoutMs() {
-        return mConnectionTimeoutMs > 0 ? mConnectionTimeoutMs : DEFAULT_CONNECTION_TIMEOUT_MS;
+        return mDeadline.shorten(mConnectionTimeoutMs > 0 ? mConnectionTimeoutMs
+                : DEFAULT_CONNECTION_TIMEOUT_MS);
     }
 
     /**
-     * Read time out ms int.
+     * Read time out ms int, shortened to the time left of the {@link #getDeadline()}.
      *
      * @return the int
      */
     public int readTimeOutMs() {
-        return mReadTimeOutMs > 0 ? mReadTimeOutMs : DEFAULT_READ_TIMEOUT_MS;
+        return mDeadline.shorten(mReadTimeOutMs > 0 ? mReadTimeOutMs : DEFAULT_READ_TIMEOUT_MS);
+    }
+
+    /**
+     * The deadline of the call this request belongs to.
+     *
+     * @return the deadline, {@link Deadline#NONE} if the call has none
+     */
+    @NonNull
+    public Deadline getDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public void setDeadline(@NonNull Deadline deadline) {
+        mDeadline = deadline;
     }
 
     /**
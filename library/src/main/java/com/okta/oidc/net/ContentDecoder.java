@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a response body sent with a {@code Content-Encoding}. Decoders registered with
+ * {@link ContentEncodings#register(ContentDecoder)} are advertised in the
+ * {@code Accept-Encoding} header of every request, e.g. a brotli decoder for {@code br}.
+ */
+public interface ContentDecoder {
+    /**
+     * The content coding this decoder handles, e.g. {@code gzip}.
+     *
+     * @return the encoding name
+     */
+    @NonNull
+    String getEncoding();
+
+    /**
+     * Wraps the encoded body. The body must be decoded while it is read, not buffered first.
+     *
+     * @param encoded the encoded body
+     * @return the decoded body
+     * @throws IOException if the body can't be decoded
+     */
+    @NonNull
+    InputStream decode(@NonNull InputStream encoded) throws IOException;
+}
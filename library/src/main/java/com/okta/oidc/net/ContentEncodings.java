@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.okta.oidc.net.params.RequestType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The content codings the library accepts for response bodies. Requests advertise them in the
+ * {@code Accept-Encoding} header and responses are decoded while they are read. gzip is always
+ * supported, other codings can be added with {@link #register(ContentDecoder)}.
+ * <p>
+ * The transport must not decode the body itself. {@code HttpURLConnection} and OkHttp only do
+ * so when they added the {@code Accept-Encoding} header themselves.
+ */
+public final class ContentEncodings {
+    /**
+     * The constant ACCEPT_ENCODING.
+     */
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    /**
+     * The constant CONTENT_ENCODING.
+     */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    /**
+     * The constant GZIP.
+     */
+    public static final String GZIP = "gzip";
+    private static final String IDENTITY = "identity";
+    private static final int GZIP_BUFFER_SIZE = 4096;
+    private static final TransferMetrics METRICS = new TransferMetrics();
+    private static final Map<String, ContentDecoder> DECODERS = new ConcurrentHashMap<>();
+    private static volatile String sAcceptEncoding = GZIP;
+
+    private ContentEncodings() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Adds a decoder. It replaces the decoder registered for the same encoding, including the
+     * built-in gzip decoder.
+     *
+     * @param decoder the decoder
+     */
+    public static synchronized void register(@NonNull ContentDecoder decoder) {
+        String encoding = decoder.getEncoding().toLowerCase(Locale.US);
+        DECODERS.put(encoding, decoder);
+        StringBuilder accept = new StringBuilder(GZIP);
+        for (String registered : DECODERS.keySet()) {
+            if (!GZIP.equals(registered)) {
+                accept.append(", ").append(registered);
+            }
+        }
+        sAcceptEncoding = accept.toString();
+    }
+
+    /**
+     * The value of the {@code Accept-Encoding} header sent with every request.
+     *
+     * @return the accepted encodings
+     */
+    @NonNull
+    public static String getAcceptEncoding() {
+        return sAcceptEncoding;
+    }
+
+    /**
+     * The bytes received and decoded for each request type.
+     *
+     * @return the transfer metrics
+     */
+    @NonNull
+    public static TransferMetrics getTransferMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * @hide Decodes the body sent with the given {@code Content-Encoding} and counts the bytes
+     * read before and after decoding.
+     *
+     * @param body     the body as received
+     * @param encoding the {@code Content-Encoding} header or null
+     * @param type     the request type to count the bytes for or null
+     * @return the decoded body
+     * @throws IOException if the encoding isn't supported or the body can't be decoded
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    @NonNull
+    public static InputStream decode(@NonNull InputStream body, @Nullable String encoding,
+                                     @Nullable RequestType type) throws IOException {
+        if (!isEncoded(encoding)) {
+            return METRICS.count(body, type, true, true);
+        }
+        InputStream stream = METRICS.count(body, type, true, false);
+        // Codings are listed in the order they were applied.
+        String[] codings = encoding.split(",");
+        for (int i = codings.length - 1; i >= 0; i--) {
+            String coding = codings[i].trim().toLowerCase(Locale.US);
+            if (!coding.isEmpty() && !IDENTITY.equals(coding)) {
+                stream = decoder(coding, stream);
+            }
+        }
+        return METRICS.count(stream, type, false, true);
+    }
+
+    /**
+     * @hide
+     *
+     * @param encoding the {@code Content-Encoding} header or null
+     * @return true if the body isn't sent as is
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static boolean isEncoded(@Nullable String encoding) {
+        return encoding != null && !encoding.trim().isEmpty()
+                && !IDENTITY.equalsIgnoreCase(encoding.trim());
+    }
+
+    private static InputStream decoder(String coding, InputStream stream) throws IOException {
+        ContentDecoder decoder = DECODERS.get(coding);
+        if (decoder != null) {
+            return decoder.decode(stream);
+        }
+        if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+            return new GZIPInputStream(stream, GZIP_BUFFER_SIZE);
+        }
+        throw new IOException("Unsupported Content-Encoding " + coding);
+    }
+}
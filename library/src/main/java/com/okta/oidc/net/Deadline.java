@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A time budget shared by every request of a call, e.g. the discovery, authorize and token
+ * requests of a sign in. Connect and read timeouts of each request are shortened to what is
+ * left of the budget, and no request is sent once it is used up. The budget starts when the
+ * deadline is created.
+ *
+ * <pre>
+ * {@code
+ * Result result = authClient.signIn(sessionToken, null, Deadline.after(10, TimeUnit.SECONDS));
+ * }
+ * </pre>
+ */
+public final class Deadline {
+    /**
+     * A deadline that never expires, requests only use their own timeouts.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    // In milliseconds of System.nanoTime(), which is monotonic.
+    private final long mExpiresAt;
+
+    private Deadline(long expiresAt) {
+        mExpiresAt = expiresAt;
+    }
+
+    /**
+     * A deadline expiring after the given duration from now.
+     *
+     * @param duration the duration, zero or less is already expired
+     * @param unit     the unit of the duration
+     * @return the deadline
+     */
+    @NonNull
+    public static Deadline after(long duration, @NonNull TimeUnit unit) {
+        return new Deadline(now() + Math.max(0, unit.toMillis(duration)));
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * If the deadline expires at all.
+     *
+     * @return false for {@link #NONE}
+     */
+    public boolean isBounded() {
+        return mExpiresAt != Long.MAX_VALUE;
+    }
+
+    /**
+     * The time left until the deadline expires.
+     *
+     * @return the remaining milliseconds, zero once expired and {@link Long#MAX_VALUE} if the
+     * deadline isn't bounded
+     */
+    public long getRemainingMs() {
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mExpiresAt - now());
+    }
+
+    /**
+     * If the budget is used up.
+     *
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return getRemainingMs() == 0;
+    }
+
+    /**
+     * Shortens a timeout to the remaining time. Timeouts of zero mean infinite to
+     * {@link java.net.URLConnection}, so at least one millisecond is returned.
+     *
+     * @param timeoutMs the timeout
+     * @return the shorter of the timeout and the remaining time
+     */
+    public int shorten(int timeoutMs) {
+        return (int) Math.max(1, Math.min(timeoutMs, getRemainingMs()));
+    }
+
+    /**
+     * Fails if the deadline has passed.
+     *
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(null);
+        }
+    }
+}
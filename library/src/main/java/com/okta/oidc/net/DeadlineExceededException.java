@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when the {@link Deadline} of a call passed before its requests completed.
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+    /**
+     * Instantiates a new exception.
+     *
+     * @param cause the failure of the request that ran out of time or null
+     */
+    public DeadlineExceededException(@Nullable Throwable cause) {
+        super("Deadline exceeded");
+        if (cause != null) {
+            initCause(cause);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.Locale;
+
+/**
+ * @hide Freshness and validators of a cached response to an idempotent GET, persisted next to
+ * the decoded document. A fresh entry is used without a request. A stale entry is revalidated
+ * with a conditional request, a {@code 304 Not Modified} then renews it without sending the
+ * body again.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class HttpCacheEntry {
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String AGE = "Age";
+    private static final String MAX_AGE = "max-age";
+    private static final String NO_CACHE = "no-cache";
+    private static final String NO_STORE = "no-store";
+
+    private String etag;
+    private String lastModified;
+    // Milliseconds since epoch.
+    private long expiresAt;
+
+    private HttpCacheEntry() {
+        //NO-OP
+    }
+
+    /**
+     * Creates an entry.
+     *
+     * @param etag         the entity tag or null
+     * @param lastModified the last modification date or null
+     * @param expiresAt    when the entry becomes stale, in milliseconds since epoch
+     */
+    public HttpCacheEntry(@Nullable String etag, @Nullable String lastModified, long expiresAt) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Creates the entry for a response.
+     *
+     * @param response the response
+     * @param now      the current time in milliseconds since epoch
+     * @return the entry, already stale if the response must not be reused without a request,
+     * or null if the response has no caching headers at all
+     */
+    @Nullable
+    public static HttpCacheEntry of(@NonNull HttpResponse response, long now) {
+        String cacheControl = response.getHeaderField(CACHE_CONTROL);
+        String etag = response.getHeaderField(ETAG);
+        String lastModified = response.getHeaderField(LAST_MODIFIED);
+        if (cacheControl == null && etag == null && lastModified == null) {
+            return null;
+        }
+        if (isNoStore(response)) {
+            return mustRefetch(now);
+        }
+        long maxAge = 0;
+        for (String directive : cacheControl(response)) {
+            if (directive.equals(NO_CACHE)) {
+                maxAge = 0;
+                break;
+            } else if (directive.startsWith(MAX_AGE + "=")) {
+                maxAge = parseSeconds(directive.substring(MAX_AGE.length() + 1));
+            }
+        }
+        maxAge = Math.max(0, maxAge - parseSeconds(response.getHeaderField(AGE)));
+        return new HttpCacheEntry(etag, lastModified, now + maxAge * 1000);
+    }
+
+    /**
+     * The entry renewed by a {@code 304 Not Modified} response. Validators missing from the
+     * response are kept.
+     *
+     * @param notModified the response
+     * @param now         the current time in milliseconds since epoch
+     * @return the renewed entry, already stale if the response must not be stored
+     */
+    @NonNull
+    public HttpCacheEntry revalidated(@NonNull HttpResponse notModified, long now) {
+        if (isNoStore(notModified)) {
+            return mustRefetch(now);
+        }
+        HttpCacheEntry renewed = of(notModified, now);
+        if (renewed == null) {
+            renewed = new HttpCacheEntry(null, null, now);
+        }
+        if (renewed.etag == null) {
+            renewed.etag = etag;
+        }
+        if (renewed.lastModified == null) {
+            renewed.lastModified = lastModified;
+        }
+        return renewed;
+    }
+
+    /**
+     * Adds the conditional request headers.
+     *
+     * @param builder the parameters of the request
+     */
+    public void addValidators(@NonNull ConnectionParameters.ParameterBuilder builder) {
+        if (etag != null) {
+            builder.setRequestProperty(IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            builder.setRequestProperty(IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    @Nullable
+    public String getETag() {
+        return etag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    //Stale and without validators, the next use sends an unconditional request.
+    private static HttpCacheEntry mustRefetch(long now) {
+        return new HttpCacheEntry(null, null, now);
+    }
+
+    private static boolean isNoStore(HttpResponse response) {
+        for (String directive : cacheControl(response)) {
+            if (directive.equals(NO_STORE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] cacheControl(HttpResponse response) {
+        String cacheControl = response.getHeaderField(CACHE_CONTROL);
+        if (cacheControl == null) {
+            return new String[0];
+        }
+        String[] directives = cacheControl.toLowerCase(Locale.US).split(",");
+        for (int i = 0; i < directives.length; i++) {
+            directives[i] = directives[i].trim();
+        }
+        return directives;
+    }
+
+    private static long parseSeconds(@Nullable String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim().replace("\"", "")));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -30,36 +30,64 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 
 @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
 public class HttpClientImpl implements OktaHttpClient {
+    private static final ConnectionMetrics METRICS = new ConnectionMetrics();
+    // Shared by all clients. HttpURLConnection only reuses a pooled connection and the SSL
+    // context only resumes a TLS session if the socket factory is the same instance.
+    private static TLSSocketFactory sSocketFactory;
     private HttpURLConnection mUrlConnection;
+    private final Set<UrlConnectionExchange> mExchanges =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Counters of the requests and connections of all instances.
+     *
+     * @return the connection metrics
+     */
+    public static ConnectionMetrics getConnectionMetrics() {
+        return METRICS;
+    }
 
     /*
      * TLS v1.1, v1.2 in Android supports starting from API 16.
      * But it enabled by default starting from API 20.
-     * This method enable these TLS versions on API < 20.
+     * On API < 20 the shared factory enables these TLS versions, otherwise it wraps the default
+     * factory and only counts connections.
      * */
-    private void enableTlsV1_2(HttpURLConnection urlConnection) {
-        try {
-            ((HttpsURLConnection) urlConnection)
-                    .setSSLSocketFactory(new TLSSocketFactory());
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            throw new RuntimeException("Cannot create SSLContext.", e);
+    private static synchronized SSLSocketFactory getSocketFactory() {
+        if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.LOLLIPOP) {
+            if (sSocketFactory == null) {
+                try {
+                    sSocketFactory = new TLSSocketFactory(METRICS);
+                } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                    throw new RuntimeException("Cannot create SSLContext.", e);
+                }
+            }
+        } else {
+            SSLSocketFactory platform = HttpsURLConnection.getDefaultSSLSocketFactory();
+            if (sSocketFactory == null || sSocketFactory.getWrappedFactory() != platform) {
+                sSocketFactory = new TLSSocketFactory(platform, METRICS);
+            }
         }
+        return sSocketFactory;
     }
 
     @VisibleForTesting
     protected HttpURLConnection openConnection(URL url, ConnectionParameters params)
             throws IOException {
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        if (mUrlConnection instanceof HttpsURLConnection &&
-                Build.VERSION.SDK_INT <= Build.VERSION_CODES.LOLLIPOP) {
-            enableTlsV1_2(mUrlConnection);
+        if (conn instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(getSocketFactory());
         }
 
         conn.setConnectTimeout(params.connectionTimeoutMs());
@@ -94,11 +122,34 @@ public class HttpClientImpl implements OktaHttpClient {
             throws Exception {
 
         mUrlConnection = openConnection(new URL(uri.toString()), params);
+        METRICS.onRequest();
         mUrlConnection.connect();
+        return getBody(mUrlConnection);
+    }
+
+    @NonNull
+    @Override
+    public OktaHttpExchange execute(@NonNull Uri uri, @NonNull ConnectionParameters params)
+            throws Exception {
+        HttpURLConnection conn = openConnection(new URL(uri.toString()), params);
+        UrlConnectionExchange exchange = new UrlConnectionExchange(conn);
+        mExchanges.add(exchange);
         try {
-            return mUrlConnection.getInputStream();
+            METRICS.onRequest();
+            conn.connect();
+            exchange.mBody = getBody(conn);
+        } catch (Exception e) {
+            exchange.close();
+            throw e;
+        }
+        return exchange;
+    }
+
+    private static InputStream getBody(HttpURLConnection conn) {
+        try {
+            return conn.getInputStream();
         } catch (IOException e) {
-            return mUrlConnection.getErrorStream();
+            return conn.getErrorStream();
         }
     }
 
@@ -113,6 +164,9 @@ public class HttpClientImpl implements OktaHttpClient {
         if (mUrlConnection != null) {
             mUrlConnection.disconnect();
         }
+        for (UrlConnectionExchange exchange : mExchanges) {
+            exchange.cancel();
+        }
     }
 
     @Override
@@ -159,4 +213,60 @@ public class HttpClientImpl implements OktaHttpClient {
     public HttpURLConnection getUrlConnection() {
         return mUrlConnection;
     }
+
+    private final class UrlConnectionExchange implements OktaHttpExchange {
+        private final HttpURLConnection mConnection;
+        private volatile InputStream mBody;
+
+        UrlConnectionExchange(HttpURLConnection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return mConnection.getResponseCode();
+        }
+
+        @Override
+        public String getResponseMessage() throws IOException {
+            return mConnection.getResponseMessage();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return mConnection.getHeaderFields();
+        }
+
+        @Override
+        public String getHeader(String header) {
+            return mConnection.getHeaderField(header);
+        }
+
+        @Override
+        public int getContentLength() {
+            return mConnection.getContentLength();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return mBody;
+        }
+
+        @Override
+        public void cancel() {
+            mConnection.disconnect();
+        }
+
+        @Override
+        public void close() {
+            mExchanges.remove(this);
+            if (mBody != null) {
+                try {
+                    mBody.close();
+                } catch (IOException e) {
+                    //NO-OP
+                }
+            }
+        }
+    }
 }
@@ -15,13 +15,23 @@
 
 package com.okta.oidc.net;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.okta.oidc.net.params.RequestType;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -38,10 +48,15 @@ import java.util.Map;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public final class HttpResponse {
     private static final String TAG = HttpResponse.class.getSimpleName();
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+    // Larger leftovers cost more than a new connection.
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
+    // Gson caches the type adapters it creates, so decoding shares one instance.
+    private static final Gson GSON = new Gson();
     private final int mStatusCode;
     private final Map<String, List<String>> mHeaders;
     private final int mLength;
-    private final OktaHttpClient mHttpClient;
+    private final OktaHttpExchange mExchange;
     private InputStream mInputStream;
 
     /**
@@ -51,7 +66,7 @@ public final class HttpResponse {
      * @param headers    response headers
      */
     public HttpResponse(int statusCode, Map<String, List<String>> headers) {
-        this(statusCode, headers, -1, null, null);
+        this(statusCode, headers, -1, (OktaHttpExchange) null);
     }
 
     /**
@@ -65,11 +80,48 @@ public final class HttpResponse {
     public HttpResponse(
             int statusCode, Map<String, List<String>> headers,
             int length, InputStream inputStream, OktaHttpClient client) {
+        this(statusCode, headers, length,
+                client == null ? null : new LegacyHttpExchange(client, inputStream, null));
+        mInputStream = inputStream;
+    }
+
+    private HttpResponse(
+            int statusCode, Map<String, List<String>> headers,
+            int length, @Nullable OktaHttpExchange exchange) {
         mStatusCode = statusCode;
         mHeaders = headers;
         mLength = length;
-        mHttpClient = client;
-        mInputStream = inputStream;
+        mExchange = exchange;
+    }
+
+    /**
+     * Constructor for HttpResponse. The body is decoded according to its
+     * {@code Content-Encoding} while it is read, the length is then unknown.
+     *
+     * @param statusCode HTTP status code of the response
+     * @param headers    response headers
+     * @param length     the length of the response as received.
+     * @param exchange   the exchange owning the body, closed with the response.
+     * @param type       the request type the body bytes are counted for.
+     * @throws IOException if the body can't be decoded
+     */
+    public HttpResponse(
+            int statusCode, Map<String, List<String>> headers,
+            int length, @NonNull OktaHttpExchange exchange, @Nullable RequestType type)
+            throws IOException {
+        this(statusCode, headers,
+                ContentEncodings.isEncoded(exchange.getHeader(ContentEncodings.CONTENT_ENCODING))
+                        ? -1 : length, exchange);
+        InputStream body = exchange.getBody();
+        if (body != null) {
+            try {
+                mInputStream = ContentEncodings.decode(body,
+                        exchange.getHeader(ContentEncodings.CONTENT_ENCODING), type);
+            } catch (IOException e) {
+                release(false);
+                throw e;
+            }
+        }
     }
 
     public int getStatusCode() {
@@ -80,8 +132,21 @@ public final class HttpResponse {
         return Collections.unmodifiableMap(mHeaders);
     }
 
+    @Nullable
     public String getHeaderField(String field) {
-        return mHttpClient.getHeader(field);
+        if (mExchange != null) {
+            return mExchange.getHeader(field);
+        }
+        if (mHeaders != null) {
+            for (Map.Entry<String, List<String>> entry : mHeaders.entrySet()) {
+                List<String> values = entry.getValue();
+                if (field.equalsIgnoreCase(entry.getKey()) && values != null
+                        && !values.isEmpty()) {
+                    return values.get(values.size() - 1);
+                }
+            }
+        }
+        return null;
     }
 
     public int getContentLength() {
@@ -93,30 +158,54 @@ public final class HttpResponse {
         return mInputStream;
     }
 
+    /**
+     * Releases the response. The unread rest of the body is read first, up to a limit, because
+     * a connection is only returned to the pool once its response was consumed.
+     */
     public void disconnect() {
-        if (mHttpClient != null) {
-            mHttpClient.cleanUp();
+        release(true);
+    }
+
+    /**
+     * Releases the response without reading the rest of the body and cancels the exchange, the
+     * connection is not reused. Used when the request is canceled while another thread may
+     * still read the body.
+     */
+    public void abort() {
+        release(false);
+    }
+
+    private void release(boolean drain) {
+        if (!drain && mExchange != null) {
+            mExchange.cancel();
         }
         if (mInputStream != null) {
             try {
+                if (drain) {
+                    drain(mInputStream);
+                }
                 mInputStream.close();
             } catch (IOException ioe) {
                 //NO-OP
             }
         }
+        if (mExchange != null) {
+            mExchange.close();
+        }
     }
 
-    public JSONObject asJson() throws IOException, JSONException {
-        if (mStatusCode < HttpURLConnection.HTTP_OK ||
-                mStatusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
-            throw new IOException("Invalid status code " + mStatusCode +
-                    " " + mHttpClient.getResponseMessage());
-        }
-        InputStream is = getContent();
-        if (is == null) {
-            throw new IOException("Input stream must not be null");
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        long drained = 0;
+        int read;
+        while (drained < MAX_DRAIN_BYTES && (read = stream.read(buffer)) != -1) {
+            drained += read;
         }
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+    }
+
+    public JSONObject asJson() throws IOException, JSONException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(getJsonContent(), ConnectionParameters.DEFAULT_ENCODING));
         Writer writer = new StringWriter();
         String line = reader.readLine();
         while (line != null) {
@@ -125,4 +214,53 @@ public final class HttpResponse {
         }
         return new JSONObject(writer.toString());
     }
+
+    /**
+     * Decodes the body while it is read, without buffering it first.
+     *
+     * @param type the type to decode
+     * @param <T>  the type
+     * @return the decoded body
+     * @throws IOException        if the status is not a success or the body can't be read
+     * @throws JsonParseException if the body is not a JSON value of the type
+     */
+    @NonNull
+    public <T> T decode(Class<T> type) throws IOException {
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(getJsonContent(), ConnectionParameters.DEFAULT_ENCODING));
+        reader.setLenient(true);
+        TypeAdapter<T> adapter = GSON.getAdapter(type);
+        T value;
+        try {
+            value = adapter.read(reader);
+        } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+        if (value == null) {
+            throw new JsonSyntaxException("Response body is null");
+        }
+        return value;
+    }
+
+    /**
+     * Checks that the status is a success.
+     *
+     * @throws IOException if the status is not 2xx
+     */
+    public void checkStatus() throws IOException {
+        if (mStatusCode < HttpURLConnection.HTTP_OK ||
+                mStatusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            String message = mExchange == null ? null : mExchange.getResponseMessage();
+            throw new IOException("Invalid status code " + mStatusCode + " " + message);
+        }
+    }
+
+    private InputStream getJsonContent() throws IOException {
+        checkStatus();
+        InputStream is = getContent();
+        if (is == null) {
+            throw new IOException("Input stream must not be null");
+        }
+        return is;
+    }
 }
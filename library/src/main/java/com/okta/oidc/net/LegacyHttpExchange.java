@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Adapts an {@link OktaHttpClient} that only implements
+ * {@link OktaHttpClient#connect(Uri, ConnectionParameters)}. Such a client keeps the state of
+ * the current request itself, so its exchanges are run one after another. An exchange reads
+ * from the client until it is closed and the next one waits until then.
+ */
+final class LegacyHttpExchange implements OktaHttpExchange {
+    private static final Map<OktaHttpClient, Semaphore> PERMITS = new WeakHashMap<>();
+    private final OktaHttpClient mClient;
+    private final InputStream mBody;
+    private final Semaphore mPermit;
+    private boolean mClosed;
+
+    static OktaHttpExchange execute(@NonNull OktaHttpClient client, @NonNull Uri uri,
+                                    @NonNull ConnectionParameters params) throws Exception {
+        Semaphore permit;
+        synchronized (PERMITS) {
+            permit = PERMITS.get(client);
+            if (permit == null) {
+                permit = new Semaphore(1);
+                PERMITS.put(client, permit);
+            }
+        }
+        permit.acquire();
+        try {
+            return new LegacyHttpExchange(client, client.connect(uri, params), permit);
+        } catch (Exception e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Exchange of a request already sent by the client.
+     *
+     * @param client the client holding the response
+     * @param body   the stream returned by the client
+     * @param permit the permit to release on close, null if the caller serializes requests
+     */
+    LegacyHttpExchange(@NonNull OktaHttpClient client, @Nullable InputStream body,
+                       @Nullable Semaphore permit) {
+        mClient = client;
+        mBody = body;
+        mPermit = permit;
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return mClient.getResponseCode();
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+        return mClient.getResponseMessage();
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        return mClient.getHeaderFields();
+    }
+
+    @Override
+    public String getHeader(String header) {
+        return mClient.getHeader(header);
+    }
+
+    @Override
+    public int getContentLength() {
+        return mClient.getContentLength();
+    }
+
+    @Override
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    @Override
+    public synchronized void cancel() {
+        // Once closed the client may already carry the next exchange.
+        if (!mClosed) {
+            mClient.cancel();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        if (mBody != null) {
+            try {
+                mBody.close();
+            } catch (IOException e) {
+                //NO-OP
+            }
+        }
+        mClient.cleanUp();
+        if (mPermit != null) {
+            mPermit.release();
+        }
+    }
+}
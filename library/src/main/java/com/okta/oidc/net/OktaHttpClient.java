@@ -26,7 +26,11 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * The interface Http client for making network connections.
+ * The interface Http client for making network connections. The library sends every request
+ * with {@link #execute(Uri, ConnectionParameters)}. Clients that only implement
+ * {@link #connect(Uri, ConnectionParameters)} hold one response at a time, so the requests on
+ * such a client are sent one after another. Override {@link #execute(Uri, ConnectionParameters)}
+ * to carry many requests at the same time.
  */
 public interface OktaHttpClient {
     /**
@@ -40,13 +44,30 @@ public interface OktaHttpClient {
     @Nullable
     InputStream connect(@NonNull Uri uri, @NonNull ConnectionParameters param) throws Exception;
 
+    /**
+     * Send a request and return its response as an exchange that doesn't share state with
+     * other exchanges of this client. The default implementation adapts
+     * {@link #connect(Uri, ConnectionParameters)} and the getters of this client, and waits
+     * until the previous exchange was closed.
+     *
+     * @param uri   uri for the connection.
+     * @param param parameters for the connection.
+     * @return the exchange, must be closed by the caller.
+     * @throws Exception the exception indicating failure case.
+     */
+    @NonNull
+    default OktaHttpExchange execute(@NonNull Uri uri, @NonNull ConnectionParameters param)
+            throws Exception {
+        return LegacyHttpExchange.execute(this, uri, param);
+    }
+
     /**
      * Clean up any resources in OktaHttpClient.
      */
     void cleanUp();
 
     /**
-     * Attempt to cancel a connection.
+     * Attempt to cancel a connection. Cancels every exchange of this client that is in flight.
      */
     void cancel();
 
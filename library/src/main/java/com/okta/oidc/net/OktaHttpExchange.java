@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single request and its response, returned by
+ * {@link OktaHttpClient#execute(android.net.Uri, ConnectionParameters)}. The exchange owns its
+ * status, headers and body, so exchanges of the same client don't share any state and can be
+ * used from different threads at the same time.
+ */
+public interface OktaHttpExchange extends Closeable {
+    /**
+     * Gets response code.
+     *
+     * @return the response code or -1 if no code can be discerned.
+     * @throws IOException the exception indicating connection error.
+     */
+    int getResponseCode() throws IOException;
+
+    /**
+     * Gets the Http status message.
+     *
+     * @return the response message.
+     * @throws IOException the exception indicating connection error.
+     */
+    @Nullable
+    String getResponseMessage() throws IOException;
+
+    /**
+     * Gets header fields.
+     *
+     * @return the header fields.
+     */
+    Map<String, List<String>> getHeaderFields();
+
+    /**
+     * Get header.
+     *
+     * @param header the header.
+     * @return the single header.
+     */
+    @Nullable
+    String getHeader(String header);
+
+    /**
+     * Gets content length.
+     *
+     * @return the content length or -1 if it is unknown.
+     */
+    int getContentLength();
+
+    /**
+     * Gets the response body.
+     *
+     * @return the body or null if the response has none.
+     */
+    @Nullable
+    InputStream getBody();
+
+    /**
+     * Attempt to cancel this exchange. Other exchanges of the client are not affected.
+     */
+    void cancel();
+
+    /**
+     * Release the resources of this exchange. Calling it more than once has no effect.
+     */
+    @Override
+    void close();
+}
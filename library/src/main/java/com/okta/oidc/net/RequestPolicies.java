@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+import com.okta.oidc.net.params.RequestType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link RequestPolicy} of each request type. Every type uses {@link RequestPolicy#DEFAULT}
+ * unless another policy is set. Circuit breakers are kept per endpoint, all clients sending
+ * requests to an endpoint share its breaker.
+ */
+public final class RequestPolicies {
+    private static final Map<RequestType, RequestPolicy> POLICIES = new ConcurrentHashMap<>();
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private RequestPolicies() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Sets the policy of a request type.
+     *
+     * @param type   the request type
+     * @param policy the policy
+     */
+    public static void set(@NonNull RequestType type, @NonNull RequestPolicy policy) {
+        POLICIES.put(type, policy);
+    }
+
+    /**
+     * The policy of a request type.
+     *
+     * @param type the request type or null
+     * @return the policy
+     */
+    @NonNull
+    public static RequestPolicy get(@Nullable RequestType type) {
+        RequestPolicy policy = type == null ? null : POLICIES.get(type);
+        return policy == null ? RequestPolicy.DEFAULT : policy;
+    }
+
+    /**
+     * Restores the default policies and closes all circuit breakers.
+     */
+    @VisibleForTesting
+    public static void reset() {
+        POLICIES.clear();
+        BREAKERS.clear();
+    }
+
+    /**
+     * @hide
+     *
+     * @param uri the request uri
+     * @return the circuit breaker of the endpoint, query and fragment are ignored
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    @NonNull
+    public static CircuitBreaker getCircuitBreaker(@NonNull Uri uri) {
+        String endpoint = uri.getScheme() + "://" + uri.getEncodedAuthority()
+                + uri.getEncodedPath();
+        CircuitBreaker breaker = BREAKERS.get(endpoint);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(endpoint);
+            CircuitBreaker existing = BREAKERS.putIfAbsent(endpoint, breaker);
+            if (existing != null) {
+                breaker = existing;
+            }
+        }
+        return breaker;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * How requests of a {@link com.okta.oidc.net.params.RequestType} are retried and when an
+ * endpoint is considered down. Failed attempts are retried after an exponential backoff with
+ * jitter, or after the delay the server asked for with {@code Retry-After}. Requests that can't
+ * be replayed safely, e.g. token requests, are only retried if they never reached the server.
+ * <p>
+ * Each endpoint has a circuit breaker. It opens after consecutive failures and requests to the
+ * endpoint then fail fast with {@link CircuitOpenException}. Only retryable statuses and read
+ * timeouts are failures, connection errors are usually caused by the client's network. Once the open duration elapsed a
+ * single request is let through, its outcome closes or reopens the breaker.
+ * <p>
+ * Policies are set with {@link RequestPolicies#set(com.okta.oidc.net.params.RequestType,
+ * RequestPolicy)}.
+ */
+public final class RequestPolicy {
+    /**
+     * The policy used unless another one is set. Three attempts, a backoff from 500ms up to 4s,
+     * a {@code Retry-After} up to 10s is honored, and a breaker opening for 30s after 5
+     * consecutive failures.
+     */
+    public static final RequestPolicy DEFAULT = new Builder().create();
+
+    private static final String RETRY_AFTER_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final Random RANDOM = new Random();
+
+    private final int mMaxAttempts;
+    private final long mInitialBackoffMs;
+    private final long mMaxBackoffMs;
+    private final long mMaxRetryAfterMs;
+    private final int mFailureThreshold;
+    private final long mOpenDurationMs;
+
+    private RequestPolicy(Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mInitialBackoffMs = builder.mInitialBackoffMs;
+        mMaxBackoffMs = builder.mMaxBackoffMs;
+        mMaxRetryAfterMs = builder.mMaxRetryAfterMs;
+        mFailureThreshold = builder.mFailureThreshold;
+        mOpenDurationMs = builder.mOpenDurationMs;
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    public long getInitialBackoffMs() {
+        return mInitialBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return mMaxBackoffMs;
+    }
+
+    public long getMaxRetryAfterMs() {
+        return mMaxRetryAfterMs;
+    }
+
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    public long getOpenDurationMs() {
+        return mOpenDurationMs;
+    }
+
+    /**
+     * @hide The delay before the next attempt. It doubles with each attempt up to the maximum,
+     * the second half of it is random so clients failing together don't retry together.
+     *
+     * @param attempt the failed attempt, starting at 1
+     * @return the delay in milliseconds
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public long getBackoffMs(int attempt) {
+        long backoff = mInitialBackoffMs;
+        for (int i = 1; i < attempt && backoff < mMaxBackoffMs; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, mMaxBackoffMs);
+        long half = backoff / 2;
+        synchronized (RANDOM) {
+            return half + (long) (RANDOM.nextDouble() * (backoff - half));
+        }
+    }
+
+    /**
+     * @hide
+     *
+     * @param status the response status
+     * @return true if the status reports a failure that may not happen again
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static boolean isRetryableStatus(int status) {
+        switch (status) {
+            case 408: //Request Timeout
+            case 429: //Too Many Requests
+            case 500: //Internal Server Error
+            case 502: //Bad Gateway
+            case 503: //Service Unavailable
+            case 504: //Gateway Timeout
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @hide Parses a {@code Retry-After} header, either seconds or an HTTP date.
+     *
+     * @param value the header value or null
+     * @param now   the current time in milliseconds since epoch
+     * @return the delay in milliseconds or -1 if missing or invalid
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static long parseRetryAfter(@Nullable String value, long now) {
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : seconds * 1000;
+        } catch (NumberFormatException e) {
+            //Not seconds, try a date.
+        }
+        SimpleDateFormat format = new SimpleDateFormat(RETRY_AFTER_DATE, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(value);
+            return Math.max(0, date.getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The RequestPolicy Builder. Starts with the values of {@link #DEFAULT}.
+     */
+    public static final class Builder {
+        private int mMaxAttempts = 3;
+        private long mInitialBackoffMs = 500;
+        private long mMaxBackoffMs = 4000;
+        private long mMaxRetryAfterMs = 10000;
+        private int mFailureThreshold = 5;
+        private long mOpenDurationMs = 30000;
+
+        /**
+         * Instantiates a new Builder.
+         */
+        public Builder() {
+            //NO-OP
+        }
+
+        /**
+         * Create the policy.
+         *
+         * @return the policy
+         */
+        @NonNull
+        public RequestPolicy create() {
+            return new RequestPolicy(this);
+        }
+
+        /**
+         * The number of attempts including the first one, 1 disables retries.
+         *
+         * @param maxAttempts the maximum number of attempts
+         * @return current builder
+         */
+        @NonNull
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * The backoff before the first retry, doubled for each following retry.
+         *
+         * @param initialMs the first backoff in milliseconds
+         * @param maxMs     the maximum backoff in milliseconds
+         * @return current builder
+         */
+        @NonNull
+        public Builder backoff(long initialMs, long maxMs) {
+            if (initialMs < 0 || maxMs < initialMs) {
+                throw new IllegalArgumentException("Invalid backoff " + initialMs + ", " + maxMs);
+            }
+            mInitialBackoffMs = initialMs;
+            mMaxBackoffMs = maxMs;
+            return this;
+        }
+
+        /**
+         * The longest {@code Retry-After} delay to wait for. The response is returned without
+         * retrying if the server asks to wait longer.
+         *
+         * @param maxRetryAfterMs the maximum delay in milliseconds
+         * @return current builder
+         */
+        @NonNull
+        public Builder maxRetryAfter(long maxRetryAfterMs) {
+            mMaxRetryAfterMs = maxRetryAfterMs;
+            return this;
+        }
+
+        /**
+         * When the circuit breaker of an endpoint opens and for how long.
+         *
+         * @param failureThreshold the consecutive failures opening the breaker, 0 disables it
+         * @param openDurationMs   how long requests fail fast, in milliseconds
+         * @return current builder
+         */
+        @NonNull
+        public Builder circuitBreaker(int failureThreshold, long openDurationMs) {
+            mFailureThreshold = failureThreshold;
+            mOpenDurationMs = openDurationMs;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.okta.oidc.net.params.RequestType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the response body bytes of each {@link RequestType}, as received and after
+ * decoding the {@code Content-Encoding}. Bodies sent as is count the same for both. Only bytes
+ * that were read are counted.
+ */
+public final class TransferMetrics {
+    private final AtomicLongArray mCompressed = new AtomicLongArray(RequestType.values().length);
+    private final AtomicLongArray mUncompressed =
+            new AtomicLongArray(RequestType.values().length);
+
+    TransferMetrics() {
+        //NO-OP
+    }
+
+    /**
+     * The number of body bytes received for the request type.
+     *
+     * @param type the request type
+     * @return the byte count as received
+     */
+    public long getCompressedBytes(@NonNull RequestType type) {
+        return mCompressed.get(type.ordinal());
+    }
+
+    /**
+     * The number of body bytes after decoding for the request type.
+     *
+     * @param type the request type
+     * @return the decoded byte count
+     */
+    public long getUncompressedBytes(@NonNull RequestType type) {
+        return mUncompressed.get(type.ordinal());
+    }
+
+    InputStream count(InputStream stream, @Nullable RequestType type, boolean compressed,
+                      boolean uncompressed) {
+        if (type == null) {
+            return stream;
+        }
+        return new CountingInputStream(stream, type.ordinal(),
+                compressed ? mCompressed : null, uncompressed ? mUncompressed : null);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final int mIndex;
+        private final AtomicLongArray mCompressed;
+        private final AtomicLongArray mUncompressed;
+
+        CountingInputStream(InputStream in, int index, @Nullable AtomicLongArray compressed,
+                            @Nullable AtomicLongArray uncompressed) {
+            super(in);
+            mIndex = index;
+            mCompressed = compressed;
+            mUncompressed = uncompressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                add(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                add(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // A reset would count bytes twice.
+            return false;
+        }
+
+        private void add(long bytes) {
+            if (mCompressed != null) {
+                mCompressed.addAndGet(mIndex, bytes);
+            }
+            if (mUncompressed != null) {
+                mUncompressed.addAndGet(mIndex, bytes);
+            }
+        }
+    }
+}
@@ -17,9 +17,13 @@ package com.okta.oidc.net.request;
 
 import androidx.annotation.RestrictTo;
 
+import com.google.gson.JsonParseException;
 import com.okta.oidc.net.ConnectionParameters;
 import com.okta.oidc.net.HttpResponse;
 import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.params.RequestType;
+import com.okta.oidc.net.response.AuthorizedResponse;
+import com.okta.oidc.net.response.ResponseDecoder;
 import com.okta.oidc.util.AuthorizationException;
 
 import org.json.JSONException;
@@ -52,16 +56,79 @@ public class AuthorizedRequest extends BaseRequest<JSONObject, AuthorizationExce
                 .create();
     }
 
+    //The userinfo endpoint only reads the profile, whatever the method.
+    @Override
+    protected boolean isIdempotent() {
+        return mRequestType == RequestType.PROFILE || super.isIdempotent();
+    }
+
     @Override
     public JSONObject executeRequest(OktaHttpClient client) throws AuthorizationException {
+        return execute(client, HttpResponse::asJson);
+    }
+
+    /**
+     * Execute the request and decode the response into the given type while it is read.
+     *
+     * @param client the http client
+     * @param type   the type of the response
+     * @param <R>    the type of the response
+     * @return the decoded response
+     * @throws AuthorizationException if the request failed or the response can't be decoded
+     */
+    public <R> R executeRequest(OktaHttpClient client, Class<R> type)
+            throws AuthorizationException {
+        return execute(client, response -> response.decode(type));
+    }
+
+    /**
+     * Execute the request and decode the response with a decoder of the caller.
+     *
+     * @param client  the http client
+     * @param decoder the decoder of the response
+     * @param <R>     the type of the response
+     * @return the decoded response
+     * @throws AuthorizationException if the request failed or the response can't be decoded
+     */
+    public <R> R executeRequest(OktaHttpClient client, ResponseDecoder<R> decoder)
+            throws AuthorizationException {
+        return execute(client, response -> {
+            response.checkStatus();
+            return decoder.decode(new AuthorizedResponse(response, null));
+        });
+    }
+
+    /**
+     * Execute the request and return the response without reading the body. Any status is
+     * returned. The response must be closed, which closes this request.
+     *
+     * @param client the http client
+     * @return the response
+     * @throws AuthorizationException if the request failed
+     */
+    public AuthorizedResponse open(OktaHttpClient client) throws AuthorizationException {
+        try {
+            return new AuthorizedResponse(openConnection(client), this::close);
+        } catch (IOException io) {
+            close();
+            throw new AuthorizationException(io.getMessage(), io);
+        } catch (Exception e) {
+            close();
+            throw AuthorizationException.fromTemplate(AuthorizationException
+                    .GeneralErrors.NETWORK_ERROR, e);
+        }
+    }
+
+    private <R> R execute(OktaHttpClient client, Decoder<R> decoder)
+            throws AuthorizationException {
         AuthorizationException exception = null;
         HttpResponse response = null;
         try {
             response = openConnection(client);
-            return response.asJson();
+            return decoder.decode(response);
         } catch (IOException io) {
             exception = new AuthorizationException(io.getMessage(), io);
-        } catch (JSONException je) {
+        } catch (JSONException | JsonParseException je) {
             exception = AuthorizationException.fromTemplate(AuthorizationException
                     .GeneralErrors.JSON_DESERIALIZATION_ERROR, je);
         } catch (Exception e) {
@@ -77,4 +144,8 @@ public class AuthorizedRequest extends BaseRequest<JSONObject, AuthorizationExce
         }
         return null;
     }
+
+    private interface Decoder<R> {
+        R decode(HttpResponse response) throws IOException, JSONException;
+    }
 }
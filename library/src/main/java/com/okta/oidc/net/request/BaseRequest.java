@@ -22,16 +22,28 @@ import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
+import com.okta.oidc.net.CircuitBreaker;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.DeadlineExceededException;
 import com.okta.oidc.net.HttpResponse;
 import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.OktaHttpExchange;
+import com.okta.oidc.net.RequestPolicies;
+import com.okta.oidc.net.RequestPolicy;
 import com.okta.oidc.net.params.RequestType;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.Preconditions;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLHandshakeException;
 
 /**
  * @hide
@@ -42,40 +54,174 @@ public abstract class BaseRequest<T, U extends AuthorizationException>
     RequestType mRequestType;
     private static final String HTTPS_SCHEME = "https";
     private static final int HTTP_CONTINUE = 100;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String RETRY_AFTER = "Retry-After";
     private volatile boolean mCanceled;
+    private Deadline mDeadline = Deadline.NONE;
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     public ConnectionParameters mConnParams;
+    private OktaHttpExchange mExchange;
     private HttpResponse mResponse;
+    //Response being drained by close(), still aborted by cancelRequest().
+    private HttpResponse mDraining;
     protected Uri mUri;
 
     public BaseRequest() {
     }
 
+    /**
+     * Bounds the request by the deadline of its call. Timeouts are shortened to the remaining
+     * time and the request fails with {@link DeadlineExceededException} once it has passed.
+     *
+     * @param deadline the deadline
+     */
+    public void setDeadline(@NonNull Deadline deadline) {
+        mDeadline = deadline;
+    }
+
+    /**
+     * Sends the request and retries it according to the {@link RequestPolicy} of its type.
+     * Retries that can't start before the deadline are not attempted.
+     *
+     * @param client the client sending the request
+     * @return the response
+     * @throws Exception if the request failed, was canceled or its endpoint is down
+     */
     @WorkerThread
     protected HttpResponse openConnection(OktaHttpClient client) throws Exception {
         Preconditions.checkArgument(HTTPS_SCHEME.equals(mUri.getScheme()),
                 "only https connections are permitted");
-        InputStream stream = client.connect(mUri, mConnParams);
+        RequestPolicy policy = RequestPolicies.get(mRequestType);
+        CircuitBreaker breaker = RequestPolicies.getCircuitBreaker(mUri);
+        mConnParams.setDeadline(mDeadline);
+        for (int attempt = 1; ; attempt++) {
+            mDeadline.check();
+            breaker.acquire(policy);
+            HttpResponse response;
+            try {
+                response = open(client);
+            } catch (IOException e) {
+                if (mCanceled) {
+                    breaker.release();
+                    throw e;
+                }
+                if (mDeadline.isExpired()) {
+                    //Timed out on the shortened timeouts, that says nothing about the endpoint.
+                    breaker.release();
+                    throw new DeadlineExceededException(e);
+                }
+                if (e instanceof SocketTimeoutException) {
+                    breaker.onFailure(policy);
+                } else {
+                    //Failing to connect or a broken connection is usually on the client side,
+                    //e.g. no network, so it doesn't count against the endpoint.
+                    breaker.release();
+                }
+                long delay = policy.getBackoffMs(attempt);
+                if (attempt >= policy.getMaxAttempts() || !fitsDeadline(delay)
+                        || !(isIdempotent() || isConnectFailure(e))) {
+                    throw e;
+                }
+                awaitRetry(delay);
+                continue;
+            } catch (Exception e) {
+                breaker.release();
+                throw e;
+            }
+            int status = response.getStatusCode();
+            if (!RequestPolicy.isRetryableStatus(status)) {
+                breaker.onSuccess();
+                return response;
+            }
+            breaker.onFailure(policy);
+            long delay = getRetryDelay(policy, attempt, response);
+            if (delay < 0 || !fitsDeadline(delay)) {
+                return response;
+            }
+            close();
+            awaitRetry(delay);
+        }
+    }
+
+    /**
+     * If the request can be sent again after it may have reached the server. Requests
+     * that are not idempotent are only retried if the server rejected them unprocessed.
+     *
+     * @return true if sending the request twice has the same effect as sending it once
+     */
+    protected boolean isIdempotent() {
+        return mConnParams.requestMethod() == ConnectionParameters.RequestMethod.GET;
+    }
+
+    private long getRetryDelay(RequestPolicy policy, int attempt, HttpResponse response) {
+        int status = response.getStatusCode();
+        if (attempt >= policy.getMaxAttempts()
+                || !(isIdempotent() || status == HTTP_TOO_MANY_REQUESTS)) {
+            return -1;
+        }
+        long retryAfter = RequestPolicy.parseRetryAfter(
+                response.getHeaderField(RETRY_AFTER), System.currentTimeMillis());
+        if (retryAfter > policy.getMaxRetryAfterMs()) {
+            return -1;
+        }
+        return retryAfter >= 0 ? retryAfter : policy.getBackoffMs(attempt);
+    }
+
+    private boolean fitsDeadline(long delayMs) {
+        return delayMs < mDeadline.getRemainingMs();
+    }
+
+    //The connection was never established, so the request wasn't sent.
+    private static boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof UnknownHostException
+                || e instanceof NoRouteToHostException || e instanceof SSLHandshakeException;
+    }
+
+    private synchronized void awaitRetry(long delayMs) throws IOException {
+        long until = System.nanoTime() / 1000000 + delayMs;
+        long left = delayMs;
+        try {
+            while (!mCanceled && left > 0) {
+                wait(left);
+                left = until - System.nanoTime() / 1000000;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
         if (mCanceled) {
             throw new IOException("Canceled");
         }
+    }
 
+    private HttpResponse open(OktaHttpClient client) throws Exception {
+        OktaHttpExchange exchange = client.execute(mUri, mConnParams);
+        synchronized (this) {
+            mExchange = exchange;
+        }
         boolean keepOpen = false;
         try {
-            int responseCode = client.getResponseCode();
+            if (mCanceled) {
+                throw new IOException("Canceled");
+            }
+            int responseCode = exchange.getResponseCode();
             if (responseCode == -1) {
                 throw new IOException("Invalid response code -1 no code can be discerned");
             }
 
+            HttpResponse response;
             if (!hasResponseBody(responseCode)) {
-                mResponse = new HttpResponse(responseCode, client.getHeaderFields());
+                response = new HttpResponse(responseCode, exchange.getHeaderFields());
             } else {
+                response = new HttpResponse(
+                        responseCode, exchange.getHeaderFields(),
+                        exchange.getContentLength(), exchange, mRequestType);
                 keepOpen = true;
-                mResponse = new HttpResponse(
-                        responseCode, client.getHeaderFields(),
-                        client.getContentLength(), stream, client);
             }
-            return mResponse;
+            synchronized (this) {
+                mResponse = response;
+            }
+            return response;
         } finally {
             if (!keepOpen) {
                 close();
@@ -86,14 +232,41 @@ public abstract class BaseRequest<T, U extends AuthorizationException>
     @Override
     public void cancelRequest() {
         mCanceled = true;
-        close();
+        synchronized (this) {
+            notifyAll();
+            if (mResponse != null) {
+                //The body may still be read by the request thread.
+                mResponse.abort();
+                mResponse = null;
+            } else if (mDraining != null) {
+                mDraining.abort();
+            } else if (mExchange != null) {
+                mExchange.cancel();
+            }
+        }
     }
 
     @Override
-    public synchronized void close() {
-        if (mResponse != null) {
-            mResponse.disconnect();
+    public void close() {
+        HttpResponse response;
+        OktaHttpExchange exchange;
+        synchronized (this) {
+            response = mResponse;
+            exchange = mExchange;
             mResponse = null;
+            mExchange = null;
+            mDraining = response;
+        }
+        //Drain outside the monitor so cancelRequest() is not held up by it.
+        if (response != null) {
+            response.disconnect();
+            synchronized (this) {
+                mDraining = null;
+            }
+        }
+        if (exchange != null) {
+            //Already closed by the response if it had a body.
+            exchange.close();
         }
     }
 
@@ -18,17 +18,17 @@ package com.okta.oidc.net.request;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.WorkerThread;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.HttpCacheEntry;
 import com.okta.oidc.net.HttpResponse;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.util.AuthorizationException;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
 /**
  * @hide
  */
@@ -36,6 +36,8 @@ import java.io.IOException;
 public final class ConfigurationRequest extends
         BaseRequest<ProviderConfiguration, AuthorizationException> {
     private boolean mIsOAuth2;
+    // The stored configuration to revalidate, returned renewed if it wasn't modified.
+    private ProviderConfiguration mCached;
 
     ConfigurationRequest(HttpRequestBuilder.Configuration b) {
         super();
@@ -44,10 +46,16 @@ public final class ConfigurationRequest extends
         mUri = b.mConfig.getDiscoveryUri().buildUpon()
                 .appendQueryParameter("client_id", b.mConfig.getClientId()).build();
 
-        mConnParams = new ConnectionParameters.ParameterBuilder()
+        ConnectionParameters.ParameterBuilder builder = new ConnectionParameters.ParameterBuilder()
                 .setRequestMethod(ConnectionParameters.RequestMethod.GET)
-                .setRequestType(mRequestType)
-                .create();
+                .setRequestType(mRequestType);
+        HttpCacheEntry entry = b.mProviderConfiguration == null ? null
+                : b.mProviderConfiguration.getCacheEntry();
+        if (entry != null && entry.hasValidators()) {
+            mCached = b.mProviderConfiguration;
+            entry.addValidators(builder);
+        }
+        mConnParams = builder.create();
     }
 
     @WorkerThread
@@ -58,15 +66,20 @@ public final class ConfigurationRequest extends
         HttpResponse response = null;
         try {
             response = openConnection(client);
-
-            JSONObject json = response.asJson();
-            ProviderConfiguration configuration = new Gson()
-                    .fromJson(json.toString(), ProviderConfiguration.class);
+            long now = System.currentTimeMillis();
+            if (mCached != null && response.getStatusCode() == HTTP_NOT_MODIFIED) {
+                //The cached configuration may be in use elsewhere, renew a copy of it.
+                ProviderConfiguration renewed = mCached.copy();
+                renewed.setCacheEntry(mCached.getCacheEntry().revalidated(response, now));
+                return renewed;
+            }
+            ProviderConfiguration configuration = response.decode(ProviderConfiguration.class);
             configuration.validate(mIsOAuth2);
+            configuration.setCacheEntry(HttpCacheEntry.of(response, now));
             return configuration;
         } catch (IOException ex) {
             exception = new AuthorizationException(ex.getMessage(), ex);
-        } catch (JSONException ex) {
+        } catch (JsonParseException ex) {
             exception = AuthorizationException.fromTemplate(
                     AuthorizationException.GeneralErrors.JSON_DESERIALIZATION_ERROR,
                     ex);
@@ -52,6 +52,12 @@ public class NativeAuthorizeRequest extends BaseRequest<AuthorizeResponse, Autho
         return mParameters;
     }
 
+    //The session token can only be exchanged once.
+    @Override
+    protected boolean isIdempotent() {
+        return false;
+    }
+
     @Override
     public AuthorizeResponse executeRequest(OktaHttpClient client)
             throws AuthorizationException {
@@ -24,7 +24,10 @@ import androidx.annotation.VisibleForTesting;
 
 import com.google.gson.Gson;
 import com.okta.oidc.CustomConfiguration;
+import com.okta.oidc.net.HttpCacheEntry;
 import com.okta.oidc.storage.Persistable;
+import com.okta.oidc.storage.RecordReader;
+import com.okta.oidc.storage.RecordWriter;
 
 /**
  * @hide
@@ -37,6 +40,34 @@ public class ProviderConfiguration implements Persistable {
     public static final String OAUTH2_CONFIGURATION_RESOURCE =
             "/.well-known/oauth-authorization-server";
 
+    // Record tags, never reuse a tag for another field.
+    private static final int RECORD_VERSION = 1;
+    private static final int TAG_AUTHORIZATION_ENDPOINT = 1;
+    private static final int TAG_CLAIMS_SUPPORTED = 2;
+    private static final int TAG_CODE_CHALLENGE_METHODS_SUPPORTED = 3;
+    private static final int TAG_END_SESSION_ENDPOINT = 4;
+    private static final int TAG_GRANT_TYPES_SUPPORTED = 5;
+    private static final int TAG_INTROSPECTION_ENDPOINT = 6;
+    private static final int TAG_INTROSPECTION_ENDPOINT_AUTH_METHODS_SUPPORTED = 7;
+    private static final int TAG_ISSUER = 8;
+    private static final int TAG_JWKS_URI = 9;
+    private static final int TAG_REGISTRATION_ENDPOINT = 10;
+    private static final int TAG_REQUEST_OBJECT_SIGNING_ALG_VALUES_SUPPORTED = 11;
+    private static final int TAG_REQUEST_PARAMETER_SUPPORTED = 12;
+    private static final int TAG_RESPONSE_MODES_SUPPORTED = 13;
+    private static final int TAG_RESPONSE_TYPES_SUPPORTED = 14;
+    private static final int TAG_REVOCATION_ENDPOINT = 15;
+    private static final int TAG_REVOCATION_ENDPOINT_AUTH_METHODS_SUPPORTED = 16;
+    private static final int TAG_SCOPES_SUPPORTED = 17;
+    private static final int TAG_SUBJECT_TYPES_SUPPORTED = 18;
+    private static final int TAG_TOKEN_ENDPOINT = 19;
+    private static final int TAG_TOKEN_ENDPOINT_AUTH_METHODS_SUPPORTED = 20;
+    private static final int TAG_USERINFO_ENDPOINT = 21;
+    private static final int TAG_ID_TOKEN_SIGNING_ALG_VALUES_SUPPORTED = 22;
+    private static final int TAG_CACHE_ETAG = 23;
+    private static final int TAG_CACHE_LAST_MODIFIED = 24;
+    private static final int TAG_CACHE_EXPIRES_AT = 25;
+
     public String authorization_endpoint;
 
     public String[] claims_supported;
@@ -81,6 +112,9 @@ public class ProviderConfiguration implements Persistable {
 
     public String[] id_token_signing_alg_values_supported;
 
+    // Not part of the discovery document, set from the response headers.
+    private HttpCacheEntry cache;
+
     @VisibleForTesting
     public ProviderConfiguration() {
         //NO-OP
@@ -97,6 +131,65 @@ public class ProviderConfiguration implements Persistable {
         end_session_endpoint = config.getEndSessionEndpoint();
     }
 
+    /**
+     * Copy of this configuration. The arrays are copied as well, the cache entry can't be
+     * changed and is shared.
+     *
+     * @return the copy
+     */
+    @NonNull
+    public ProviderConfiguration copy() {
+        ProviderConfiguration copy = new ProviderConfiguration();
+        copy.authorization_endpoint = authorization_endpoint;
+        copy.claims_supported = copyOf(claims_supported);
+        copy.code_challenge_methods_supported = copyOf(code_challenge_methods_supported);
+        copy.end_session_endpoint = end_session_endpoint;
+        copy.grant_types_supported = copyOf(grant_types_supported);
+        copy.introspection_endpoint = introspection_endpoint;
+        copy.introspection_endpoint_auth_methods_supported =
+                copyOf(introspection_endpoint_auth_methods_supported);
+        copy.issuer = issuer;
+        copy.jwks_uri = jwks_uri;
+        copy.registration_endpoint = registration_endpoint;
+        copy.request_object_signing_alg_values_supported =
+                copyOf(request_object_signing_alg_values_supported);
+        copy.request_parameter_supported = request_parameter_supported;
+        copy.response_modes_supported = copyOf(response_modes_supported);
+        copy.response_types_supported = copyOf(response_types_supported);
+        copy.revocation_endpoint = revocation_endpoint;
+        copy.revocation_endpoint_auth_methods_supported =
+                copyOf(revocation_endpoint_auth_methods_supported);
+        copy.scopes_supported = copyOf(scopes_supported);
+        copy.subject_types_supported = copyOf(subject_types_supported);
+        copy.token_endpoint = token_endpoint;
+        copy.token_endpoint_auth_methods_supported =
+                copyOf(token_endpoint_auth_methods_supported);
+        copy.userinfo_endpoint = userinfo_endpoint;
+        copy.id_token_signing_alg_values_supported =
+                copyOf(id_token_signing_alg_values_supported);
+        copy.cache = cache;
+        return copy;
+    }
+
+    private static String[] copyOf(String[] values) {
+        return values == null ? null : values.clone();
+    }
+
+    /**
+     * How long the configuration fetched from the discovery endpoint can be used and how to
+     * revalidate it.
+     *
+     * @return the cache entry or null if the configuration must be fetched again
+     */
+    @Nullable
+    public HttpCacheEntry getCacheEntry() {
+        return cache;
+    }
+
+    public void setCacheEntry(@Nullable HttpCacheEntry cacheEntry) {
+        cache = cacheEntry;
+    }
+
     void validate(boolean isOAuth2) throws IllegalArgumentException {
         if (TextUtils.isEmpty(authorization_endpoint)) {
             throw new IllegalArgumentException("authorization_endpoint is missing");
@@ -146,6 +239,114 @@ public class ProviderConfiguration implements Persistable {
                     return null;
                 }
 
+                @Override
+                public ProviderConfiguration restore(@Nullable byte[] data) {
+                    RecordReader reader = RecordReader.of(data);
+                    if (reader == null) {
+                        return Persistable.Restore.super.restore(data);
+                    }
+                    ProviderConfiguration configuration = new ProviderConfiguration();
+                    String etag = null;
+                    String lastModified = null;
+                    long expiresAt = -1;
+                    while (reader.next()) {
+                        switch (reader.getTag()) {
+                            case TAG_AUTHORIZATION_ENDPOINT:
+                                configuration.authorization_endpoint = reader.readString();
+                                break;
+                            case TAG_CLAIMS_SUPPORTED:
+                                configuration.claims_supported = reader.readStringArray();
+                                break;
+                            case TAG_CODE_CHALLENGE_METHODS_SUPPORTED:
+                                configuration.code_challenge_methods_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_END_SESSION_ENDPOINT:
+                                configuration.end_session_endpoint = reader.readString();
+                                break;
+                            case TAG_GRANT_TYPES_SUPPORTED:
+                                configuration.grant_types_supported = reader.readStringArray();
+                                break;
+                            case TAG_INTROSPECTION_ENDPOINT:
+                                configuration.introspection_endpoint = reader.readString();
+                                break;
+                            case TAG_INTROSPECTION_ENDPOINT_AUTH_METHODS_SUPPORTED:
+                                configuration.introspection_endpoint_auth_methods_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_ISSUER:
+                                configuration.issuer = reader.readString();
+                                break;
+                            case TAG_JWKS_URI:
+                                configuration.jwks_uri = reader.readString();
+                                break;
+                            case TAG_REGISTRATION_ENDPOINT:
+                                configuration.registration_endpoint = reader.readString();
+                                break;
+                            case TAG_REQUEST_OBJECT_SIGNING_ALG_VALUES_SUPPORTED:
+                                configuration.request_object_signing_alg_values_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_REQUEST_PARAMETER_SUPPORTED:
+                                configuration.request_parameter_supported = reader.readBoolean();
+                                break;
+                            case TAG_RESPONSE_MODES_SUPPORTED:
+                                configuration.response_modes_supported = reader.readStringArray();
+                                break;
+                            case TAG_RESPONSE_TYPES_SUPPORTED:
+                                configuration.response_types_supported = reader.readStringArray();
+                                break;
+                            case TAG_REVOCATION_ENDPOINT:
+                                configuration.revocation_endpoint = reader.readString();
+                                break;
+                            case TAG_REVOCATION_ENDPOINT_AUTH_METHODS_SUPPORTED:
+                                configuration.revocation_endpoint_auth_methods_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_SCOPES_SUPPORTED:
+                                configuration.scopes_supported = reader.readStringArray();
+                                break;
+                            case TAG_SUBJECT_TYPES_SUPPORTED:
+                                configuration.subject_types_supported = reader.readStringArray();
+                                break;
+                            case TAG_TOKEN_ENDPOINT:
+                                configuration.token_endpoint = reader.readString();
+                                break;
+                            case TAG_TOKEN_ENDPOINT_AUTH_METHODS_SUPPORTED:
+                                configuration.token_endpoint_auth_methods_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_USERINFO_ENDPOINT:
+                                configuration.userinfo_endpoint = reader.readString();
+                                break;
+                            case TAG_ID_TOKEN_SIGNING_ALG_VALUES_SUPPORTED:
+                                configuration.id_token_signing_alg_values_supported =
+                                        reader.readStringArray();
+                                break;
+                            case TAG_CACHE_ETAG:
+                                etag = reader.readString();
+                                break;
+                            case TAG_CACHE_LAST_MODIFIED:
+                                lastModified = reader.readString();
+                                break;
+                            case TAG_CACHE_EXPIRES_AT:
+                                expiresAt = reader.readLong();
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    if (expiresAt >= 0) {
+                        configuration.cache = new HttpCacheEntry(etag, lastModified, expiresAt);
+                    }
+                    return configuration;
+                }
+
+                @NonNull
+                @Override
+                public ProviderConfiguration copy(@NonNull ProviderConfiguration value) {
+                    return value.copy();
+                }
             };
 
     @NonNull
@@ -158,4 +359,43 @@ public class ProviderConfiguration implements Persistable {
     public String persist() {
         return new Gson().toJson(this);
     }
+
+    @Override
+    public byte[] persistBytes() {
+        RecordWriter writer = new RecordWriter(RECORD_VERSION)
+                .putString(TAG_AUTHORIZATION_ENDPOINT, authorization_endpoint)
+                .putStringArray(TAG_CLAIMS_SUPPORTED, claims_supported)
+                .putStringArray(TAG_CODE_CHALLENGE_METHODS_SUPPORTED,
+                        code_challenge_methods_supported)
+                .putString(TAG_END_SESSION_ENDPOINT, end_session_endpoint)
+                .putStringArray(TAG_GRANT_TYPES_SUPPORTED, grant_types_supported)
+                .putString(TAG_INTROSPECTION_ENDPOINT, introspection_endpoint)
+                .putStringArray(TAG_INTROSPECTION_ENDPOINT_AUTH_METHODS_SUPPORTED,
+                        introspection_endpoint_auth_methods_supported)
+                .putString(TAG_ISSUER, issuer)
+                .putString(TAG_JWKS_URI, jwks_uri)
+                .putString(TAG_REGISTRATION_ENDPOINT, registration_endpoint)
+                .putStringArray(TAG_REQUEST_OBJECT_SIGNING_ALG_VALUES_SUPPORTED,
+                        request_object_signing_alg_values_supported)
+                .putBoolean(TAG_REQUEST_PARAMETER_SUPPORTED, request_parameter_supported)
+                .putStringArray(TAG_RESPONSE_MODES_SUPPORTED, response_modes_supported)
+                .putStringArray(TAG_RESPONSE_TYPES_SUPPORTED, response_types_supported)
+                .putString(TAG_REVOCATION_ENDPOINT, revocation_endpoint)
+                .putStringArray(TAG_REVOCATION_ENDPOINT_AUTH_METHODS_SUPPORTED,
+                        revocation_endpoint_auth_methods_supported)
+                .putStringArray(TAG_SCOPES_SUPPORTED, scopes_supported)
+                .putStringArray(TAG_SUBJECT_TYPES_SUPPORTED, subject_types_supported)
+                .putString(TAG_TOKEN_ENDPOINT, token_endpoint)
+                .putStringArray(TAG_TOKEN_ENDPOINT_AUTH_METHODS_SUPPORTED,
+                        token_endpoint_auth_methods_supported)
+                .putString(TAG_USERINFO_ENDPOINT, userinfo_endpoint)
+                .putStringArray(TAG_ID_TOKEN_SIGNING_ALG_VALUES_SUPPORTED,
+                        id_token_signing_alg_values_supported);
+        if (cache != null) {
+            writer.putString(TAG_CACHE_ETAG, cache.getETag())
+                    .putString(TAG_CACHE_LAST_MODIFIED, cache.getLastModified())
+                    .putLong(TAG_CACHE_EXPIRES_AT, cache.getExpiresAt());
+        }
+        return writer.toByteArray();
+    }
 }
@@ -46,6 +46,12 @@ public class RevokeTokenRequest extends BaseRequest<Boolean, AuthorizationExcept
                 .create();
     }
 
+    //Revoking a revoked token succeeds, see RFC 7009.
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
+
     @Override
     public Boolean executeRequest(OktaHttpClient client) throws AuthorizationException {
         AuthorizationException exception = null;
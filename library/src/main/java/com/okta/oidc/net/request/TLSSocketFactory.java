@@ -15,14 +15,18 @@
 
 package com.okta.oidc.net.request;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.okta.oidc.net.ConnectionMetrics;
+
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -31,11 +35,19 @@ import javax.net.ssl.SSLSocketFactory;
  * @hide
  *
  * SSLSocketFactory which wraps default SSLSocketFactory and enable TLS v1.1, v1.2.
+ * <p>
+ * A wrapped factory can also leave the protocols as they are and only report the sockets it
+ * creates and their handshakes to {@link ConnectionMetrics}. Connections are only pooled and TLS
+ * sessions only resumed when the same factory is used, so it should be shared.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class TLSSocketFactory extends SSLSocketFactory {
+    private static final String[] TLS_V1_2 = {"TLSv1.1", "TLSv1.2"};
     private SSLSocketFactory mInternalSslSocketFactory;
-    private String[] mProtocolsToEnable = {"TLSv1.1", "TLSv1.2"};
+    private String[] mProtocolsToEnable;
+    private ConnectionMetrics mMetrics;
+    private final HandshakeCompletedListener mHandshakeListener =
+            event -> mMetrics.onHandshake();
 
     /**
      * Constructs an TlsEnableSocketFactory object.
@@ -44,9 +56,43 @@ public class TLSSocketFactory extends SSLSocketFactory {
      * @throws NoSuchAlgorithmException when get SSLContext
      */
     public TLSSocketFactory() throws KeyManagementException, NoSuchAlgorithmException {
+        this(null);
+    }
+
+    /**
+     * Constructs an TlsEnableSocketFactory object with its own SSLContext.
+     *
+     * @param metrics the metrics to report connections to
+     * @throws KeyManagementException   if init operation fails
+     * @throws NoSuchAlgorithmException when get SSLContext
+     */
+    public TLSSocketFactory(@Nullable ConnectionMetrics metrics)
+            throws KeyManagementException, NoSuchAlgorithmException {
         SSLContext context = SSLContext.getInstance("TLS");
         context.init(null, null, null);
         mInternalSslSocketFactory = context.getSocketFactory();
+        mProtocolsToEnable = TLS_V1_2;
+        mMetrics = metrics;
+    }
+
+    /**
+     * Wraps a factory without changing the enabled protocols.
+     *
+     * @param factory the factory to wrap
+     * @param metrics the metrics to report connections to
+     */
+    public TLSSocketFactory(SSLSocketFactory factory, @Nullable ConnectionMetrics metrics) {
+        mInternalSslSocketFactory = factory;
+        mMetrics = metrics;
+    }
+
+    /**
+     * The wrapped factory.
+     *
+     * @return the factory creating the sockets
+     */
+    public SSLSocketFactory getWrappedFactory() {
+        return mInternalSslSocketFactory;
     }
 
     @Override
@@ -97,7 +143,14 @@ public class TLSSocketFactory extends SSLSocketFactory {
 
     private Socket enableTlsOnSocket(Socket socket) {
         if (socket != null && (socket instanceof SSLSocket)) {
-            ((SSLSocket) socket).setEnabledProtocols(mProtocolsToEnable);
+            SSLSocket sslSocket = (SSLSocket) socket;
+            if (mProtocolsToEnable != null) {
+                sslSocket.setEnabledProtocols(mProtocolsToEnable);
+            }
+            if (mMetrics != null) {
+                mMetrics.onConnection();
+                sslSocket.addHandshakeCompletedListener(mHandshakeListener);
+            }
         }
         return socket;
     }
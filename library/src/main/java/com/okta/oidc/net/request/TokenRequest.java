@@ -22,7 +22,11 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
 import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.OktaIdToken;
 import com.okta.oidc.net.ConnectionParameters;
@@ -32,9 +36,6 @@ import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.UriUtil;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -46,6 +47,7 @@ import java.util.Map;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class TokenRequest extends BaseRequest<TokenResponse, AuthorizationException> {
     private static final String TAG = TokenRequest.class.getSimpleName();
+    private static final Gson GSON = new Gson();
 
     private String code;
     private String client_assertion;
@@ -128,24 +130,23 @@ public class TokenRequest extends BaseRequest<TokenResponse, AuthorizationExcept
         TokenResponse tokenResponse;
         try {
             response = openConnection(client);
-            JSONObject json = response.asJson();
+            // A tree so errors sent with a success status can be checked before binding.
+            JsonObject json = response.decode(JsonObject.class);
             if (json.has(AuthorizationException.PARAM_ERROR)) {
-                try {
-                    final String error = json.getString(AuthorizationException.PARAM_ERROR);
-                    throw AuthorizationException.fromOAuthTemplate(
-                            AuthorizationException.TokenRequestErrors.byString(error),
-                            error,
-                            json.optString(AuthorizationException.PARAM_ERROR_DESCRIPTION,
-                                    null),
-                            UriUtil.parseUriIfAvailable(
-                                    json.optString(AuthorizationException.PARAM_ERROR_URI)));
-                } catch (JSONException jsonEx) {
+                final String error = getString(json, AuthorizationException.PARAM_ERROR, null);
+                if (error == null) {
                     throw AuthorizationException.fromTemplate(
                             AuthorizationException.GeneralErrors.JSON_DESERIALIZATION_ERROR,
-                            jsonEx);
+                            new JsonSyntaxException("error is not a string"));
                 }
+                throw AuthorizationException.fromOAuthTemplate(
+                        AuthorizationException.TokenRequestErrors.byString(error),
+                        error,
+                        getString(json, AuthorizationException.PARAM_ERROR_DESCRIPTION, null),
+                        UriUtil.parseUriIfAvailable(
+                                getString(json, AuthorizationException.PARAM_ERROR_URI, "")));
             }
-            tokenResponse = new Gson().fromJson(json.toString(), TokenResponse.class);
+            tokenResponse = GSON.fromJson(json, TokenResponse.class);
             tokenResponse.setCreationTime(System.currentTimeMillis());
             if (tokenResponse.getIdToken() != null) {
                 OktaIdToken idToken;
@@ -162,7 +163,7 @@ public class TokenRequest extends BaseRequest<TokenResponse, AuthorizationExcept
             return tokenResponse;
         } catch (IOException ex) {
             throw new AuthorizationException(ex.getMessage(), ex);
-        } catch (JSONException ex) {
+        } catch (JsonParseException ex) {
             throw AuthorizationException.fromTemplate(
                     AuthorizationException.GeneralErrors.JSON_DESERIALIZATION_ERROR, ex);
         } catch (AuthorizationException ae) {
@@ -176,4 +177,10 @@ public class TokenRequest extends BaseRequest<TokenResponse, AuthorizationExcept
             }
         }
     }
+
+    @Nullable
+    private static String getString(JsonObject json, String name, @Nullable String fallback) {
+        JsonElement element = json.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : fallback;
+    }
 }
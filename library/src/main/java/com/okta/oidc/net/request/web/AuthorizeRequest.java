@@ -28,6 +28,8 @@ import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.net.params.ResponseType;
 import com.okta.oidc.net.request.NativeAuthorizeRequest;
 import com.okta.oidc.net.request.ProviderConfiguration;
+import com.okta.oidc.storage.RecordReader;
+import com.okta.oidc.storage.RecordWriter;
 import com.okta.oidc.util.AsciiStringListUtil;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.CodeVerifierUtil;
@@ -67,6 +69,10 @@ public class AuthorizeRequest extends WebRequest {
     public static final String STATE = "state";
     private static final String CODE_VERIFIER = "code_verifier";
 
+    //record tags
+    private static final int TAG_QUERY_PARAMS = 2;
+    private static final int TAG_PAYLOAD_PARAMS = 3;
+
     public AuthorizeRequest(Parameters parameters) {
         mParameters = parameters;
     }
@@ -101,10 +107,47 @@ public class AuthorizeRequest extends WebRequest {
 
     @Override
     public String persist() {
-        mParameters.request_type = "authorize";
+        mParameters.request_type = TYPE_AUTHORIZE;
         return new Gson().toJson(mParameters);
     }
 
+    @Override
+    public byte[] persistBytes() {
+        return new RecordWriter(RECORD_VERSION)
+                .putString(TAG_REQUEST_TYPE, TYPE_AUTHORIZE)
+                .putStringMap(TAG_QUERY_PARAMS, mParameters.queryParams)
+                .putStringMap(TAG_PAYLOAD_PARAMS, mParameters.mPayloadParams)
+                .toByteArray();
+    }
+
+    static AuthorizeRequest restore(RecordReader reader) {
+        Parameters parameters = new Parameters();
+        parameters.request_type = TYPE_AUTHORIZE;
+        while (reader.next()) {
+            switch (reader.getTag()) {
+                case TAG_QUERY_PARAMS:
+                    parameters.queryParams = reader.readStringMap();
+                    break;
+                case TAG_PAYLOAD_PARAMS:
+                    parameters.mPayloadParams = reader.readStringMap();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new AuthorizeRequest(parameters);
+    }
+
+    /**
+     * Copy of this request with its own parameters.
+     *
+     * @return the copy
+     */
+    @NonNull
+    AuthorizeRequest copy() {
+        return new AuthorizeRequest(mParameters.copy());
+    }
+
     public static class Parameters {
         Parameters() {
             //NO-OP
@@ -114,6 +157,14 @@ public class AuthorizeRequest extends WebRequest {
         Map<String, String> queryParams = new HashMap<>();
         Map<String, String> mPayloadParams;
 
+        Parameters copy() {
+            Parameters copy = new Parameters();
+            copy.request_type = request_type;
+            copy.queryParams = queryParams == null ? null : new HashMap<>(queryParams);
+            copy.mPayloadParams = mPayloadParams == null ? null : new HashMap<>(mPayloadParams);
+            return copy;
+        }
+
         public Uri toUri() {
             Uri.Builder uriBuilder = Uri.parse(queryParams.get(AUTHORIZE_ENDPOINT))
                     .buildUpon();
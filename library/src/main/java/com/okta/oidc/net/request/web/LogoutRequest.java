@@ -26,6 +26,8 @@ import com.google.gson.Gson;
 import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.response.TokenResponse;
+import com.okta.oidc.storage.RecordReader;
+import com.okta.oidc.storage.RecordWriter;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.CodeVerifierUtil;
 
@@ -35,6 +37,12 @@ import com.okta.oidc.util.CodeVerifierUtil;
 //https://developer.okta.com/docs/api/resources/oidc#logout
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class LogoutRequest extends WebRequest {
+    //record tags
+    private static final int TAG_END_SESSION_ENDPOINT = 2;
+    private static final int TAG_ID_TOKEN_HINT = 3;
+    private static final int TAG_POST_LOGOUT_REDIRECT_URI = 4;
+    private static final int TAG_STATE = 5;
+
     private Parameters mParameters;
 
     LogoutRequest(Parameters parameters) {
@@ -65,6 +73,50 @@ public class LogoutRequest extends WebRequest {
         return new Gson().toJson(mParameters);
     }
 
+    @Override
+    public byte[] persistBytes() {
+        return new RecordWriter(RECORD_VERSION)
+                .putString(TAG_REQUEST_TYPE, TYPE_LOGOUT)
+                .putString(TAG_END_SESSION_ENDPOINT, mParameters.end_session_endpoint)
+                .putString(TAG_ID_TOKEN_HINT, mParameters.id_token_hint)
+                .putString(TAG_POST_LOGOUT_REDIRECT_URI, mParameters.post_logout_redirect_uri)
+                .putString(TAG_STATE, mParameters.state)
+                .toByteArray();
+    }
+
+    static LogoutRequest restore(RecordReader reader) {
+        Parameters parameters = new Parameters();
+        while (reader.next()) {
+            switch (reader.getTag()) {
+                case TAG_END_SESSION_ENDPOINT:
+                    parameters.end_session_endpoint = reader.readString();
+                    break;
+                case TAG_ID_TOKEN_HINT:
+                    parameters.id_token_hint = reader.readString();
+                    break;
+                case TAG_POST_LOGOUT_REDIRECT_URI:
+                    parameters.post_logout_redirect_uri = reader.readString();
+                    break;
+                case TAG_STATE:
+                    parameters.state = reader.readString();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new LogoutRequest(parameters);
+    }
+
+    /**
+     * Copy of this request with its own parameters.
+     *
+     * @return the copy
+     */
+    @NonNull
+    LogoutRequest copy() {
+        return new LogoutRequest(mParameters == null ? null : mParameters.copy());
+    }
+
     static class Parameters {
         Parameters() {
             //NO-OP
@@ -75,6 +127,15 @@ public class LogoutRequest extends WebRequest {
         String post_logout_redirect_uri; //required
         String state;
 
+        Parameters copy() {
+            Parameters copy = new Parameters();
+            copy.end_session_endpoint = end_session_endpoint;
+            copy.id_token_hint = id_token_hint;
+            copy.post_logout_redirect_uri = post_logout_redirect_uri;
+            copy.state = state;
+            return copy;
+        }
+
         Uri toUri() {
             Uri.Builder uriBuilder = Uri.parse(end_session_endpoint).buildUpon()
                     .appendQueryParameter("id_token_hint", id_token_hint);
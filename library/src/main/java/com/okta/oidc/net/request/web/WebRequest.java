@@ -23,12 +23,19 @@ import androidx.annotation.RestrictTo;
 
 import com.google.gson.Gson;
 import com.okta.oidc.storage.Persistable;
+import com.okta.oidc.storage.RecordReader;
 
 /**
  * @hide
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public abstract class WebRequest implements Persistable {
+    // Every record starts with the request type, the remaining tags belong to the subclass.
+    static final int RECORD_VERSION = 1;
+    static final int TAG_REQUEST_TYPE = 1;
+    static final String TYPE_AUTHORIZE = "authorize";
+    static final String TYPE_LOGOUT = "logout";
+
     @NonNull
     public abstract Uri toUri();
 
@@ -57,5 +64,35 @@ public abstract class WebRequest implements Persistable {
             }
             return null;
         }
+
+        @Override
+        public WebRequest restore(@Nullable byte[] data) {
+            RecordReader reader = RecordReader.of(data);
+            if (reader == null) {
+                return Persistable.Restore.super.restore(data);
+            }
+            if (!reader.next() || reader.getTag() != TAG_REQUEST_TYPE) {
+                return null;
+            }
+            String type = reader.readString();
+            if (TYPE_AUTHORIZE.equals(type)) {
+                return AuthorizeRequest.restore(reader);
+            } else if (TYPE_LOGOUT.equals(type)) {
+                return LogoutRequest.restore(reader);
+            }
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public WebRequest copy(@NonNull WebRequest value) {
+            //Parameters.toUri() and persist() change the parameters, so don't share them.
+            if (value instanceof AuthorizeRequest) {
+                return ((AuthorizeRequest) value).copy();
+            } else if (value instanceof LogoutRequest) {
+                return ((LogoutRequest) value).copy();
+            }
+            return value;
+        }
     };
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.response;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.okta.oidc.net.HttpResponse;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The response of an authorized request with its body still unread. The body is read from the
+ * connection as the stream is consumed, so large responses can be processed with bounded
+ * memory. The response must be closed after use, which releases the connection.
+ */
+public final class AuthorizedResponse implements Closeable {
+    private final HttpResponse mResponse;
+    @Nullable
+    private final Runnable mOnClose;
+
+    /**
+     * @hide
+     *
+     * @param response the response
+     * @param onClose  called when the response is closed, null if the caller releases it
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public AuthorizedResponse(@NonNull HttpResponse response, @Nullable Runnable onClose) {
+        mResponse = response;
+        mOnClose = onClose;
+    }
+
+    /**
+     * The HTTP status code.
+     *
+     * @return the status code.
+     */
+    public int getStatusCode() {
+        return mResponse.getStatusCode();
+    }
+
+    /**
+     * The response headers.
+     *
+     * @return the headers.
+     */
+    public Map<String, List<String>> getHeaders() {
+        return mResponse.getHeaders();
+    }
+
+    /**
+     * The value of a response header.
+     *
+     * @param name the header name.
+     * @return the last value of the header or null if it is not present.
+     */
+    @Nullable
+    public String getHeader(@NonNull String name) {
+        return mResponse.getHeaderField(name);
+    }
+
+    /**
+     * The length of the body.
+     *
+     * @return the content length or -1 if it is unknown.
+     */
+    public int getContentLength() {
+        return mResponse.getContentLength();
+    }
+
+    /**
+     * The body of the response. It can only be read once.
+     *
+     * @return the body or null if the response has none.
+     */
+    @Nullable
+    public InputStream getBody() {
+        return mResponse.getContent();
+    }
+
+    /**
+     * Release the response. Unread data of the body is discarded.
+     */
+    @Override
+    public void close() {
+        if (mOnClose != null) {
+            mOnClose.run();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.response;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Decodes the successful response of an authorized request into a type chosen by the caller,
+ * e.g. with a streaming JSON reader. The response is closed after the decoder returns.
+ *
+ * @param <T> the decoded type
+ */
+public interface ResponseDecoder<T> {
+    /**
+     * Decode the response.
+     *
+     * @param response the response with the unread body
+     * @return the decoded value
+     * @throws IOException if the body can't be read or decoded
+     */
+    T decode(@NonNull AuthorizedResponse response) throws IOException;
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.response;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * @hide Non-secret facts about the persisted {@link TokenResponse}. It is stored unencrypted
+ * next to the token so authentication status and expiry can be checked without decrypting.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class TokenMetadata {
+    public static final int FORMAT_VERSION = 1;
+
+    private int version;
+    private long expiresAt;
+    private int scopesHash;
+
+    private TokenMetadata() {
+        //NO-OP
+    }
+
+    @NonNull
+    static TokenMetadata of(@NonNull TokenResponse response) {
+        TokenMetadata metadata = new TokenMetadata();
+        metadata.version = FORMAT_VERSION;
+        try {
+            metadata.expiresAt = response.getExpiresAt();
+        } catch (NumberFormatException e) {
+            metadata.expiresAt = -1;
+        }
+        String scope = response.getScope();
+        metadata.scopesHash = scope == null ? 0 : scope.hashCode();
+        return metadata;
+    }
+
+    /**
+     * Parses persisted metadata.
+     *
+     * @param data the persisted metadata
+     * @return the metadata, or null if missing, corrupt or written in an unknown format.
+     */
+    @Nullable
+    public static TokenMetadata parse(@Nullable String data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            TokenMetadata metadata = new Gson().fromJson(data, TokenMetadata.class);
+            if (metadata == null || metadata.version != FORMAT_VERSION) {
+                return null;
+            }
+            return metadata;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * The access token expiration in milliseconds since epoch, or a negative value if unknown.
+     *
+     * @return the expiration time
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public int getScopesHash() {
+        return scopesHash;
+    }
+
+    public boolean isExpired() {
+        return expiresAt < 0 || System.currentTimeMillis() > expiresAt;
+    }
+
+    String persist() {
+        return new Gson().toJson(this);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.response;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.okta.oidc.storage.OktaRepository;
+import com.okta.oidc.storage.OktaRepository.EncryptionException;
+import com.okta.oidc.storage.Persistable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @hide One {@link TokenResponse.Part} of the persisted token response. Every part is encrypted
+ * and stored on its own so reading the access token doesn't decrypt the ID and refresh tokens.
+ * Responses persisted as a single {@link TokenResponse} record are split on first read.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class TokenRecord implements Persistable {
+    private static final Map<TokenResponse.Part, Persistable.Restore<TokenRecord>> RESTORES =
+            new EnumMap<>(TokenResponse.Part.class);
+
+    static {
+        for (TokenResponse.Part part : TokenResponse.Part.values()) {
+            RESTORES.put(part, new PartRestore(part));
+        }
+    }
+
+    private final TokenResponse.Part mPart;
+    private final TokenResponse mResponse;
+
+    private TokenRecord(TokenResponse.Part part, TokenResponse response) {
+        mPart = part;
+        mResponse = response;
+    }
+
+    @NonNull
+    public static Persistable.Restore<TokenRecord> restoreOf(@NonNull TokenResponse.Part part) {
+        return RESTORES.get(part);
+    }
+
+    /**
+     * Adds the records of a token response to a transaction. Parts the response has no value
+     * for and the single record layout are deleted.
+     *
+     * @param transaction   the transaction
+     * @param tokenResponse the token response
+     * @return the transaction
+     * @throws EncryptionException if a record can't be encrypted
+     */
+    public static OktaRepository.Transaction save(OktaRepository.Transaction transaction,
+                                                  TokenResponse tokenResponse)
+            throws EncryptionException {
+        transaction.delete(TokenResponse.RESTORE.getKey());
+        for (TokenResponse.Part part : TokenResponse.Part.values()) {
+            TokenResponse value = tokenResponse.part(part);
+            if (value == null) {
+                transaction.delete(restoreOf(part).getKey());
+            } else {
+                transaction.save(new TokenRecord(part, value));
+            }
+        }
+        return transaction.saveMetadata(tokenResponse);
+    }
+
+    /**
+     * Adds the deletion of all token records to a transaction.
+     *
+     * @param transaction the transaction
+     * @return the transaction
+     */
+    public static OktaRepository.Transaction delete(OktaRepository.Transaction transaction) {
+        transaction.delete(TokenResponse.RESTORE.getKey());
+        for (TokenResponse.Part part : TokenResponse.Part.values()) {
+            transaction.delete(restoreOf(part).getKey());
+        }
+        return transaction;
+    }
+
+    /**
+     * Reads the persisted token response with only the requested tokens. All parts are read
+     * without a save in between, so they always come from the same token response.
+     *
+     * @param repository the repository
+     * @param parts      the tokens to read, {@link TokenResponse.Part#INFO} is always read
+     * @return the token response or null if there is none
+     * @throws EncryptionException if a record can't be decrypted
+     */
+    @Nullable
+    public static TokenResponse read(OktaRepository repository, TokenResponse.Part... parts)
+            throws EncryptionException {
+        List<Persistable.Restore<TokenRecord>> restores = new ArrayList<>(parts.length + 1);
+        restores.add(restoreOf(TokenResponse.Part.INFO));
+        for (TokenResponse.Part part : parts) {
+            if (part != TokenResponse.Part.INFO) {
+                restores.add(restoreOf(part));
+            }
+        }
+        List<TokenRecord> records = repository.getAll(restores);
+        TokenRecord info = records.get(0);
+        if (info == null) {
+            return migrate(repository);
+        }
+        TokenResponse[] values = new TokenResponse[records.size() - 1];
+        for (int i = 1; i < records.size(); i++) {
+            TokenRecord record = records.get(i);
+            values[i - 1] = record == null ? null : record.mResponse;
+        }
+        return TokenResponse.combine(info.mResponse, values);
+    }
+
+    /**
+     * Checks for persisted tokens without decrypting anything.
+     *
+     * @param repository the repository
+     * @return true if there is a token response in either layout
+     */
+    public static boolean contains(OktaRepository repository) {
+        return repository.contains(restoreOf(TokenResponse.Part.INFO))
+                || repository.contains(TokenResponse.RESTORE);
+    }
+
+    @Nullable
+    private static TokenResponse migrate(OktaRepository repository) throws EncryptionException {
+        TokenResponse legacy = repository.get(TokenResponse.RESTORE);
+        if (legacy != null) {
+            // Skipped if a new token was saved since the read, the old one must not win.
+            save(repository.beginTransaction(), legacy)
+                    .onlyIfPresent(TokenResponse.RESTORE.getKey())
+                    .commit();
+        }
+        return legacy;
+    }
+
+    @NonNull
+    @Override
+    public String getKey() {
+        return restoreOf(mPart).getKey();
+    }
+
+    @Override
+    public String persist() {
+        return mResponse.persist();
+    }
+
+    @Override
+    public byte[] persistBytes() {
+        return mResponse.persistBytes();
+    }
+
+    private static final class PartRestore implements Persistable.Restore<TokenRecord> {
+        private final TokenResponse.Part mPart;
+        private final String mKey;
+
+        PartRestore(TokenResponse.Part part) {
+            mPart = part;
+            mKey = TokenResponse.RESTORE.getKey() + "." + part.name().toLowerCase(Locale.US);
+        }
+
+        @NonNull
+        @Override
+        public String getKey() {
+            return mKey;
+        }
+
+        @Override
+        public TokenRecord restore(@Nullable String data) {
+            TokenResponse response = TokenResponse.RESTORE.restore(data);
+            return response == null ? null : new TokenRecord(mPart, response);
+        }
+
+        @Override
+        public TokenRecord restore(@Nullable byte[] data) {
+            TokenResponse response = TokenResponse.RESTORE.restore(data);
+            return response == null ? null : new TokenRecord(mPart, response);
+        }
+    }
+}
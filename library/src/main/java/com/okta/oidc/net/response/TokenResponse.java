@@ -21,6 +21,8 @@ import androidx.annotation.RestrictTo;
 
 import com.google.gson.Gson;
 import com.okta.oidc.storage.Persistable;
+import com.okta.oidc.storage.RecordReader;
+import com.okta.oidc.storage.RecordWriter;
 
 /**
  * @hide
@@ -29,6 +31,15 @@ import com.okta.oidc.storage.Persistable;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class TokenResponse implements Persistable {
     private static final int THOUSAND = 1000;
+    // Record tags, never reuse a tag for another field.
+    private static final int RECORD_VERSION = 1;
+    private static final int TAG_ACCESS_TOKEN = 1;
+    private static final int TAG_TOKEN_TYPE = 2;
+    private static final int TAG_EXPIRES_IN = 3;
+    private static final int TAG_SCOPE = 4;
+    private static final int TAG_REFRESH_TOKEN = 5;
+    private static final int TAG_ID_TOKEN = 6;
+    private static final int TAG_EXPIRES_AT = 7;
     private String access_token;
     private String token_type;
     private String expires_in;
@@ -69,6 +80,88 @@ public class TokenResponse implements Persistable {
         //NO-OP
     }
 
+    /**
+     * Parts of a token response that are persisted as separate records, see {@link TokenRecord}.
+     */
+    public enum Part {
+        //token type, expiration and scope.
+        INFO,
+        ACCESS_TOKEN,
+        ID_TOKEN,
+        REFRESH_TOKEN
+    }
+
+    /**
+     * Copy of this response with only the fields of one part.
+     *
+     * @param part the part
+     * @return the copy or null if the response has no value for the part.
+     */
+    @Nullable
+    TokenResponse part(@NonNull Part part) {
+        TokenResponse copy = new TokenResponse();
+        switch (part) {
+            case INFO:
+                copy.token_type = token_type;
+                copy.expires_in = expires_in;
+                copy.scope = scope;
+                copy.expiresAt = expiresAt;
+                return copy;
+            case ACCESS_TOKEN:
+                copy.access_token = access_token;
+                return access_token == null ? null : copy;
+            case ID_TOKEN:
+                copy.id_token = id_token;
+                return id_token == null ? null : copy;
+            case REFRESH_TOKEN:
+                copy.refresh_token = refresh_token;
+                return refresh_token == null ? null : copy;
+            default:
+                throw new IllegalArgumentException("Unknown part " + part);
+        }
+    }
+
+    /**
+     * Copy of this response.
+     *
+     * @return the copy
+     */
+    @NonNull
+    TokenResponse copy() {
+        TokenResponse copy = part(Part.INFO);
+        copy.access_token = access_token;
+        copy.refresh_token = refresh_token;
+        copy.id_token = id_token;
+        return copy;
+    }
+
+    /**
+     * Combines parts created by {@link #part(Part)} into one response.
+     *
+     * @param info  the {@link Part#INFO} part
+     * @param parts other parts, null entries are ignored
+     * @return a new response
+     */
+    @NonNull
+    static TokenResponse combine(@NonNull TokenResponse info, TokenResponse... parts) {
+        TokenResponse response = info.part(Part.INFO);
+        for (TokenResponse part : parts) {
+            if (part == null) {
+                continue;
+            }
+            if (part.access_token != null) {
+                response.access_token = part.access_token;
+            }
+            if (part.id_token != null) {
+                response.id_token = part.id_token;
+            }
+            if (part.refresh_token != null) {
+                response.refresh_token = part.refresh_token;
+            }
+        }
+        return response;
+    }
+
     //only called from token request
     public void setCreationTime(long creationTime) {
         if (expiresAt < 0) {
@@ -78,7 +171,7 @@ public class TokenResponse implements Persistable {
 
     public long getExpiresAt() {
         if (expiresAt > 0) {
-            expiresAt += Integer.parseInt(expires_in) * THOUSAND;
+            return expiresAt + Integer.parseInt(expires_in) * THOUSAND;
         }
         return expiresAt;
     }
@@ -101,6 +194,48 @@ public class TokenResponse implements Persistable {
                     return null;
                 }
 
+                @Override
+                public TokenResponse restore(@Nullable byte[] data) {
+                    RecordReader reader = RecordReader.of(data);
+                    if (reader == null) {
+                        return Persistable.Restore.super.restore(data);
+                    }
+                    TokenResponse response = new TokenResponse();
+                    while (reader.next()) {
+                        switch (reader.getTag()) {
+                            case TAG_ACCESS_TOKEN:
+                                response.access_token = reader.readString();
+                                break;
+                            case TAG_TOKEN_TYPE:
+                                response.token_type = reader.readString();
+                                break;
+                            case TAG_EXPIRES_IN:
+                                response.expires_in = reader.readString();
+                                break;
+                            case TAG_SCOPE:
+                                response.scope = reader.readString();
+                                break;
+                            case TAG_REFRESH_TOKEN:
+                                response.refresh_token = reader.readString();
+                                break;
+                            case TAG_ID_TOKEN:
+                                response.id_token = reader.readString();
+                                break;
+                            case TAG_EXPIRES_AT:
+                                response.expiresAt = reader.readLong();
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    return response;
+                }
+
+                @NonNull
+                @Override
+                public TokenResponse copy(@NonNull TokenResponse value) {
+                    return value.copy();
+                }
             };
 
     @NonNull
@@ -113,4 +248,22 @@ public class TokenResponse implements Persistable {
     public String persist() {
         return new Gson().toJson(this);
     }
+
+    @Override
+    public byte[] persistBytes() {
+        return new RecordWriter(RECORD_VERSION)
+                .putString(TAG_ACCESS_TOKEN, access_token)
+                .putString(TAG_TOKEN_TYPE, token_type)
+                .putString(TAG_EXPIRES_IN, expires_in)
+                .putString(TAG_SCOPE, scope)
+                .putString(TAG_REFRESH_TOKEN, refresh_token)
+                .putString(TAG_ID_TOKEN, id_token)
+                .putLong(TAG_EXPIRES_AT, expiresAt)
+                .toByteArray();
+    }
+
+    @Override
+    public String persistMetadata() {
+        return TokenMetadata.of(this).persist();
+    }
 }
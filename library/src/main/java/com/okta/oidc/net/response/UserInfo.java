@@ -16,12 +16,16 @@
 package com.okta.oidc.net.response;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,8 +36,13 @@ import java.util.Map;
  * User info properties</a>
  */
 public class UserInfo {
+    private static final Gson GSON = new Gson();
+    private static final Type MAP_TYPE = new TypeToken<HashMap<String, Object>>() {
+    }.getType();
     private Map<String, Object> map;
     private JSONObject raw;
+    // The decoded response, raw is created from it when requested.
+    private JsonObject json;
 
     /**
      * Instantiates a new User info with a raw JSONObject.
@@ -45,13 +54,26 @@ public class UserInfo {
         if (raw == null) {
             this.map = new HashMap<>();
         } else {
-            this.map = new Gson().fromJson(
-                    raw.toString(), new TypeToken<HashMap<String, Object>>() {
-                    }.getType()
-            );
+            this.map = GSON.fromJson(raw.toString(), MAP_TYPE);
         }
     }
 
+    private UserInfo(JsonObject json) {
+        this.json = json;
+        this.map = GSON.fromJson(json, MAP_TYPE);
+    }
+
+    /**
+     * @hide Creates the user info from the decoded response without serializing it again.
+     *
+     * @param json the response
+     * @return the user info
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static UserInfo fromJson(@NonNull JsonObject json) {
+        return new UserInfo(json);
+    }
+
     /**
      * Get the value based on the key parameter.
      *
@@ -67,13 +89,20 @@ public class UserInfo {
      *
      * @return the JSONObject
      */
-    public JSONObject getRaw() {
+    public synchronized JSONObject getRaw() {
+        if (raw == null && json != null) {
+            try {
+                raw = new JSONObject(json.toString());
+            } catch (JSONException ex) {
+                throw new IllegalStateException("Decoded user info is not a JSON object", ex);
+            }
+        }
         return raw;
     }
 
     @NonNull
     @Override
     public String toString() {
-        return this.raw.toString();
+        return getRaw().toString();
     }
 }
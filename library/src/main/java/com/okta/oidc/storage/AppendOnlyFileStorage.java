@@ -0,0 +1,828 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.FileObserver;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A implementation of {@link OktaStorage} backed by a single append-only file.
+ * <p>
+ * Every commit appends one CRC protected record holding all changes of the batch, so a write
+ * costs one append and one sync regardless of the size of the other records. An in-memory index
+ * maps each key to the position of its latest value in the file. It is rebuilt on startup by one
+ * sequential scan, which stops at the first torn or corrupt record and truncates it. Once most of
+ * the file is overwritten data it is compacted in the background into a new file holding only
+ * live values, which then replaces the old one.
+ * <p>
+ * Values are stored as raw bytes, so encrypted data needs no Base64 encoding.
+ * <p>
+ * In multi-process mode every access holds an exclusive lock on a companion {@code .lock} file,
+ * which also counts the writes and compactions of the file. Before each access an instance
+ * compares these counters with the ones it saw last and indexes the records appended by other
+ * processes, or reopens the file if it was compacted. The lock file is watched, so a change made
+ * by another process is also reported to the {@link OnChangeListener} without waiting for the
+ * next access. {@link #runExclusive(String, ExclusiveTask)} locks a separate file per name, which
+ * lets processes coordinate work such as token refresh.
+ * <p>
+ * The data will be encrypted by the library before saving.
+ */
+public class AppendOnlyFileStorage implements OktaStorage {
+    private static final String TAG = AppendOnlyFileStorage.class.getSimpleName();
+    private static final String DEFAULT_FILE_NAME = "okta_oidc_storage.log";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4F4B5441; // "OKTA"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    // record length + crc
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    // op + key length + value length
+    private static final int ENTRY_OVERHEAD = 9;
+    private static final long COMPACTION_MIN_SIZE = 16 * 1024;
+    // compaction count + write count
+    private static final int LOCK_STATE_SIZE = 16;
+    private static final String LOCK_FILE_SUFFIX = ".lock";
+    private static final long LOCK_POLL_MS = 10;
+    // File locks are held by the whole process, so threads and instances of this process that
+    // use the same lock file take this lock first. Keyed by the canonical lock file path.
+    private static final Map<String, ReentrantLock> PROCESS_LOCKS = new HashMap<>();
+
+    private final File mFile;
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+    private final Map<String, Location> mIndex = new HashMap<>();
+    private final ExecutorService mCompactor;
+    private final AtomicBoolean mCompactionScheduled = new AtomicBoolean();
+    private RandomAccessFile mRandomAccessFile;
+    private FileChannel mChannel;
+    private long mSize;
+    private long mLiveBytes;
+
+    private final boolean mMultiProcess;
+    private ReentrantLock mProcessLock;
+    private RandomAccessFile mLockFile;
+    private FileLock mFileLock;
+    private FileObserver mObserver;
+    private volatile OnChangeListener mOnChangeListener;
+    private volatile boolean mClosed;
+    // Counters of the lock file when this instance last held the lock.
+    private long mEpoch = -1;
+    private long mSequence;
+
+    /**
+     * Instantiates a new instance.
+     * Uses a default file in the application files directory.
+     *
+     * @param context the context
+     */
+    public AppendOnlyFileStorage(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Instantiates a new instance.
+     *
+     * @param context  the context
+     * @param fileName the file name inside the application files directory.
+     */
+    public AppendOnlyFileStorage(Context context, String fileName) {
+        this(context, fileName, false);
+    }
+
+    /**
+     * Instantiates a new instance.
+     *
+     * @param context      the context
+     * @param fileName     the file name inside the application files directory.
+     * @param multiProcess true if processes of the application share the file.
+     */
+    public AppendOnlyFileStorage(Context context, String fileName, boolean multiProcess) {
+        this(new File(context.getFilesDir(), fileName == null ? DEFAULT_FILE_NAME : fileName),
+                multiProcess);
+    }
+
+    /**
+     * Instantiates a new instance.
+     *
+     * @param file the file to use.
+     */
+    public AppendOnlyFileStorage(File file) {
+        this(file, false);
+    }
+
+    /**
+     * Instantiates a new instance.
+     *
+     * @param file         the file to use.
+     * @param multiProcess true if other processes or instances use the same file.
+     */
+    public AppendOnlyFileStorage(File file, boolean multiProcess) {
+        mFile = file;
+        mMultiProcess = multiProcess;
+        mCompactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (multiProcess) {
+                File lockFile = new File(file.getPath() + LOCK_FILE_SUFFIX);
+                mProcessLock = processLock(lockFile);
+                mLockFile = new RandomAccessFile(lockFile, "rw");
+                // Opens the file while holding the lock.
+                lockProcess();
+                unlockProcess();
+                mObserver = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                        ? new LockFileObserver(lockFile) : new LockFileObserver(lockFile.getPath());
+                mObserver.startWatching();
+            } else {
+                open();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open storage file", e);
+        }
+    }
+
+    @Override
+    public void save(@NonNull String key, @NonNull String value) {
+        edit().put(key, value).commit();
+    }
+
+    @Nullable
+    @Override
+    public String get(@NonNull String key) {
+        byte[] value = getBytes(key);
+        return value == null ? null : new String(value, UTF_8);
+    }
+
+    @Override
+    public boolean supportsBytes() {
+        return true;
+    }
+
+    @Override
+    public void saveBytes(@NonNull String key, @NonNull byte[] value) {
+        edit().putBytes(key, value).commit();
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key) {
+        lockProcess();
+        mLock.readLock().lock();
+        try {
+            Location location = mIndex.get(key);
+            return location == null ? null : readLocked(location);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read storage file", e);
+        } finally {
+            mLock.readLock().unlock();
+            unlockProcess();
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        edit().remove(key).commit();
+    }
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        return new Editor() {
+            // null value means remove.
+            private final Map<String, byte[]> mChanges = new LinkedHashMap<>();
+
+            @NonNull
+            @Override
+            public Editor put(@NonNull String key, @NonNull String value) {
+                mChanges.put(key, value.getBytes(UTF_8));
+                return this;
+            }
+
+            @NonNull
+            @Override
+            public Editor putBytes(@NonNull String key, @NonNull byte[] value) {
+                mChanges.put(key, value);
+                return this;
+            }
+
+            @NonNull
+            @Override
+            public Editor remove(@NonNull String key) {
+                mChanges.put(key, null);
+                return this;
+            }
+
+            @Override
+            public void commit() {
+                if (!mChanges.isEmpty()) {
+                    append(mChanges);
+                    mChanges.clear();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void setOnChangeListener(@Nullable OnChangeListener listener) {
+        mOnChangeListener = listener;
+    }
+
+    @Override
+    public <T, E extends Exception> T runExclusive(@NonNull String name,
+                                                   @NonNull ExclusiveTask<T, E> task) throws E {
+        if (!mMultiProcess) {
+            return OktaStorage.super.runExclusive(name, task);
+        }
+        File lockFile = exclusiveLockFile(name);
+        ReentrantLock processLock = exclusiveProcessLock(lockFile);
+        processLock.lock();
+        try {
+            RandomAccessFile file = null;
+            // A nested call of the same thread already holds the file lock.
+            if (processLock.getHoldCount() == 1) {
+                try {
+                    file = new RandomAccessFile(lockFile, "rw");
+                    // Released when the file is closed.
+                    file.getChannel().lock();
+                } catch (IOException e) {
+                    closeLockFile(file);
+                    throw new RuntimeException("Failed to lock storage file", e);
+                }
+            }
+            return runLocked(file, task);
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    @Override
+    public <T, E extends Exception> T runExclusive(@NonNull String name, long timeoutMs,
+                                                   @NonNull ExclusiveTask<T, E> task)
+            throws E, TimeoutException {
+        if (!mMultiProcess) {
+            return OktaStorage.super.runExclusive(name, timeoutMs, task);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        File lockFile = exclusiveLockFile(name);
+        ReentrantLock processLock = exclusiveProcessLock(lockFile);
+        try {
+            if (!processLock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Timed out waiting for lock " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted waiting for lock " + name);
+        }
+        try {
+            RandomAccessFile file = null;
+            if (processLock.getHoldCount() == 1) {
+                try {
+                    file = new RandomAccessFile(lockFile, "rw");
+                    //FileChannel can't wait for a lock with a timeout, so it is polled.
+                    while (file.getChannel().tryLock() == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new TimeoutException("Timed out waiting for lock " + name);
+                        }
+                        Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1,
+                                LOCK_POLL_MS));
+                    }
+                } catch (IOException e) {
+                    closeLockFile(file);
+                    throw new RuntimeException("Failed to lock storage file", e);
+                } catch (TimeoutException e) {
+                    closeLockFile(file);
+                    throw e;
+                } catch (InterruptedException e) {
+                    closeLockFile(file);
+                    Thread.currentThread().interrupt();
+                    throw new TimeoutException("Interrupted waiting for lock " + name);
+                }
+            }
+            return runLocked(file, task);
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    private File exclusiveLockFile(String name) {
+        return new File(mFile.getPath() + "." + name + LOCK_FILE_SUFFIX);
+    }
+
+    private static ReentrantLock exclusiveProcessLock(File lockFile) {
+        try {
+            return processLock(lockFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to lock storage file", e);
+        }
+    }
+
+    // Runs the task holding the file lock of runExclusive, file is null for nested calls.
+    private <T, E extends Exception> T runLocked(@Nullable RandomAccessFile file,
+                                                 ExclusiveTask<T, E> task) throws E {
+        try {
+            checkForChanges();
+            return task.run();
+        } finally {
+            closeLockFile(file);
+        }
+    }
+
+    private static void closeLockFile(@Nullable RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                Log.w(TAG, "runExclusive: ", e);
+            }
+        }
+    }
+
+    /**
+     * Picks up changes made by other processes and notifies the {@link OnChangeListener} if
+     * there are any. This happens before every access and whenever the lock file is modified,
+     * so calling it is rarely needed. Does nothing unless in multi-process mode.
+     */
+    public void checkForChanges() {
+        if (mMultiProcess && !mClosed) {
+            lockProcess();
+            unlockProcess();
+        }
+    }
+
+    @Override
+    public void flush() {
+        mLock.readLock().lock();
+        try {
+            mChannel.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync storage file", e);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the file. The instance must not be used afterwards.
+     */
+    public void close() {
+        mClosed = true;
+        if (mObserver != null) {
+            mObserver.stopWatching();
+        }
+        mCompactor.shutdown();
+        mLock.writeLock().lock();
+        try {
+            mRandomAccessFile.close();
+            if (mLockFile != null) {
+                mLockFile.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "close: ", e);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    @VisibleForTesting
+    long getFileSize() {
+        mLock.readLock().lock();
+        try {
+            return mSize;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live values. The old file is kept if that fails. Does
+     * nothing once the storage is closed.
+     */
+    @VisibleForTesting
+    void compact() {
+        if (mClosed) {
+            return;
+        }
+        lockProcess();
+        mLock.writeLock().lock();
+        try {
+            //Closing takes the write lock, so the file stays open until this is done.
+            if (mClosed) {
+                return;
+            }
+            Map<String, byte[]> live = new LinkedHashMap<>();
+            for (String key : mIndex.keySet()) {
+                live.put(key, readLocked(mIndex.get(key)));
+            }
+            File compacted = new File(mFile.getPath() + ".compact");
+            try (RandomAccessFile file = new RandomAccessFile(compacted, "rw")) {
+                file.setLength(0);
+                FileChannel channel = file.getChannel();
+                writeFully(channel, fileHeader(), 0);
+                if (!live.isEmpty()) {
+                    writeFully(channel, ByteBuffer.wrap(encodeRecord(live)), FILE_HEADER_SIZE);
+                }
+                channel.force(true);
+            }
+            mRandomAccessFile.close();
+            boolean replaced = compacted.renameTo(mFile);
+            open();
+            if (!replaced) {
+                if (!compacted.delete()) {
+                    Log.w(TAG, "compact: failed to delete " + compacted);
+                }
+                throw new IOException("Failed to replace storage file");
+            }
+            if (mMultiProcess) {
+                mEpoch++;
+                writeLockState();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact storage file", e);
+        } finally {
+            mLock.writeLock().unlock();
+            unlockProcess();
+        }
+    }
+
+    private void append(Map<String, byte[]> changes) {
+        byte[] record = encodeRecord(changes);
+        lockProcess();
+        mLock.writeLock().lock();
+        try {
+            long recordStart = mSize;
+            writeFully(mChannel, ByteBuffer.wrap(record), recordStart);
+            mChannel.force(false);
+            mSize += record.length;
+            index(record, RECORD_HEADER_SIZE, record.length, recordStart);
+            if (mMultiProcess) {
+                mSequence++;
+                writeLockState();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write storage file", e);
+        } finally {
+            mLock.writeLock().unlock();
+            unlockProcess();
+        }
+        if (needsCompaction() && mCompactionScheduled.compareAndSet(false, true)) {
+            mCompactor.execute(() -> {
+                mCompactionScheduled.set(false);
+                //Nothing on this thread would catch the failure, the old file is still valid.
+                try {
+                    if (needsCompaction()) {
+                        compact();
+                    }
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "compact: ", e);
+                }
+            });
+        }
+    }
+
+    private boolean needsCompaction() {
+        mLock.readLock().lock();
+        try {
+            return mSize > COMPACTION_MIN_SIZE && mSize > 2 * (mLiveBytes + FILE_HEADER_SIZE);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the lock shared with other processes and catches up with their changes. Does nothing
+     * unless in multi-process mode. Must be called before taking mLock.
+     */
+    private void lockProcess() {
+        if (!mMultiProcess) {
+            return;
+        }
+        mProcessLock.lock();
+        boolean synced = false;
+        try {
+            mFileLock = mLockFile.getChannel().lock();
+            syncWithFile();
+            synced = true;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to lock storage file", e);
+        } finally {
+            if (!synced) {
+                unlockProcess();
+            }
+        }
+    }
+
+    private void unlockProcess() {
+        if (!mMultiProcess) {
+            return;
+        }
+        try {
+            if (mFileLock != null) {
+                mFileLock.release();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "unlockProcess: ", e);
+        } finally {
+            mFileLock = null;
+            mProcessLock.unlock();
+        }
+    }
+
+    private void syncWithFile() throws IOException {
+        ByteBuffer state = ByteBuffer.allocate(LOCK_STATE_SIZE);
+        FileChannel channel = mLockFile.getChannel();
+        // A new lock file reads as zeros.
+        int read;
+        do {
+            read = channel.read(state, state.position());
+        } while (read > 0 && state.hasRemaining());
+        state.rewind();
+        long epoch = state.getLong();
+        long sequence = state.getLong();
+        if (epoch == mEpoch && sequence == mSequence) {
+            return;
+        }
+        boolean opened = mRandomAccessFile != null;
+        mLock.writeLock().lock();
+        try {
+            if (epoch != mEpoch || mChannel.size() < mSize) {
+                // Compacted by another process, our channel still points to the old file.
+                if (opened) {
+                    mRandomAccessFile.close();
+                }
+                open();
+            } else {
+                long length = mChannel.size();
+                mSize = scan(mSize, length);
+                if (mSize < length) {
+                    Log.w(TAG, "Dropping corrupt tail of storage file at " + mSize);
+                    mChannel.truncate(mSize);
+                    mChannel.force(true);
+                }
+            }
+            mEpoch = epoch;
+            mSequence = sequence;
+        } finally {
+            mLock.writeLock().unlock();
+        }
+        OnChangeListener listener = mOnChangeListener;
+        if (opened && listener != null) {
+            listener.onChange();
+        }
+    }
+
+    private void writeLockState() throws IOException {
+        ByteBuffer state = ByteBuffer.allocate(LOCK_STATE_SIZE);
+        state.putLong(mEpoch).putLong(mSequence).flip();
+        writeFully(mLockFile.getChannel(), state, 0);
+    }
+
+    private static ReentrantLock processLock(File lockFile) throws IOException {
+        String path = lockFile.getCanonicalPath();
+        synchronized (PROCESS_LOCKS) {
+            ReentrantLock lock = PROCESS_LOCKS.get(path);
+            if (lock == null) {
+                lock = new ReentrantLock();
+                PROCESS_LOCKS.put(path, lock);
+            }
+            return lock;
+        }
+    }
+
+    private void open() throws IOException {
+        mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        mChannel = mRandomAccessFile.getChannel();
+        mIndex.clear();
+        mLiveBytes = 0;
+        long length = mChannel.size();
+        if (length < FILE_HEADER_SIZE || !hasValidHeader()) {
+            if (length > 0) {
+                Log.w(TAG, "Storage file has unknown format, resetting it");
+            }
+            mChannel.truncate(0);
+            writeFully(mChannel, fileHeader(), 0);
+            mChannel.force(true);
+            mSize = FILE_HEADER_SIZE;
+            return;
+        }
+        mSize = scan(FILE_HEADER_SIZE, length);
+        if (mSize < length) {
+            Log.w(TAG, "Dropping corrupt tail of storage file at " + mSize);
+            mChannel.truncate(mSize);
+            mChannel.force(true);
+        }
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (mChannel.read(header, header.position()) < 0) {
+                return false;
+            }
+        }
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    /**
+     * Sequentially scans the records from start and adds them to the index.
+     *
+     * @return the end of the last valid record.
+     */
+    private long scan(long start, long length) throws IOException {
+        long position = start;
+        try (FileInputStream file = new FileInputStream(mFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            file.getChannel().position(start);
+            CRC32 crc = new CRC32();
+            while (position + RECORD_HEADER_SIZE <= length) {
+                int recordLength = in.readInt();
+                int checksum = in.readInt();
+                if (recordLength < 0 || position + RECORD_HEADER_SIZE + recordLength > length) {
+                    break;
+                }
+                byte[] record = new byte[RECORD_HEADER_SIZE + recordLength];
+                in.readFully(record, RECORD_HEADER_SIZE, recordLength);
+                crc.reset();
+                crc.update(record, RECORD_HEADER_SIZE, recordLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                index(record, RECORD_HEADER_SIZE, record.length, position);
+                position += record.length;
+            }
+        } catch (EOFException e) {
+            Log.w(TAG, "scan: ", e);
+        }
+        return position;
+    }
+
+    private void index(byte[] record, int offset, int end, long recordStart) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record, offset, end - offset);
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte op = buffer.get();
+            byte[] key = new byte[buffer.getInt()];
+            buffer.get(key);
+            String keyString = new String(key, UTF_8);
+            int valueLength = buffer.getInt();
+            Location previous;
+            if (op == OP_PUT) {
+                Location location = new Location(recordStart + buffer.position(), valueLength);
+                buffer.position(buffer.position() + valueLength);
+                previous = mIndex.put(keyString, location);
+                mLiveBytes += RECORD_HEADER_SIZE + ENTRY_OVERHEAD + key.length + valueLength;
+            } else if (op == OP_DELETE) {
+                previous = mIndex.remove(keyString);
+            } else {
+                throw new IOException("Unknown record operation " + op);
+            }
+            if (previous != null) {
+                mLiveBytes -= RECORD_HEADER_SIZE + ENTRY_OVERHEAD + key.length + previous.length;
+            }
+        }
+    }
+
+    private byte[] readLocked(Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length);
+        long position = location.position;
+        while (buffer.hasRemaining()) {
+            int read = mChannel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of storage file");
+            }
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    private static byte[] encodeRecord(Map<String, byte[]> changes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // record length placeholder
+            out.writeInt(0); // crc placeholder
+            out.writeInt(changes.size());
+            for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+                byte[] key = change.getKey().getBytes(UTF_8);
+                out.writeByte(change.getValue() == null ? OP_DELETE : OP_PUT);
+                out.writeInt(key.length);
+                out.write(key);
+                if (change.getValue() == null) {
+                    out.writeInt(0);
+                } else {
+                    byte[] value = change.getValue();
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+            out.flush();
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+            ByteBuffer.wrap(record)
+                    .putInt(record.length - RECORD_HEADER_SIZE)
+                    .putInt((int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // Picks up changes of other processes, which modify the lock file on every commit.
+    private final class LockFileObserver extends FileObserver {
+        @TargetApi(Build.VERSION_CODES.Q)
+        LockFileObserver(File file) {
+            super(file, FileObserver.MODIFY);
+        }
+
+        //The only constructor before API 29, deprecated since.
+        @SuppressWarnings("deprecation")
+        LockFileObserver(String path) {
+            super(path, FileObserver.MODIFY);
+        }
+
+        @Override
+        public void onEvent(int event, @Nullable String path) {
+            try {
+                checkForChanges();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "checkForChanges: ", e);
+            }
+        }
+    }
+
+    private static final class Location {
+        final long position;
+        final int length;
+
+        Location(long position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -25,10 +25,20 @@ import androidx.annotation.RestrictTo;
 import com.okta.oidc.storage.security.BaseEncryptionManager;
 import com.okta.oidc.storage.security.EncryptionManager;
 
+import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.security.InvalidParameterException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.crypto.IllegalBlockSizeException;
 
@@ -40,132 +50,275 @@ import static com.okta.oidc.storage.OktaRepository.EncryptionException.INVALID_K
 import static com.okta.oidc.storage.OktaRepository.EncryptionException.KEYGUARD_AUTHENTICATION_ERROR;
 
 /**
+ * Cached values are published through concurrent maps and are read without taking any lock.
+ * Storage access is guarded by a read/write lock so {@code get} and {@code contains} may run in
+ * parallel while {@code save} and {@code delete} are exclusive. Encryption and decryption run
+ * outside the storage lock, so a slow keystore operation never blocks readers of cached values
+ * or other storage access.
+ *
  * @hide
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class OktaRepository {
     private static final String TAG = OktaRepository.class.getSimpleName();
+    private static final String METADATA_SUFFIX = ".metadata";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // Snapshots taken by getAll before returning one that raced with a write.
+    private static final int CONSISTENT_READ_ATTEMPTS = 3;
 
     private final OktaStorage storage;
-    private EncryptionManager encryptionManager;
+    // Values are encrypted to bytes and stored without encoding if the storage supports it.
+    private final boolean byteStorage;
+    private volatile EncryptionManager encryptionManager;
     private boolean requireHardwareBackedKeyStore;
     private boolean cacheMode;
-    final Map<String, String> cacheStorage = new HashMap<>();
+    // Hashed key to plain value, a String or the byte[] record.
+    final Map<String, Object> cacheStorage = new ConcurrentHashMap<>();
+    // Restored objects keyed by hashed key. Callers get a copy, see Persistable.Restore#copy, so
+    // cached objects are never changed. Any write to the key drops the entry.
+    final Map<String, CacheEntry> restoredCache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    // Bumped by every write after storage and cacheStorage are updated. Readers that restored a
+    // value only keep it cached if no write happened in the meantime.
+    private final AtomicLong writeGeneration = new AtomicLong();
 
-    private final Object lock = new Object();
+    private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
+    // Locks of runExclusive by name.
+    private final ConcurrentHashMap<String, ReentrantLock> exclusiveLocks =
+            new ConcurrentHashMap<>();
+    // Serializes managers that are not thread safe, see EncryptionManager#isThreadSafe().
+    private final Object cryptoLock = new Object();
 
     public OktaRepository(OktaStorage storage, Context context,
                           @Nullable EncryptionManager encryptionManager,
                           boolean requireHardwareBackedKeyStore,
                           boolean cacheMode) {
         this.storage = storage;
+        this.byteStorage = storage.supportsBytes();
         this.cacheMode = cacheMode;
         this.requireHardwareBackedKeyStore = requireHardwareBackedKeyStore;
         this.encryptionManager = encryptionManager;
+        storage.setOnChangeListener(this::invalidateCaches);
     }
 
     public void setEncryptionManager(EncryptionManager encryptionManager) {
-        this.encryptionManager = encryptionManager;
+        storageLock.writeLock().lock();
+        try {
+            this.encryptionManager = encryptionManager;
+            cacheStorage.clear();
+            writeGeneration.incrementAndGet();
+            restoredCache.clear();
+        } finally {
+            storageLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the task while holding the storage lock with the given name, see
+     * {@link OktaStorage#runExclusive(String, OktaStorage.ExclusiveTask)}. Values written by
+     * other holders of the lock are visible to the task.
+     */
+    public <T, E extends Exception> T runExclusive(String name,
+                                                   OktaStorage.ExclusiveTask<T, E> task)
+            throws E {
+        ReentrantLock lock = exclusiveLock(name);
+        lock.lock();
+        try {
+            return storage.runExclusive(name, task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #runExclusive(String, OktaStorage.ExclusiveTask)}, but stops waiting for the
+     * lock once the timeout has passed. Threads of this repository always wait with the
+     * timeout, other holders of the storage lock only if the storage supports it, see
+     * {@link OktaStorage#runExclusive(String, long, OktaStorage.ExclusiveTask)}.
+     *
+     * @throws TimeoutException if the lock wasn't acquired in time, the task didn't run
+     */
+    public <T, E extends Exception> T runExclusive(String name, long timeoutMs,
+                                                   OktaStorage.ExclusiveTask<T, E> task)
+            throws E, TimeoutException {
+        long start = System.nanoTime();
+        ReentrantLock lock = exclusiveLock(name);
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Timed out waiting for lock " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted waiting for lock " + name);
+        }
+        try {
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return storage.runExclusive(name, Math.max(0, timeoutMs - waited), task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Taken before the storage lock, so threads of this repository can stop waiting even if
+    // the storage can't.
+    private ReentrantLock exclusiveLock(String name) {
+        ReentrantLock lock = exclusiveLocks.get(name);
+        if (lock == null) {
+            ReentrantLock created = new ReentrantLock();
+            lock = exclusiveLocks.putIfAbsent(name, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        return lock;
+    }
+
+    // Called by the storage when another instance or process changed it. The storage may hold
+    // its own locks, so this must not take storageLock.
+    private void invalidateCaches() {
+        cacheStorage.clear();
+        writeGeneration.incrementAndGet();
+        restoredCache.clear();
     }
 
     public void save(Persistable persistable) throws EncryptionException {
         if (persistable == null) {
             return;
         }
-        synchronized (lock) {
-            if (!requireHardwareBackedKeyStore || encryptionManager != null &&
-                    encryptionManager.isHardwareBackedKeyStore()) {
-                String encryptedData;
-                if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    try {
-                        encryptedData = getEncrypted(persistable.persist());
-                        storage.save(getHashed(persistable.getKey()), encryptedData);
-                    } catch (BaseEncryptionManager.OktaUserNotAuthenticateException e) {
-                        String error = "Failed during encrypt data: " + e.getMessage();
-                        throw new EncryptionException(ENCRYPT_ERROR, error, e.getCause());
-                    } catch (IllegalBlockSizeException e) {
-                        String error = "Unable to encrypt " + persistable.getKey() + " the " +
-                                "cipher algorithm may not be supported on this device" +
-                                e.getMessage();
-                        throw new EncryptionException(ILLEGAL_BLOCK_SIZE, error,
-                                e.getCause());
-                    } catch (GeneralSecurityException e) {
-                        throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
-                                e.getCause());
-                    } catch (InvalidParameterException e) {
-                        throw new EncryptionException(ENCRYPT_ERROR, e.getMessage(),
-                                e.getCause());
-                    }
-                } else {
-                    try {
-                        encryptedData = getEncrypted(persistable.persist());
-                        storage.save(getHashed(persistable.getKey()), encryptedData);
-                    } catch (GeneralSecurityException e) {
-                        throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
-                                e.getCause());
-                    }
-                }
-            } else {
-                throw new EncryptionException(HARDWARE_BACKED_ERROR,
-                        "Client require hardware backed keystore, " +
-                                "but EncryptionManager doesn't support it.", null);
-            }
-            if (cacheMode) {
-                cacheStorage.put(getHashed(persistable.getKey()),
-                        persistable.persist());
+        beginTransaction().save(persistable).commit();
+    }
+
+    public <T extends Persistable> T get(Persistable.Restore<T> persistable)
+            throws EncryptionException {
+        String key = getHashed(persistable.getKey());
+        if (cacheMode) {
+            CacheEntry entry = restoredCache.get(key);
+            if (entry != null && entry.restore == persistable) {
+                cacheHits.incrementAndGet();
+                @SuppressWarnings("unchecked")
+                T value = (T) entry.value;
+                return persistable.copy(value);
             }
+            cacheMisses.incrementAndGet();
         }
+        long generation = writeGeneration.get();
+        Object data = cacheMode ? cacheStorage.get(key) : null;
+        if (data == null) {
+            data = byteStorage ? readBytes(key, persistable.getKey())
+                    : readString(key, persistable.getKey());
+        }
+        return restore(persistable, key, data, generation);
     }
 
-    public <T extends Persistable> T get(Persistable.Restore<T> persistable)
+    /**
+     * Reads several records as they were at one point in time, so records saved by the same
+     * transaction are seen together. Only the stored values are taken under the storage lock,
+     * they are decrypted after it is released. If a write happened meanwhile the records are
+     * read again, the result is then at least as recent as the last snapshot.
+     *
+     * @param persistables the records to read
+     * @return the records in the same order, null for records that aren't stored
+     * @throws EncryptionException if a record can't be decrypted
+     */
+    public <T extends Persistable> List<T> getAll(List<Persistable.Restore<T>> persistables)
             throws EncryptionException {
-        synchronized (lock) {
-            String data;
-            String key = getHashed(persistable.getKey());
-            if (cacheMode && cacheStorage.get(key) != null) {
-                data = cacheStorage.get(key);
-            } else {
-                data = storage.get(key);
-
-                if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    try {
-                        data = getDecrypted(data);
-                    } catch (BaseEncryptionManager.OktaUserNotAuthenticateException e) {
-                        String error = "User not authenticated and try to decrypt data: " +
-                                e.getMessage();
-                        throw new EncryptionException(KEYGUARD_AUTHENTICATION_ERROR, error,
-                                e.getCause());
-                    } catch (IllegalBlockSizeException e) {
-                        String error = "Unable to decrypt " + persistable.getKey() + " the key " +
-                                "used may be invalidated. Please clear data and try again. " +
-                                e.getMessage();
-                        throw new EncryptionException(ILLEGAL_BLOCK_SIZE, error,
-                                e.getCause());
-                    } catch (GeneralSecurityException e) {
-                        throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
-                                e.getCause());
-                    } catch (InvalidParameterException e) {
-                        throw new EncryptionException(DECRYPT_ERROR, e.getMessage(),
-                                e.getCause());
-                    }
-                } else {
-                    try {
-                        data = getDecrypted(data);
-                    } catch (GeneralSecurityException e) {
-                        throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
-                                e.getCause());
-                    }
+        int size = persistables.size();
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = getHashed(persistables.get(i).getKey());
+        }
+        for (int attempt = 1; ; attempt++) {
+            Object[] snapshot = new Object[size];
+            long generation;
+            storageLock.readLock().lock();
+            try {
+                generation = writeGeneration.get();
+                for (int i = 0; i < size; i++) {
+                    snapshot[i] = snapshot(keys[i], persistables.get(i));
                 }
+            } finally {
+                storageLock.readLock().unlock();
+            }
+            List<T> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Persistable.Restore<T> persistable = persistables.get(i);
+                values.add(restoreSnapshot(persistable, keys[i], snapshot[i], generation));
+            }
+            if (writeGeneration.get() == generation || attempt >= CONSISTENT_READ_ATTEMPTS) {
+                return values;
+            }
+        }
+    }
 
+    // A restored object, the plain value or the stored encrypted value. Called under the lock.
+    private Object snapshot(String key, Persistable.Restore<?> persistable) {
+        if (cacheMode) {
+            CacheEntry entry = restoredCache.get(key);
+            if (entry != null && entry.restore == persistable) {
+                return entry;
             }
-            return persistable.restore(data);
+            Object plain = cacheStorage.get(key);
+            if (plain != null) {
+                return new PlainValue(plain);
+            }
+        }
+        return byteStorage ? storage.getBytes(key) : storage.get(key);
+    }
+
+    private <T extends Persistable> T restoreSnapshot(Persistable.Restore<T> persistable,
+                                                      String key, Object snapshot,
+                                                      long generation)
+            throws EncryptionException {
+        if (snapshot instanceof CacheEntry) {
+            cacheHits.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            T value = (T) ((CacheEntry) snapshot).value;
+            return persistable.copy(value);
         }
+        if (cacheMode) {
+            cacheMisses.incrementAndGet();
+        }
+        Object data;
+        if (snapshot instanceof PlainValue) {
+            data = ((PlainValue) snapshot).value;
+        } else if (byteStorage) {
+            data = decryptBytes(key, persistable.getKey(), (byte[]) snapshot);
+        } else {
+            data = decryptString(key, persistable.getKey(), (String) snapshot);
+        }
+        return restore(persistable, key, data, generation);
+    }
+
+    private <T extends Persistable> T restore(Persistable.Restore<T> persistable, String key,
+                                              Object data, long generation)
+            throws EncryptionException {
+        T value;
+        try {
+            value = data instanceof byte[] ? persistable.restore((byte[]) data)
+                    : persistable.restore((String) data);
+        } catch (IllegalArgumentException e) {
+            //Thrown by RecordReader for a truncated or corrupt record.
+            throw new EncryptionException(DECRYPT_ERROR, "Unable to restore "
+                    + persistable.getKey() + ": " + e.getMessage(), e);
+        }
+        if (cacheMode && value != null) {
+            publish(key, new CacheEntry(persistable, value), generation);
+            return persistable.copy(value);
+        }
+        return value;
     }
 
     public boolean contains(Persistable.Restore persistable) {
-        synchronized (lock) {
-            String key = getHashed(persistable.getKey());
-            return (cacheMode && cacheStorage.get(key) != null) || storage.get(key) != null;
+        String key = getHashed(persistable.getKey());
+        if (cacheMode && (restoredCache.containsKey(key) || cacheStorage.containsKey(key))) {
+            return true;
+        }
+        storageLock.readLock().lock();
+        try {
+            return storage.get(key) != null;
+        } finally {
+            storageLock.readLock().unlock();
         }
     }
 
@@ -173,36 +326,319 @@ public class OktaRepository {
         if (persistable == null) {
             return;
         }
-        synchronized (lock) {
-            String key = getHashed(persistable.getKey());
-            storage.delete(key);
-            cacheStorage.remove(key);
-        }
+        delete(persistable.getKey());
     }
 
     public void delete(String key) {
         if (key == null) {
             return;
         }
-        synchronized (lock) {
-            String hashedKey = getHashed(key);
-            storage.delete(hashedKey);
-            cacheStorage.remove(hashedKey);
+        beginTransaction().delete(key).commit();
+    }
+
+    /**
+     * Reads the unencrypted metadata stored next to a record by
+     * {@link Persistable#persistMetadata()}. No decryption is performed.
+     *
+     * @param persistable the record the metadata belongs to
+     * @return the metadata or null if there is none
+     */
+    @Nullable
+    public String getMetadata(Persistable.Restore<?> persistable) {
+        String key = getHashed(metadataKey(persistable.getKey()));
+        if (cacheMode) {
+            Object cached = cacheStorage.get(key);
+            if (cached instanceof String) {
+                return (String) cached;
+            }
+        }
+        long generation = writeGeneration.get();
+        String metadata;
+        storageLock.readLock().lock();
+        try {
+            metadata = storage.get(key);
+        } finally {
+            storageLock.readLock().unlock();
+        }
+        if (cacheMode && metadata != null) {
+            cacheStorage.put(key, metadata);
+            if (writeGeneration.get() != generation) {
+                cacheStorage.remove(key, metadata);
+            }
         }
+        return metadata;
     }
 
-    private String getEncrypted(String value) throws GeneralSecurityException {
-        if (encryptionManager == null) {
+    /**
+     * Writes only the unencrypted metadata of a record. Used to add metadata to records
+     * persisted before the record type had any.
+     *
+     * @param persistable the record
+     */
+    public void saveMetadata(Persistable persistable) {
+        Transaction transaction = beginTransaction();
+        transaction.saveMetadata(persistable);
+        transaction.commit();
+    }
+
+    /**
+     * Blocks until every completed save and delete is durable in the underlying storage.
+     */
+    public void flush() {
+        storageLock.readLock().lock();
+        try {
+            storage.flush();
+        } finally {
+            storageLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a batch of saves and deletes that is written with a single
+     * {@link OktaStorage.Editor#commit()}. Values are encrypted when they are added to the batch,
+     * so {@link Transaction#commit()} only touches storage.
+     *
+     * @return the transaction
+     */
+    public Transaction beginTransaction() {
+        return new Transaction();
+    }
+
+    /**
+     * Number of {@link #get(Persistable.Restore)} calls answered from the restored object
+     * cache without decrypting or parsing. Always zero when cache mode is off.
+     *
+     * @return the cache hit count
+     */
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Number of {@link #get(Persistable.Restore)} calls that had to restore the object from
+     * its persisted form. Always zero when cache mode is off.
+     *
+     * @return the cache miss count
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    private static String metadataKey(String key) {
+        return key + METADATA_SUFFIX;
+    }
+
+    private void checkHardwareBacked(EncryptionManager manager) throws EncryptionException {
+        if (requireHardwareBackedKeyStore && (manager == null ||
+                !manager.isHardwareBackedKeyStore())) {
+            throw new EncryptionException(HARDWARE_BACKED_ERROR,
+                    "Client require hardware backed keystore, " +
+                            "but EncryptionManager doesn't support it.", null);
+        }
+    }
+
+    private String readString(String key, String name) throws EncryptionException {
+        String encrypted;
+        storageLock.readLock().lock();
+        try {
+            encrypted = storage.get(key);
+        } finally {
+            storageLock.readLock().unlock();
+        }
+        return decryptString(key, name, encrypted);
+    }
+
+    private String decryptString(String key, String name, String encrypted)
+            throws EncryptionException {
+        EncryptionManager manager = encryptionManager;
+        String data = decrypt(manager, name, encrypted);
+        if (manager != null && manager.needsReEncryption(encrypted)) {
+            reEncrypt(manager, key, name, encrypted, data);
+        }
+        return data;
+    }
+
+    private byte[] readBytes(String key, String name) throws EncryptionException {
+        byte[] encrypted;
+        storageLock.readLock().lock();
+        try {
+            encrypted = storage.getBytes(key);
+        } finally {
+            storageLock.readLock().unlock();
+        }
+        return decryptBytes(key, name, encrypted);
+    }
+
+    private byte[] decryptBytes(String key, String name, byte[] encrypted)
+            throws EncryptionException {
+        EncryptionManager manager = encryptionManager;
+        byte[] data = decrypt(manager, name, encrypted);
+        if (manager != null && manager.needsReEncryption(encrypted)) {
+            reEncrypt(manager, key, name, encrypted, data);
+        }
+        return data;
+    }
+
+    /**
+     * Rewrites a value that was read in an older encryption format. The stored value is only
+     * replaced if it is still the one that was read, a concurrent save always wins.
+     */
+    private void reEncrypt(EncryptionManager manager, String key, String name, String encrypted,
+                           String data) {
+        try {
+            String upgraded = encrypt(manager, name, data);
+            storageLock.writeLock().lock();
+            try {
+                if (encrypted.equals(storage.get(key))) {
+                    storage.save(key, upgraded);
+                }
+            } finally {
+                storageLock.writeLock().unlock();
+            }
+        } catch (EncryptionException e) {
+            Log.w(TAG, "Failed to re-encrypt " + name, e);
+        }
+    }
+
+    private void reEncrypt(EncryptionManager manager, String key, String name, byte[] encrypted,
+                           byte[] data) {
+        try {
+            byte[] upgraded = encrypt(manager, name, data);
+            storageLock.writeLock().lock();
+            try {
+                if (Arrays.equals(encrypted, storage.getBytes(key))) {
+                    storage.saveBytes(key, upgraded);
+                }
+            } finally {
+                storageLock.writeLock().unlock();
+            }
+        } catch (EncryptionException e) {
+            Log.w(TAG, "Failed to re-encrypt " + name, e);
+        }
+    }
+
+    private void publish(String key, CacheEntry entry, long generation) {
+        // Commits bump the generation under the write lock, so checking under the read lock
+        // never exposes a stale value, not even briefly, to a snapshot of getAll.
+        storageLock.readLock().lock();
+        try {
+            if (writeGeneration.get() != generation) {
+                return;
+            }
+            restoredCache.put(key, entry);
+        } finally {
+            storageLock.readLock().unlock();
+        }
+        // Changes from other processes invalidate without the lock.
+        if (writeGeneration.get() != generation) {
+            restoredCache.remove(key, entry);
+        }
+    }
+
+    private String encrypt(EncryptionManager manager, String name, String value)
+            throws EncryptionException {
+        if (manager == null) {
+            return value;
+        }
+        return runEncrypt(manager, name, () -> manager.encrypt(value));
+    }
+
+    private byte[] encrypt(EncryptionManager manager, String name, byte[] value)
+            throws EncryptionException {
+        if (manager == null || value == null) {
             return value;
         }
-        return encryptionManager.encrypt(value);
+        return runEncrypt(manager, name, () -> manager.encrypt(value));
     }
 
-    private String getDecrypted(String value) throws GeneralSecurityException {
-        if (encryptionManager == null) {
+    private String decrypt(EncryptionManager manager, String name, String value)
+            throws EncryptionException {
+        if (manager == null) {
             return value;
         }
-        return encryptionManager.decrypt(value);
+        return runDecrypt(manager, name, () -> manager.decrypt(value));
+    }
+
+    private byte[] decrypt(EncryptionManager manager, String name, byte[] value)
+            throws EncryptionException {
+        if (manager == null || value == null) {
+            return value;
+        }
+        return runDecrypt(manager, name, () -> manager.decrypt(value));
+    }
+
+    private <T> T runEncrypt(EncryptionManager manager, String name, CryptoCall<T> call)
+            throws EncryptionException {
+        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            try {
+                return run(manager, call);
+            } catch (BaseEncryptionManager.OktaUserNotAuthenticateException e) {
+                String error = "Failed during encrypt data: " + e.getMessage();
+                throw new EncryptionException(ENCRYPT_ERROR, error, e.getCause());
+            } catch (IllegalBlockSizeException e) {
+                String error = "Unable to encrypt " + name + " the " +
+                        "cipher algorithm may not be supported on this device" +
+                        e.getMessage();
+                throw new EncryptionException(ILLEGAL_BLOCK_SIZE, error,
+                        e.getCause());
+            } catch (GeneralSecurityException e) {
+                throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
+                        e.getCause());
+            } catch (InvalidParameterException e) {
+                throw new EncryptionException(ENCRYPT_ERROR, e.getMessage(),
+                        e.getCause());
+            }
+        } else {
+            try {
+                return run(manager, call);
+            } catch (GeneralSecurityException e) {
+                throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
+                        e.getCause());
+            }
+        }
+    }
+
+    private <T> T runDecrypt(EncryptionManager manager, String name, CryptoCall<T> call)
+            throws EncryptionException {
+        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            try {
+                return run(manager, call);
+            } catch (BaseEncryptionManager.OktaUserNotAuthenticateException e) {
+                String error = "User not authenticated and try to decrypt data: " +
+                        e.getMessage();
+                throw new EncryptionException(KEYGUARD_AUTHENTICATION_ERROR, error,
+                        e.getCause());
+            } catch (IllegalBlockSizeException e) {
+                String error = "Unable to decrypt " + name + " the key " +
+                        "used may be invalidated. Please clear data and try again. " +
+                        e.getMessage();
+                throw new EncryptionException(ILLEGAL_BLOCK_SIZE, error,
+                        e.getCause());
+            } catch (GeneralSecurityException e) {
+                throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
+                        e.getCause());
+            } catch (InvalidParameterException e) {
+                throw new EncryptionException(DECRYPT_ERROR, e.getMessage(),
+                        e.getCause());
+            }
+        } else {
+            try {
+                return run(manager, call);
+            } catch (GeneralSecurityException e) {
+                throw new EncryptionException(INVALID_KEYS_ERROR, e.getMessage(),
+                        e.getCause());
+            }
+        }
+    }
+
+    private <T> T run(EncryptionManager manager, CryptoCall<T> call)
+            throws GeneralSecurityException {
+        if (manager.isThreadSafe()) {
+            return call.call();
+        }
+        synchronized (cryptoLock) {
+            return call.call();
+        }
     }
 
     private String getHashed(String value) {
@@ -214,6 +650,163 @@ public class OktaRepository {
         }
     }
 
+    /**
+     * A batch of repository changes applied atomically by {@link #commit()}.
+     */
+    public final class Transaction {
+        // Hashed key to encrypted value, a String or byte[]. null means delete.
+        private final Map<String, Object> encrypted = new LinkedHashMap<>();
+        // Hashed key to plain value for cache mode, null means delete.
+        private final Map<String, Object> plain = new LinkedHashMap<>();
+        // Hashed key that must still be stored for the commit to happen.
+        private String requiredKey;
+
+        private Transaction() {
+        }
+
+        public Transaction save(Persistable persistable) throws EncryptionException {
+            if (persistable == null) {
+                return this;
+            }
+            EncryptionManager manager = encryptionManager;
+            checkHardwareBacked(manager);
+            Object data;
+            Object encryptedData;
+            if (byteStorage) {
+                byte[] bytes = manager == null || manager.supportsBytes()
+                        ? persistable.persistBytes() : null;
+                if (bytes == null) {
+                    String text = persistable.persist();
+                    bytes = text == null ? null : text.getBytes(UTF_8);
+                }
+                data = bytes;
+                encryptedData = encrypt(manager, persistable.getKey(), bytes);
+            } else {
+                String text = persistable.persist();
+                data = text;
+                encryptedData = encrypt(manager, persistable.getKey(), text);
+            }
+            String key = getHashed(persistable.getKey());
+            encrypted.put(key, encryptedData);
+            plain.put(key, data);
+            saveMetadata(persistable);
+            return this;
+        }
+
+        public Transaction delete(String key) {
+            if (key == null) {
+                return this;
+            }
+            String hashedKey = getHashed(key);
+            encrypted.put(hashedKey, null);
+            plain.put(hashedKey, null);
+            String metadataKey = getHashed(metadataKey(key));
+            encrypted.put(metadataKey, null);
+            plain.put(metadataKey, null);
+            return this;
+        }
+
+        /**
+         * Saves only the metadata of a record, see {@link Persistable#persistMetadata()}.
+         *
+         * @param persistable the record
+         * @return this transaction
+         */
+        public Transaction saveMetadata(Persistable persistable) {
+            String metadata = persistable.persistMetadata();
+            if (metadata != null) {
+                String key = getHashed(metadataKey(persistable.getKey()));
+                encrypted.put(key, metadata);
+                plain.put(key, metadata);
+            }
+            return this;
+        }
+
+        /**
+         * Makes the commit conditional on a record still being stored when the transaction is
+         * committed. Used to replace a record without overwriting a concurrent change.
+         *
+         * @param key the key of the record
+         * @return this transaction
+         */
+        public Transaction onlyIfPresent(String key) {
+            requiredKey = getHashed(key);
+            return this;
+        }
+
+        /**
+         * Applies all changes at once.
+         *
+         * @return false if nothing was written because the record required by
+         * {@link #onlyIfPresent(String)} is gone
+         */
+        public boolean commit() {
+            if (encrypted.isEmpty()) {
+                return true;
+            }
+            storageLock.writeLock().lock();
+            try {
+                if (requiredKey != null && (byteStorage ? storage.getBytes(requiredKey)
+                        : storage.get(requiredKey)) == null) {
+                    encrypted.clear();
+                    plain.clear();
+                    return false;
+                }
+                OktaStorage.Editor editor = storage.edit();
+                for (Map.Entry<String, Object> change : encrypted.entrySet()) {
+                    Object value = change.getValue();
+                    if (value == null) {
+                        editor.remove(change.getKey());
+                    } else if (value instanceof byte[]) {
+                        editor.putBytes(change.getKey(), (byte[]) value);
+                    } else {
+                        editor.put(change.getKey(), (String) value);
+                    }
+                }
+                editor.commit();
+                for (Map.Entry<String, Object> change : plain.entrySet()) {
+                    if (cacheMode && change.getValue() != null) {
+                        cacheStorage.put(change.getKey(), change.getValue());
+                    } else {
+                        cacheStorage.remove(change.getKey());
+                    }
+                }
+                writeGeneration.incrementAndGet();
+                for (String key : plain.keySet()) {
+                    restoredCache.remove(key);
+                }
+            } finally {
+                storageLock.writeLock().unlock();
+            }
+            encrypted.clear();
+            plain.clear();
+            return true;
+        }
+    }
+
+    private interface CryptoCall<T> {
+        T call() throws GeneralSecurityException;
+    }
+
+    // A plain value of cacheStorage in a snapshot, to tell it apart from an encrypted one.
+    private static final class PlainValue {
+        final Object value;
+
+        PlainValue(Object value) {
+            this.value = value;
+        }
+    }
+
+    static final class CacheEntry {
+        final Persistable.Restore<?> restore;
+        final Object value;
+
+        CacheEntry(Persistable.Restore<?> restore, Object value) {
+            this.restore = restore;
+            this.value = value;
+        }
+    }
+
     public static class EncryptionException extends Exception {
         public static final int ENCRYPT_ERROR = 1;
         public static final int HARDWARE_BACKED_ERROR = 3;
@@ -15,9 +15,13 @@
 
 package com.okta.oidc.storage;
 
+import android.util.Base64;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.TimeoutException;
+
 /**
  * The interface Okta storage.
  */
@@ -47,4 +51,180 @@ public interface OktaStorage {
      * @param key the key
      */
     void delete(@NonNull String key);
+
+    /**
+     * If the storage keeps byte values as they are. Storages that only hold strings keep the
+     * default, values given to {@link #saveBytes(String, byte[])} are then Base64 encoded.
+     *
+     * @return true if byte values are stored without encoding
+     */
+    default boolean supportsBytes() {
+        return false;
+    }
+
+    /**
+     * Save raw data. The default implementation stores the Base64 encoded value with
+     * {@link #save(String, String)}.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    default void saveBytes(@NonNull String key, @NonNull byte[] value) {
+        save(key, Base64.encodeToString(value, Base64.NO_WRAP));
+    }
+
+    /**
+     * Get raw data saved by {@link #saveBytes(String, byte[])}.
+     *
+     * @param key the key
+     * @return the value
+     */
+    @Nullable
+    default byte[] getBytes(@NonNull String key) {
+        String value = get(key);
+        return value == null ? null : Base64.decode(value, Base64.NO_WRAP);
+    }
+
+    /**
+     * Block until all data saved or deleted so far is durable. Storages that write synchronously
+     * don't need to override this. Storages that defer writes must not return before every
+     * pending write has reached persistent storage.
+     */
+    default void flush() {
+        //NO-OP
+    }
+
+    /**
+     * Starts a batch of changes that are written together by {@link Editor#commit()}.
+     * Implementations backed by a single file should override this so the whole batch costs one
+     * write and is applied atomically. The default implementation replays the batch through
+     * {@link #save(String, String)} and {@link #delete(String)} on commit.
+     *
+     * @return the editor
+     */
+    @NonNull
+    default Editor edit() {
+        return new SequentialEditor(this);
+    }
+
+    /**
+     * Set the listener to call when data is changed by someone else than this instance, e.g.
+     * by another process sharing the same file. Storages only used by one instance can ignore
+     * it, which the default implementation does.
+     *
+     * @param listener the listener or null to remove it
+     */
+    default void setOnChangeListener(@Nullable OnChangeListener listener) {
+        //NO-OP
+    }
+
+    /**
+     * Run the task while holding the lock with the given name. Storages shared between processes
+     * must override this so the lock excludes every process. Before the task runs, changes made
+     * by other holders of the lock must be visible. The default implementation only excludes
+     * threads of this process using this instance.
+     *
+     * @param name the name of the lock
+     * @param task the task to run
+     * @param <T>  the result type
+     * @param <E>  the exception thrown by the task
+     * @return the result of the task
+     * @throws E the exception thrown by the task
+     */
+    default <T, E extends Exception> T runExclusive(@NonNull String name,
+                                                    @NonNull ExclusiveTask<T, E> task) throws E {
+        synchronized (this) {
+            return task.run();
+        }
+    }
+
+    /**
+     * Like {@link #runExclusive(String, ExclusiveTask)}, but stops waiting for the lock once
+     * the timeout has passed. The default implementation can't bound the wait and calls
+     * {@link #runExclusive(String, ExclusiveTask)}. Storages whose lock other processes hold
+     * should override this.
+     *
+     * @param name      the name of the lock
+     * @param timeoutMs the longest time to wait for the lock, in milliseconds
+     * @param task      the task to run
+     * @param <T>       the result type
+     * @param <E>       the exception thrown by the task
+     * @return the result of the task
+     * @throws E               the exception thrown by the task
+     * @throws TimeoutException if the lock wasn't acquired in time, the task didn't run
+     */
+    default <T, E extends Exception> T runExclusive(@NonNull String name, long timeoutMs,
+                                                    @NonNull ExclusiveTask<T, E> task)
+            throws E, TimeoutException {
+        return runExclusive(name, task);
+    }
+
+    /**
+     * Listener for changes that were not made through this storage instance.
+     */
+    interface OnChangeListener {
+        /**
+         * Called after the data has changed. Any copy of the data may be stale.
+         */
+        void onChange();
+    }
+
+    /**
+     * A task run by {@link OktaStorage#runExclusive(String, ExclusiveTask)}.
+     *
+     * @param <T> the result type
+     * @param <E> the exception thrown by the task
+     */
+    interface ExclusiveTask<T, E extends Exception> {
+        /**
+         * Run the task.
+         *
+         * @return the result
+         * @throws E if the task failed
+         */
+        T run() throws E;
+    }
+
+    /**
+     * A batch of changes to a {@link OktaStorage}. Nothing is written until {@link #commit()}.
+     */
+    interface Editor {
+        /**
+         * Save the data when the batch is committed.
+         *
+         * @param key   the key
+         * @param value the value
+         * @return this editor
+         */
+        @NonNull
+        Editor put(@NonNull String key, @NonNull String value);
+
+        /**
+         * Save raw data when the batch is committed, it is read back with
+         * {@link OktaStorage#getBytes(String)}. The default implementation stores the Base64
+         * encoded value with {@link #put(String, String)}.
+         *
+         * @param key   the key
+         * @param value the value
+         * @return this editor
+         */
+        @NonNull
+        default Editor putBytes(@NonNull String key, @NonNull byte[] value) {
+            return put(key, Base64.encodeToString(value, Base64.NO_WRAP));
+        }
+
+        /**
+         * Delete the data when the batch is committed.
+         *
+         * @param key the key
+         * @return this editor
+         */
+        @NonNull
+        Editor remove(@NonNull String key);
+
+        /**
+         * Write all changes of this batch.
+         */
+        void commit();
+    }
 }
@@ -29,10 +29,56 @@ public interface Persistable {
 
     String persist();
 
+    /**
+     * Non-secret data that is stored unencrypted next to the record so it can be read without
+     * decrypting the record. Must never contain tokens or other secrets.
+     *
+     * @return the metadata or null if the record has none.
+     */
+    @Nullable
+    default String persistMetadata() {
+        return null;
+    }
+
+    /**
+     * Compact binary form of the record, written with {@link RecordWriter}. Used instead of
+     * {@link #persist()} when the storage keeps raw bytes.
+     *
+     * @return the record or null if it only has the string form.
+     */
+    @Nullable
+    default byte[] persistBytes() {
+        return null;
+    }
+
     interface Restore<T> {
         @NonNull
         String getKey();
 
         T restore(@Nullable String data);
+
+        /**
+         * Restores data stored as bytes. Implementations that write {@link #persistBytes()}
+         * must also accept the UTF-8 string form that older versions stored.
+         *
+         * @param data the stored data
+         * @return the restored record
+         */
+        default T restore(@Nullable byte[] data) {
+            return restore(data == null ? null : new String(data, RecordWriter.UTF_8));
+        }
+
+        /**
+         * Copy of a restored record. The repository caches restored records and hands every
+         * caller its own copy, so records that can be changed must override this. Records that
+         * can't be changed are returned as they are.
+         *
+         * @param value the restored record
+         * @return the copy
+         */
+        @NonNull
+        default T copy(@NonNull T value) {
+            return value;
+        }
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads records written by {@link RecordWriter}. Fields are visited in order with
+ * {@link #next()}, a field that is not read is skipped:
+ * <pre>{@code
+ * while (reader.next()) {
+ *     switch (reader.getTag()) {
+ *         case TAG_NAME:
+ *             name = reader.readString();
+ *             break;
+ *         default:
+ *             break;
+ *     }
+ * }
+ * }</pre>
+ * A malformed record throws {@link IllegalArgumentException}.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class RecordReader {
+    private final byte[] mData;
+    private final int mVersion;
+    private int mPosition;
+    private int mTag;
+    private int mFieldEnd;
+
+    private RecordReader(byte[] data) {
+        mData = data;
+        mPosition = 1;
+        mVersion = readVarInt();
+        mFieldEnd = mPosition;
+    }
+
+    /**
+     * Opens a record.
+     *
+     * @param data stored data
+     * @return the reader or null if the data is not a record, e.g. a value stored as JSON.
+     */
+    @Nullable
+    public static RecordReader of(@Nullable byte[] data) {
+        if (data == null || data.length == 0 || data[0] != RecordWriter.MAGIC) {
+            return null;
+        }
+        return new RecordReader(data);
+    }
+
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Moves to the next field.
+     *
+     * @return false if there are no more fields
+     */
+    public boolean next() {
+        mPosition = mFieldEnd;
+        if (mPosition >= mData.length) {
+            return false;
+        }
+        mTag = readVarInt();
+        int length = readVarInt();
+        mFieldEnd = checkedEnd(length);
+        return true;
+    }
+
+    public int getTag() {
+        return mTag;
+    }
+
+    public String readString() {
+        return new String(mData, mPosition, mFieldEnd - mPosition, RecordWriter.UTF_8);
+    }
+
+    public long readLong() {
+        return readVarLong();
+    }
+
+    public boolean readBoolean() {
+        return mFieldEnd > mPosition && mData[mPosition] != 0;
+    }
+
+    public String[] readStringArray() {
+        int size = readSize();
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = readNullableString();
+        }
+        return values;
+    }
+
+    public Map<String, String> readStringMap() {
+        int size = readSize();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            values.put(readNullableString(), readNullableString());
+        }
+        return values;
+    }
+
+    private int readSize() {
+        int size = readVarInt();
+        // Every entry takes at least one byte.
+        if (size < 0 || size > mFieldEnd - mPosition) {
+            throw new IllegalArgumentException("Malformed record");
+        }
+        return size;
+    }
+
+    private String readNullableString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > mFieldEnd - mPosition) {
+            throw new IllegalArgumentException("Malformed record");
+        }
+        int start = mPosition;
+        mPosition += length - 1;
+        return new String(mData, start, length - 1, RecordWriter.UTF_8);
+    }
+
+    private int checkedEnd(int length) {
+        if (length < 0 || length > mData.length - mPosition) {
+            throw new IllegalArgumentException("Malformed record");
+        }
+        return mPosition + length;
+    }
+
+    private int readVarInt() {
+        long value = readVarLong();
+        if ((value & ~0xFFFFFFFFL) != 0) {
+            throw new IllegalArgumentException("Malformed record");
+        }
+        return (int) value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (mPosition >= mData.length) {
+                throw new IllegalArgumentException("Malformed record");
+            }
+            byte b = mData[mPosition++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed record");
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Writes the compact binary form of a {@link Persistable}. A record is a header followed by
+ * fields, each field is a tag, a length and the value. Readers skip tags they don't know, so
+ * fields can be added without breaking older versions of the library. Null values are not
+ * written at all and read back as the field default.
+ *
+ * @hide
+ * @see RecordReader
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class RecordWriter {
+    // Never the first byte of UTF-8 text, so records are told apart from older JSON values.
+    static final byte MAGIC = (byte) 0x80;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int INITIAL_SIZE = 256;
+
+    private final ByteArrayOutputStream mOut = new ByteArrayOutputStream(INITIAL_SIZE);
+
+    /**
+     * Starts a record.
+     *
+     * @param version the version of the record layout, returned by
+     *                {@link RecordReader#getVersion()}
+     */
+    public RecordWriter(int version) {
+        mOut.write(MAGIC);
+        writeVarInt(mOut, version);
+    }
+
+    public RecordWriter putString(int tag, @Nullable String value) {
+        if (value != null) {
+            putBytes(tag, value.getBytes(UTF_8));
+        }
+        return this;
+    }
+
+    public RecordWriter putLong(int tag, long value) {
+        ByteArrayOutputStream field = new ByteArrayOutputStream(10);
+        writeVarLong(field, value);
+        return putBytes(tag, field.toByteArray());
+    }
+
+    public RecordWriter putBoolean(int tag, boolean value) {
+        return putBytes(tag, new byte[]{(byte) (value ? 1 : 0)});
+    }
+
+    public RecordWriter putStringArray(int tag, @Nullable String[] values) {
+        if (values != null) {
+            ByteArrayOutputStream field = new ByteArrayOutputStream();
+            writeVarInt(field, values.length);
+            for (String value : values) {
+                writeString(field, value);
+            }
+            putBytes(tag, field.toByteArray());
+        }
+        return this;
+    }
+
+    public RecordWriter putStringMap(int tag, @Nullable Map<String, String> values) {
+        if (values != null) {
+            ByteArrayOutputStream field = new ByteArrayOutputStream();
+            writeVarInt(field, values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeString(field, entry.getKey());
+                writeString(field, entry.getValue());
+            }
+            putBytes(tag, field.toByteArray());
+        }
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return mOut.toByteArray();
+    }
+
+    private RecordWriter putBytes(int tag, byte[] value) {
+        if (tag <= 0) {
+            throw new IllegalArgumentException("tag must be positive");
+        }
+        writeVarInt(mOut, tag);
+        writeVarInt(mOut, value.length);
+        mOut.write(value, 0, value.length);
+        return this;
+    }
+
+    // Array and map entries can be null, the length is written shifted by one to keep 0 for null.
+    private static void writeString(ByteArrayOutputStream out, @Nullable String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Default {@link OktaStorage.Editor} for storages that only support single record writes.
+ * Changes are coalesced per key and replayed one by one on commit.
+ */
+class SequentialEditor implements OktaStorage.Editor {
+    private final OktaStorage mStorage;
+    // A String or byte[] value, null means remove.
+    private final Map<String, Object> mChanges = new LinkedHashMap<>();
+
+    SequentialEditor(OktaStorage storage) {
+        mStorage = storage;
+    }
+
+    @NonNull
+    @Override
+    public OktaStorage.Editor put(@NonNull String key, @NonNull String value) {
+        mChanges.remove(key);
+        mChanges.put(key, value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public OktaStorage.Editor putBytes(@NonNull String key, @NonNull byte[] value) {
+        mChanges.remove(key);
+        mChanges.put(key, value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public OktaStorage.Editor remove(@NonNull String key) {
+        mChanges.remove(key);
+        mChanges.put(key, null);
+        return this;
+    }
+
+    @Override
+    public void commit() {
+        for (Map.Entry<String, Object> change : mChanges.entrySet()) {
+            Object value = change.getValue();
+            if (value == null) {
+                mStorage.delete(change.getKey());
+            } else if (value instanceof byte[]) {
+                mStorage.saveBytes(change.getKey(), (byte[]) value);
+            } else {
+                mStorage.save(change.getKey(), (String) value);
+            }
+        }
+        mChanges.clear();
+    }
+}
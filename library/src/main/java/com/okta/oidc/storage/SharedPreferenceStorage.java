@@ -29,11 +29,17 @@ import static android.content.Context.MODE_PRIVATE;
  * A implementation of {@link OktaStorage}.
  * The implementation uses SharedPreferences in private mode to save data.
  * The data will be encrypted by the library before saving.
+ * <p>
+ * In write-behind mode changes are visible in memory right away and written to disk on a
+ * background thread. Repeated writes are coalesced so only the latest state is written. Pending
+ * writes are flushed by the platform when an Activity or Service stops, or explicitly by
+ * {@link #flush()}.
  */
 @SuppressLint("ApplySharedPref")
 public class SharedPreferenceStorage implements OktaStorage {
     @VisibleForTesting
     protected SharedPreferences prefs;
+    private final boolean writeBehind;
 
     /**
      * Instantiates a new instance.
@@ -52,13 +58,26 @@ public class SharedPreferenceStorage implements OktaStorage {
      * @param prefName the preferences file name.
      */
     public SharedPreferenceStorage(Context context, String prefName) {
+        this(context, prefName, false);
+    }
+
+    /**
+     * Instantiates a new instance.
+     *
+     * @param context     the context
+     * @param prefName    the preferences file name.
+     * @param writeBehind true to write to disk in the background instead of on the calling
+     *                    thread.
+     */
+    public SharedPreferenceStorage(Context context, String prefName, boolean writeBehind) {
         prefs = context.getSharedPreferences(prefName == null ?
                 SharedPreferenceStorage.class.getCanonicalName() : prefName, MODE_PRIVATE);
+        this.writeBehind = writeBehind;
     }
 
     @Override
     public void save(@NonNull String key, @NonNull String value) {
-        prefs.edit().putString(key, value).commit();
+        write(prefs.edit().putString(key, value));
     }
 
     @Nullable
@@ -70,6 +89,49 @@ public class SharedPreferenceStorage implements OktaStorage {
 
     @Override
     public void delete(@NonNull String key) {
-        prefs.edit().remove(key).commit();
+        write(prefs.edit().remove(key));
+    }
+
+    @Override
+    public void flush() {
+        if (writeBehind) {
+            // A synchronous commit is queued behind all pending apply() calls and only returns
+            // once they are on disk.
+            prefs.edit().commit();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        final SharedPreferences.Editor editor = prefs.edit();
+        return new Editor() {
+            @NonNull
+            @Override
+            public Editor put(@NonNull String key, @NonNull String value) {
+                editor.putString(key, value);
+                return this;
+            }
+
+            @NonNull
+            @Override
+            public Editor remove(@NonNull String key) {
+                editor.remove(key);
+                return this;
+            }
+
+            @Override
+            public void commit() {
+                write(editor);
+            }
+        };
+    }
+
+    private void write(SharedPreferences.Editor editor) {
+        if (writeBehind) {
+            editor.apply();
+        } else {
+            editor.commit();
+        }
     }
 }
@@ -26,6 +26,8 @@ import androidx.annotation.RestrictTo;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.InvalidParameterException;
@@ -39,14 +41,37 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.ProviderException;
 import java.security.PublicKey;
+import java.security.SecureRandom;
 import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.OAEPParameterSpec;
 import javax.crypto.spec.PSource;
-
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Values are stored in an envelope format:
+ * {@code v2:<RSA wrapped AES key>:<IV + AES-GCM ciphertext>}, both parts Base64 encoded.
+ * The AES-256 data key is generated in software and wrapped by the keystore RSA key, so a value
+ * costs at most one RSA operation however large it is. Unwrapped data keys are kept in memory
+ * for the lifetime of the process unless user authentication is required, in which case every
+ * decrypt goes through the keystore again. Values written in the legacy format, RSA encrypted
+ * chunks separated by commas, are still decrypted. The byte API uses a binary form of the
+ * envelope: version byte, wrapped key length, wrapped key, IV and ciphertext.
+ * <p>
+ * Encrypt and decrypt are thread safe. Every operation leases its own initialized cipher from a
+ * pool, so keystore ciphers are only initialized again after the keys change. If user
+ * authentication is required the shared {@code mCipher} is used instead, serialized, because it
+ * may be the cipher authenticated by the user.
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public abstract class BaseEncryptionManager implements EncryptionManager {
     private static final String TAG = BaseEncryptionManager.class.getSimpleName();
@@ -68,8 +93,53 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
     private static final int CHUNK_SIZE = (int) (((RSA_KEY_SIZE / 8) - 11) * 0.5);
     private static final String CHUNK_SEPARATOR = ",";
 
+    private static final String ENVELOPE_HEADER = "v2:";
+    private static final char ENVELOPE_SEPARATOR = ':';
+    private static final String DATA_KEY_ALGORITHM = "AES";
+    private static final String DATA_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int DATA_KEY_SIZE = 256;
+    private static final int GCM_IV_SIZE = 12;
+    private static final int GCM_TAG_SIZE = 128;
+    private static final byte[] TEXT_AAD = toBytes(ENVELOPE_HEADER);
+    // Binary format: version, wrapped key length (2 bytes), wrapped key, IV, ciphertext.
+    private static final byte BINARY_VERSION = 2;
+    private static final int BINARY_HEADER_SIZE = 3;
+    private static final byte[] BINARY_AAD = {BINARY_VERSION};
+    private static final int MAX_IDLE_CIPHERS = 4;
+
+    private final SecureRandom mRandom = new SecureRandom();
+    // Data key used by encrypt. Not kept if user authentication is required.
+    private volatile DataKey mDataKey;
+    // Wrapped data key to the unwrapped key, so every data key is unwrapped once per process.
+    private final Map<String, SecretKey> mUnwrappedKeys = new ConcurrentHashMap<>();
+    // Keys locked behind user authentication are only kept while the session is unlocked.
+    private final UnlockedSession mSession = new UnlockedSession();
+
     protected KeyStore mKeyStore;
     protected Cipher mCipher;
+    private final KeyHandleCache mKeyHandles = new KeyHandleCache(new KeyHandleCache.Loader() {
+        @Override
+        public PublicKey loadPublicKey() throws GeneralSecurityException {
+            PublicKey key = mKeyStore.getCertificate(mKeyAlias).getPublicKey();
+            // workaround for using public key
+            // from https://developer.android.com/reference/android/security/keystore/KeyGenParameterSpec.html#known-issues
+            return KeyFactory.getInstance(key.getAlgorithm())
+                    .generatePublic(new X509EncodedKeySpec(key.getEncoded()));
+        }
+
+        @Override
+        public PrivateKey loadPrivateKey() throws GeneralSecurityException {
+            return (PrivateKey) mKeyStore.getKey(mKeyAlias, null);
+        }
+    });
+    private final Object mCipherLock = new Object();
+
+    private final CipherPool mWrapCiphers =
+            new CipherPool(() -> createKeyCipher(Cipher.ENCRYPT_MODE), MAX_IDLE_CIPHERS);
+    private final CipherPool mUnwrapCiphers =
+            new CipherPool(() -> createKeyCipher(Cipher.DECRYPT_MODE), MAX_IDLE_CIPHERS);
+    private final CipherPool mDataCiphers =
+            new CipherPool(() -> Cipher.getInstance(DATA_TRANSFORMATION), MAX_IDLE_CIPHERS);
 
     private long initCipherStart = System.currentTimeMillis();
 
@@ -182,14 +252,14 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
         }
     }
 
-    private boolean initCipher(String keyAlias, int mode) throws GeneralSecurityException {
+    private boolean initCipher(Cipher cipher, int mode) throws GeneralSecurityException {
         switch (mode) {
             case Cipher.ENCRYPT_MODE:
-                initEncodeCipher(keyAlias, mode);
+                initEncodeCipher(cipher, mode);
                 break;
 
             case Cipher.DECRYPT_MODE:
-                initDecodeCipher(keyAlias, mode);
+                initDecodeCipher(cipher, mode);
                 break;
             default:
                 return false; //this cipher is only for encode\decode
@@ -206,10 +276,10 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
         return errorMessage;
     }
 
-    private void initDecodeCipher(String keyAlias, int mode) throws GeneralSecurityException {
-        PrivateKey key = (PrivateKey) mKeyStore.getKey(keyAlias, null);
+    private void initDecodeCipher(Cipher cipher, int mode) throws GeneralSecurityException {
+        PrivateKey key = mKeyHandles.getPrivateKey();
         try {
-            mCipher.init(mode, key);
+            cipher.init(mode, key);
         } catch (InvalidKeyException e) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 if (e instanceof UserNotAuthenticatedException) {
@@ -221,13 +291,8 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
         }
     }
 
-    private void initEncodeCipher(String keyAlias, int mode) throws GeneralSecurityException {
-        PublicKey key = mKeyStore.getCertificate(keyAlias).getPublicKey();
-
-        // workaround for using public key
-        // from https://developer.android.com/reference/android/security/keystore/KeyGenParameterSpec.html#known-issues
-        PublicKey unrestricted = KeyFactory.getInstance(key.getAlgorithm())
-                .generatePublic(new X509EncodedKeySpec(key.getEncoded()));
+    private void initEncodeCipher(Cipher cipher, int mode) throws GeneralSecurityException {
+        PublicKey unrestricted = mKeyHandles.getPublicKey();
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !mIsStrongBoxBacked) {
             // from https://code.google.com/p/android/issues/detail?id=197719
@@ -236,77 +301,351 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
             OAEPParameterSpec spec = new OAEPParameterSpec("SHA-256", "MGF1",
                     MGF1ParameterSpec.SHA1, PSource.PSpecified.DEFAULT);
 
-            mCipher.init(mode, unrestricted, spec);
+            cipher.init(mode, unrestricted, spec);
         } else {
-            mCipher.init(mode, unrestricted);
+            cipher.init(mode, unrestricted);
+        }
+    }
+
+    private Cipher createKeyCipher(int mode) throws GeneralSecurityException {
+        Cipher cipher = createCipher(mTransformationString);
+        initCipher(cipher, mode);
+        return cipher;
+    }
+
+    /**
+     * Runs an operation with a keystore cipher initialized for the mode.
+     */
+    private <T> T withKeyCipher(int mode, CipherOperation<T> operation)
+            throws GeneralSecurityException {
+        if (mIsAuthenticateUserRequired) {
+            synchronized (mCipherLock) {
+                initCipher(mCipher, mode);
+                return operation.apply(mCipher);
+            }
+        }
+        return withCipher(mode == Cipher.ENCRYPT_MODE ? mWrapCiphers : mUnwrapCiphers,
+                operation);
+    }
+
+    private static <T> T withCipher(CipherPool pool, CipherOperation<T> operation)
+            throws GeneralSecurityException {
+        CipherPool.Lease lease = pool.acquire();
+        try {
+            return operation.apply(lease.getCipher());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // The cipher may be left in an unknown state.
+            lease.discard();
+            throw e;
+        } finally {
+            lease.close();
         }
     }
 
     @Override
     public String encrypt(String inputString) throws GeneralSecurityException {
         if (inputString != null && inputString.length() > 0) {
-            if (mCipher == null) {
-                throw new InvalidParameterException(
-                        "Cipher is null. Please initialize proper cipher");
-            }
-            if (initCipher(mKeyAlias, Cipher.ENCRYPT_MODE)) {
-                StringBuilder encryptedBuilder = new StringBuilder();
-                int chunkStart = 0;
-                while (chunkStart < inputString.length()) {
-                    int chunkEnd = chunkStart + CHUNK_SIZE;
-                    byte[] chunk = inputString.substring(
-                            chunkStart,
-                            chunkEnd < inputString.length() ? chunkEnd : inputString.length()
-                    ).getBytes();
-                    byte[] bytes = mCipher.doFinal(chunk);
-                    chunkStart = chunkEnd;
-                    encryptedBuilder.append(Base64.encodeToString(bytes, Base64.NO_WRAP));
-                    if (chunkStart < inputString.length()) {
-                        encryptedBuilder.append(CHUNK_SEPARATOR);
-                    }
-                }
-                return encryptedBuilder.toString();
-            }
+            checkCipher();
+            DataKey dataKey = getEncryptionKey();
+            byte[] payload = seal(dataKey.mKey, TEXT_AAD, toBytes(inputString), 0);
+            return ENVELOPE_HEADER + dataKey.mWrapped + ENVELOPE_SEPARATOR
+                    + Base64.encodeToString(payload, Base64.NO_WRAP);
         }
         return inputString;
     }
 
+    @Override
+    public byte[] encrypt(byte[] input) throws GeneralSecurityException {
+        if (input != null && input.length > 0) {
+            checkCipher();
+            DataKey dataKey = getEncryptionKey();
+            byte[] wrapped = dataKey.mWrappedBytes;
+            int headerSize = BINARY_HEADER_SIZE + wrapped.length;
+            byte[] output = seal(dataKey.mKey, BINARY_AAD, input, headerSize);
+            ByteBuffer.wrap(output)
+                    .put(BINARY_VERSION)
+                    .putShort((short) wrapped.length)
+                    .put(wrapped);
+            return output;
+        }
+        return input;
+    }
+
     @Override
     public String decrypt(String encryptedString) throws GeneralSecurityException {
         try {
             if (encryptedString != null && encryptedString.length() > 0) {
-                if (mCipher == null) {
-                    throw new InvalidParameterException(
-                            "Cipher is null. Please initialize proper cipher");
-                }
-                if (initCipher(mKeyAlias, Cipher.DECRYPT_MODE)) {
-                    StringBuilder decryptedBuilder = new StringBuilder();
-                    String[] chunks = encryptedString.split(CHUNK_SEPARATOR);
-                    for (String chunk : chunks) {
-                        byte[] bytes = Base64.decode(chunk, Base64.NO_WRAP);
-                        decryptedBuilder.append(new String(mCipher.doFinal(bytes)));
-                    }
-                    return decryptedBuilder.toString();
+                checkCipher();
+                if (encryptedString.startsWith(ENVELOPE_HEADER)) {
+                    return decryptEnvelope(encryptedString);
                 }
+                return decryptLegacy(encryptedString);
             }
             return encryptedString;
         } catch (IllegalBlockSizeException e) {
-            // We generate keys using UserAuthenticationValidityDurationSeconds parameter.
-            // We decrypt data by chunk. This exception could be if this validity duration ended
-            // during decryption. In this reason we check cause exception and provide valid
-            // exception to user space
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
-                    && e.getCause() instanceof UserNotAuthenticatedException) {
-                throw new OktaUserNotAuthenticateException(
-                        getUserNotAuthenticatedMessage(mCipher), e);
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public byte[] decrypt(byte[] input) throws GeneralSecurityException {
+        try {
+            if (input != null && input.length > 0) {
+                checkCipher();
+                if (input[0] != BINARY_VERSION) {
+                    // Written with the string API, the binary format never starts with text.
+                    return toBytes(decrypt(new String(input, Charset.forName(DEFAULT_CHARSET))));
+                }
+                if (input.length < BINARY_HEADER_SIZE) {
+                    throw new IllegalBlockSizeException("Malformed encrypted value");
+                }
+                int wrappedLength = ((input[1] & 0xFF) << 8) | (input[2] & 0xFF);
+                int payloadStart = BINARY_HEADER_SIZE + wrappedLength;
+                if (input.length <= payloadStart + GCM_IV_SIZE) {
+                    throw new IllegalBlockSizeException("Malformed encrypted value");
+                }
+                SecretKey key = getDecryptionKey(input, BINARY_HEADER_SIZE, wrappedLength);
+                return open(key, BINARY_AAD, input, payloadStart);
+            }
+            return input;
+        } catch (IllegalBlockSizeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public boolean supportsBytes() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean needsReEncryption(String encryptedString) {
+        return isLegacyFormat(encryptedString);
+    }
+
+    @Override
+    public boolean needsReEncryption(byte[] encrypted) {
+        return isLegacyFormat(encrypted);
+    }
+
+    static boolean isLegacyFormat(String encryptedString) {
+        return encryptedString != null && encryptedString.length() > 0
+                && !encryptedString.startsWith(ENVELOPE_HEADER);
+    }
+
+    static boolean isLegacyFormat(byte[] encrypted) {
+        return encrypted != null && encrypted.length > 0 && encrypted[0] != BINARY_VERSION;
+    }
+
+    private void checkCipher() {
+        if (mCipher == null) {
+            throw new InvalidParameterException(
+                    "Cipher is null. Please initialize proper cipher");
+        }
+    }
+
+    private GeneralSecurityException translate(IllegalBlockSizeException e) {
+        // We generate keys using UserAuthenticationValidityDurationSeconds parameter.
+        // We decrypt data by chunk. This exception could be if this validity duration ended
+        // during decryption. In this reason we check cause exception and provide valid
+        // exception to user space
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                && e.getCause() instanceof UserNotAuthenticatedException) {
+            return new OktaUserNotAuthenticateException(
+                    getUserNotAuthenticatedMessage(mCipher), e);
+        }
+        return e;
+    }
+
+    /**
+     * Encrypts with the data key.
+     *
+     * @return {@code reserved} empty bytes followed by the IV and the ciphertext.
+     */
+    private byte[] seal(SecretKey key, byte[] aad, byte[] plain, int reserved)
+            throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_SIZE];
+        mRandom.nextBytes(iv);
+        return withCipher(mDataCiphers, cipher -> {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_SIZE, iv));
+            cipher.updateAAD(aad);
+            int offset = reserved + GCM_IV_SIZE;
+            byte[] output = new byte[offset + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, output, reserved, GCM_IV_SIZE);
+            int written = cipher.doFinal(plain, 0, plain.length, output, offset);
+            return offset + written == output.length ? output
+                    : Arrays.copyOf(output, offset + written);
+        });
+    }
+
+    /**
+     * Decrypts the IV and ciphertext starting at {@code offset} with the data key.
+     */
+    private byte[] open(SecretKey key, byte[] aad, byte[] input, int offset)
+            throws GeneralSecurityException {
+        try {
+            return withCipher(mDataCiphers, cipher -> {
+                cipher.init(Cipher.DECRYPT_MODE, key,
+                        new GCMParameterSpec(GCM_TAG_SIZE, input, offset, GCM_IV_SIZE));
+                cipher.updateAAD(aad);
+                int start = offset + GCM_IV_SIZE;
+                return cipher.doFinal(input, start, input.length - start);
+            });
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            // SecretKey#isDestroyed() needs API 26, only session keys are ever destroyed.
+            if (key instanceof UnlockedSession.SessionKey
+                    && ((UnlockedSession.SessionKey) key).isDestroyed()) {
+                // The unlocked session ended while decrypting.
+                throw new OktaUserNotAuthenticateException("Unlocked session ended", e);
             }
             throw e;
         }
     }
 
+    private String decryptEnvelope(String encryptedString) throws GeneralSecurityException {
+        int separator = encryptedString.indexOf(ENVELOPE_SEPARATOR, ENVELOPE_HEADER.length());
+        if (separator < 0) {
+            throw new IllegalBlockSizeException("Malformed encrypted value");
+        }
+        String wrapped = encryptedString.substring(ENVELOPE_HEADER.length(), separator);
+        byte[] payload = Base64.decode(encryptedString.substring(separator + 1), Base64.NO_WRAP);
+        if (payload.length <= GCM_IV_SIZE) {
+            throw new IllegalBlockSizeException("Malformed encrypted value");
+        }
+        byte[] plain = open(getDecryptionKey(wrapped), TEXT_AAD, payload, 0);
+        return new String(plain, Charset.forName(DEFAULT_CHARSET));
+    }
+
+    private String decryptLegacy(String encryptedString) throws GeneralSecurityException {
+        return withKeyCipher(Cipher.DECRYPT_MODE, cipher -> {
+            StringBuilder decryptedBuilder = new StringBuilder();
+            String[] chunks = encryptedString.split(CHUNK_SEPARATOR);
+            for (String chunk : chunks) {
+                byte[] bytes = Base64.decode(chunk, Base64.NO_WRAP);
+                decryptedBuilder.append(new String(cipher.doFinal(bytes)));
+            }
+            return decryptedBuilder.toString();
+        });
+    }
+
+    private DataKey getEncryptionKey() throws GeneralSecurityException {
+        DataKey dataKey = mDataKey;
+        if (dataKey != null) {
+            return dataKey;
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(DATA_KEY_ALGORITHM);
+        generator.init(DATA_KEY_SIZE, mRandom);
+        SecretKey key = generator.generateKey();
+        byte[] wrapped = withKeyCipher(Cipher.ENCRYPT_MODE,
+                cipher -> cipher.doFinal(key.getEncoded()));
+        dataKey = new DataKey(key, wrapped);
+        if (!mIsAuthenticateUserRequired) {
+            // Concurrent callers may each create a key, every one of them stays decryptable.
+            mUnwrappedKeys.put(dataKey.mWrapped, key);
+            mDataKey = dataKey;
+        }
+        return dataKey;
+    }
+
+    private SecretKey getDecryptionKey(byte[] source, int offset, int length)
+            throws GeneralSecurityException {
+        DataKey current = mDataKey;
+        if (current != null && regionEquals(current.mWrappedBytes, source, offset, length)) {
+            return current.mKey;
+        }
+        return getDecryptionKey(Base64.encodeToString(source, offset, length, Base64.NO_WRAP));
+    }
+
+    private SecretKey getDecryptionKey(String wrapped) throws GeneralSecurityException {
+        SecretKey key = mUnwrappedKeys.get(wrapped);
+        if (key != null) {
+            return key;
+        }
+        if (mIsAuthenticateUserRequired) {
+            key = mSession.get(wrapped);
+            if (key != null) {
+                return key;
+            }
+        }
+        byte[] wrappedBytes = Base64.decode(wrapped, Base64.NO_WRAP);
+        byte[] raw = withKeyCipher(Cipher.DECRYPT_MODE, cipher -> cipher.doFinal(wrappedBytes));
+        if (mIsAuthenticateUserRequired) {
+            return mSession.unlock(wrapped, raw, DATA_KEY_ALGORITHM);
+        }
+        key = new SecretKeySpec(raw, DATA_KEY_ALGORITHM);
+        mUnwrappedKeys.put(wrapped, key);
+        if (mDataKey == null) {
+            // Keep writing with the key that is already in storage.
+            mDataKey = new DataKey(key, wrappedBytes);
+        }
+        return key;
+    }
+
+    private static boolean regionEquals(byte[] expected, byte[] source, int offset, int length) {
+        if (expected.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (expected[i] != source[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The cached keystore private key.
+     *
+     * @return the private key or null if there is no key.
+     * @throws GeneralSecurityException if the keystore lookup failed
+     */
+    @Nullable
+    protected PrivateKey getPrivateKey() throws GeneralSecurityException {
+        return mKeyHandles.getPrivateKey();
+    }
+
+    /**
+     * Called when the keystore keys were removed or created again. Subclasses drop anything
+     * they cached about the old keys.
+     */
+    protected void onKeysChanged() {
+    }
+
+    /**
+     * The session keeping keys unwrapped after the user authenticated. Only used if the keys
+     * require user authentication.
+     */
+    UnlockedSession getUnlockedSession() {
+        return mSession;
+    }
+
+    private void clearKeyMaterial() {
+        mSession.lock();
+        mKeyHandles.invalidate();
+        onKeysChanged();
+        mDataKey = null;
+        mUnwrappedKeys.clear();
+        mWrapCiphers.invalidate();
+        mUnwrapCiphers.invalidate();
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(Charset.forName(DEFAULT_CHARSET));
+    }
+
     @Override
     public String getHashed(String value) throws NoSuchAlgorithmException,
             UnsupportedEncodingException {
+        return hash(value);
+    }
+
+    static String hash(String value) throws NoSuchAlgorithmException,
+            UnsupportedEncodingException {
         final MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] result = digest.digest(value.getBytes(DEFAULT_CHARSET));
         return toHex(result);
@@ -322,17 +661,21 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
         } catch (GeneralSecurityException e) {
             throw new RuntimeException("Failed init Cipher", e.getCause());
         }
+        mWrapCiphers.invalidate();
+        mUnwrapCiphers.invalidate();
         resetTimer();
     }
 
     @Override
     public void removeKeys() {
+        clearKeyMaterial();
         deleteInvalidKey(mKeyAlias);
     }
 
     @Override
     public void recreateKeys(Context context) {
         prepare(context, false);
+        clearKeyMaterial();
     }
 
     @Override
@@ -353,6 +696,22 @@ public abstract class BaseEncryptionManager implements EncryptionManager {
         return (System.currentTimeMillis() - initCipherStart) / MS_TO_SECOND;
     }
 
+    private interface CipherOperation<T> {
+        T apply(Cipher cipher) throws GeneralSecurityException;
+    }
+
+    private static final class DataKey {
+        final SecretKey mKey;
+        final byte[] mWrappedBytes;
+        final String mWrapped;
+
+        DataKey(SecretKey key, byte[] wrapped) {
+            mKey = key;
+            mWrappedBytes = wrapped;
+            mWrapped = Base64.encodeToString(wrapped, Base64.NO_WRAP);
+        }
+    }
+
     public static class OktaUserNotAuthenticateException extends InvalidKeyException {
         OktaUserNotAuthenticateException(String message, Throwable cause) {
             super(message, cause);
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import androidx.annotation.RestrictTo;
+
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+
+/**
+ * @hide Pool of {@link Cipher} instances. A cipher is owned by exactly one thread between
+ * {@link #acquire()} and {@link Lease#close()}, so callers never share an instance. Ciphers are
+ * created and initialized by the factory, and are reused as they are until
+ * {@link #invalidate()} is called, for example because the keys changed.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+final class CipherPool {
+    interface Factory {
+        Cipher create() throws GeneralSecurityException;
+    }
+
+    private final Factory mFactory;
+    private final int mMaxIdle;
+    private final Queue<Lease> mIdle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mIdleCount = new AtomicInteger();
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    CipherPool(Factory factory, int maxIdle) {
+        mFactory = factory;
+        mMaxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle cipher or creates a new one. The caller owns it until the lease is closed.
+     *
+     * @return the lease
+     * @throws GeneralSecurityException if a new cipher could not be created.
+     */
+    Lease acquire() throws GeneralSecurityException {
+        int generation = mGeneration.get();
+        Lease lease;
+        while ((lease = mIdle.poll()) != null) {
+            mIdleCount.decrementAndGet();
+            if (lease.mGeneration == generation) {
+                return lease;
+            }
+        }
+        return new Lease(mFactory.create(), generation);
+    }
+
+    /**
+     * Drops every idle cipher. Ciphers that are currently leased are dropped when returned.
+     */
+    void invalidate() {
+        mGeneration.incrementAndGet();
+        while (mIdle.poll() != null) {
+            mIdleCount.decrementAndGet();
+        }
+    }
+
+    int getIdleCount() {
+        return mIdleCount.get();
+    }
+
+    private void release(Lease lease) {
+        if (lease.mGeneration != mGeneration.get()) {
+            return;
+        }
+        if (mIdleCount.incrementAndGet() > mMaxIdle) {
+            mIdleCount.decrementAndGet();
+            return;
+        }
+        mIdle.offer(lease);
+    }
+
+    final class Lease implements AutoCloseable {
+        private final Cipher mCipher;
+        private final int mGeneration;
+        private boolean mBroken;
+
+        private Lease(Cipher cipher, int generation) {
+            mCipher = cipher;
+            mGeneration = generation;
+        }
+
+        Cipher getCipher() {
+            return mCipher;
+        }
+
+        /**
+         * Marks the cipher as unusable, it will not be returned to the pool.
+         */
+        void discard() {
+            mBroken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!mBroken) {
+                release(this);
+            }
+        }
+    }
+}
@@ -17,19 +17,12 @@ package com.okta.oidc.storage.security;
 
 import android.content.Context;
 
-import java.io.UnsupportedEncodingException;
-import java.security.GeneralSecurityException;
-import java.security.NoSuchAlgorithmException;
-
-import javax.crypto.Cipher;
-
 /**
  * A implementation of {@link EncryptionManager}.
  */
-public class DefaultEncryptionManager implements EncryptionManager {
+public class DefaultEncryptionManager extends DelegatingEncryptionManager {
     private static final String KEY_STORE = "AndroidKeyStore";
     private static final String KEY_ALIAS = "key_for_pin";
-    private final EncryptionManager mEncryptionManager;
 
     /**
      * Constructor requires a context.
@@ -37,63 +30,25 @@ public class DefaultEncryptionManager implements EncryptionManager {
      * @param context context
      */
     public DefaultEncryptionManager(Context context) {
-        mEncryptionManager = EncryptionManagerFactory.createEncryptionManager(context, KEY_STORE,
-                KEY_ALIAS, false, -1, true);
-    }
-
-    @Override
-    public String encrypt(String value) throws GeneralSecurityException {
-        return mEncryptionManager.encrypt(value);
-    }
-
-    @Override
-    public String decrypt(String value) throws GeneralSecurityException {
-        return mEncryptionManager.decrypt(value);
-    }
-
-    @Override
-    public String getHashed(String value) throws NoSuchAlgorithmException,
-            UnsupportedEncodingException {
-        return mEncryptionManager.getHashed(value);
-    }
-
-    @Override
-    public boolean isHardwareBackedKeyStore() {
-        return mEncryptionManager.isHardwareBackedKeyStore();
-    }
-
-    @Override
-    public void recreateCipher() {
-        mEncryptionManager.recreateCipher();
+        this(context, false);
     }
 
-    @Override
-    public void setCipher(Cipher cipher) {
-        mEncryptionManager.setCipher(cipher);
-    }
-
-    @Override
-    public Cipher getCipher() {
-        return mEncryptionManager.getCipher();
+    /**
+     * Constructor requires a context. If prepareInBackground is true the keys are generated
+     * and loaded on a background thread and the constructor returns right away, so it is safe
+     * to call on the main thread. Operations that need the keys wait for
+     * {@link #getReadiness()}.
+     *
+     * @param context             context
+     * @param prepareInBackground prepare the keys on a background thread
+     */
+    public DefaultEncryptionManager(Context context, boolean prepareInBackground) {
+        super(() -> EncryptionManagerFactory.createEncryptionManager(context, KEY_STORE,
+                KEY_ALIAS, false, -1, true), prepareInBackground);
     }
 
     @Override
     public boolean isUserAuthenticatedOnDevice() {
         return true;
     }
-
-    @Override
-    public void removeKeys() {
-        mEncryptionManager.removeKeys();
-    }
-
-    @Override
-    public void recreateKeys(Context context) {
-        mEncryptionManager.recreateKeys(context);
-    }
-
-    @Override
-    public boolean isValidKeys() {
-        return mEncryptionManager.isValidKeys();
-    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import android.content.Context;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.crypto.Cipher;
+
+/**
+ * Base of the public encryption managers. The keystore backed manager is created by a task that
+ * either runs in the constructor or on a background thread. In the second case every method that
+ * needs the keystore waits for the task, methods that don't, like {@link #getHashed(String)},
+ * never wait.
+ */
+abstract class DelegatingEncryptionManager implements EncryptionManager {
+    // Keys are prepared one at a time, so two managers never generate the same alias at once.
+    private static final ExecutorService KEY_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "okta-keystore");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final FutureTask<EncryptionManager> mEncryptionManager;
+
+    DelegatingEncryptionManager(Callable<EncryptionManager> factory, boolean inBackground) {
+        mEncryptionManager = new FutureTask<>(factory);
+        if (inBackground) {
+            KEY_EXECUTOR.execute(mEncryptionManager);
+        } else {
+            mEncryptionManager.run();
+            // Surface failures from the constructor as before.
+            getEncryptionManager();
+        }
+    }
+
+    /**
+     * Completes once the keystore keys and ciphers are ready. Waiting for it is optional, every
+     * operation that needs the keys waits on its own.
+     *
+     * @return the readiness future
+     */
+    public Future<?> getReadiness() {
+        return mEncryptionManager;
+    }
+
+    EncryptionManager getEncryptionManager() {
+        try {
+            return mEncryptionManager.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Failed initialize EncryptionManager", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while initializing EncryptionManager", e);
+        }
+    }
+
+    @Override
+    public String encrypt(String value) throws GeneralSecurityException {
+        return getEncryptionManager().encrypt(value);
+    }
+
+    @Override
+    public String decrypt(String value) throws GeneralSecurityException {
+        return getEncryptionManager().decrypt(value);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] value) throws GeneralSecurityException {
+        return getEncryptionManager().encrypt(value);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] value) throws GeneralSecurityException {
+        return getEncryptionManager().decrypt(value);
+    }
+
+    @Override
+    public boolean needsReEncryption(byte[] value) {
+        return BaseEncryptionManager.isLegacyFormat(value);
+    }
+
+    @Override
+    public boolean needsReEncryption(String value) {
+        return BaseEncryptionManager.isLegacyFormat(value);
+    }
+
+    @Override
+    public boolean supportsBytes() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public String getHashed(String value) throws NoSuchAlgorithmException,
+            UnsupportedEncodingException {
+        return BaseEncryptionManager.hash(value);
+    }
+
+    @Override
+    public boolean isHardwareBackedKeyStore() {
+        return getEncryptionManager().isHardwareBackedKeyStore();
+    }
+
+    @Override
+    public void recreateCipher() {
+        getEncryptionManager().recreateCipher();
+    }
+
+    @Override
+    public void setCipher(Cipher cipher) {
+        getEncryptionManager().setCipher(cipher);
+    }
+
+    @Override
+    public Cipher getCipher() {
+        return getEncryptionManager().getCipher();
+    }
+
+    @Override
+    public boolean isUserAuthenticatedOnDevice() {
+        return getEncryptionManager().isUserAuthenticatedOnDevice();
+    }
+
+    @Override
+    public void removeKeys() {
+        getEncryptionManager().removeKeys();
+    }
+
+    @Override
+    public void recreateKeys(Context context) {
+        getEncryptionManager().recreateKeys(context);
+    }
+
+    @Override
+    public boolean isValidKeys() {
+        return getEncryptionManager().isValidKeys();
+    }
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import com.okta.oidc.storage.OktaStorage;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 
@@ -49,6 +50,77 @@ public interface EncryptionManager {
      */
     String decrypt(String value) throws GeneralSecurityException;
 
+    /**
+     * encrypts raw data. The default implementation encrypts the UTF-8 string with
+     * {@link #encrypt(String)}, so it only suits data that is a valid UTF-8 string.
+     *
+     * @param value the data.
+     * @return encrypted data.
+     * @throws GeneralSecurityException if has problems with algorithms used.
+     */
+    default byte[] encrypt(byte[] value) throws GeneralSecurityException {
+        if (value == null) {
+            return null;
+        }
+        String encrypted = encrypt(new String(value, Charset.forName("UTF-8")));
+        return encrypted == null ? null : encrypted.getBytes(Charset.forName("UTF-8"));
+    }
+
+    /**
+     * decrypts data encrypted by {@link #encrypt(byte[])}.
+     *
+     * @param value encrypted data.
+     * @return decrypted data.
+     * @throws GeneralSecurityException if has problems with algorithms used.
+     */
+    default byte[] decrypt(byte[] value) throws GeneralSecurityException {
+        if (value == null) {
+            return null;
+        }
+        String decrypted = decrypt(new String(value, Charset.forName("UTF-8")));
+        return decrypted == null ? null : decrypted.getBytes(Charset.forName("UTF-8"));
+    }
+
+    /**
+     * if encrypted data uses an older format and should be encrypted again.
+     *
+     * @param value encrypted data.
+     * @return true if the data should be encrypted again with {@link #encrypt(byte[])}.
+     */
+    default boolean needsReEncryption(byte[] value) {
+        return value != null && needsReEncryption(new String(value, Charset.forName("UTF-8")));
+    }
+
+    /**
+     * if an encrypted value uses an older format and should be encrypted again.
+     *
+     * @param value encrypted value as a string.
+     * @return true if the value should be encrypted again with {@link #encrypt(String)}.
+     */
+    default boolean needsReEncryption(String value) {
+        return false;
+    }
+
+    /**
+     * if {@link #encrypt(byte[])} and {@link #decrypt(byte[])} accept any data, not only UTF-8
+     * strings.
+     *
+     * @return true if raw binary data can be encrypted
+     */
+    default boolean supportsBytes() {
+        return false;
+    }
+
+    /**
+     * if encrypt and decrypt may be called from several threads at the same time.
+     * Callers serialize access to managers that are not thread safe.
+     *
+     * @return true if the manager is thread safe
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * generates SHA-2 hash.
      *
@@ -29,12 +29,9 @@ import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyFactory;
 import java.security.KeyPairGenerator;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.SecureRandom;
-import java.security.UnrecoverableKeyException;
 import java.security.spec.InvalidKeySpecException;
 
 import javax.crypto.Cipher;
@@ -46,6 +43,7 @@ class EncryptionManagerAPI23 extends BaseEncryptionManager {
     private static final String TAG = EncryptionManagerAPI23.class.getSimpleName();
 
     private final int mValidityDurationSeconds;
+    private volatile KeyInfo mKeyInfo;
 
     EncryptionManagerAPI23(Context context, String keyStoreName, String keyAlias,
                            boolean isAuthenticateUserRequired,
@@ -109,26 +107,8 @@ class EncryptionManagerAPI23 extends BaseEncryptionManager {
 
     @Override
     public boolean isHardwareBackedKeyStore() {
-        boolean isHardware = false;
-        try {
-            if (mKeyStore != null && mKeyStore.containsAlias(mKeyAlias)) {
-                PrivateKey key = (PrivateKey) mKeyStore.getKey(mKeyAlias, null);
-                if (key != null) {
-                    KeyFactory factory = KeyFactory.getInstance(key.getAlgorithm(), mKeyStoreName);
-                    KeyInfo keyInfo;
-                    try {
-                        keyInfo = factory.getKeySpec(key, KeyInfo.class);
-                        isHardware = keyInfo.isInsideSecureHardware();
-                    } catch (InvalidKeySpecException e) {
-                        Log.w(TAG, "isHardwareBackedKeyStore: ", e);
-                    }
-                }
-            }
-        } catch (NoSuchAlgorithmException | NoSuchProviderException | UnrecoverableKeyException
-                | KeyStoreException e) {
-            Log.w(TAG, "isHardwareBackedKeyStore: ", e);
-        }
-        return isHardware;
+        KeyInfo keyInfo = getKeyInfo();
+        return keyInfo != null && keyInfo.isInsideSecureHardware();
     }
 
     @Override
@@ -137,17 +117,15 @@ class EncryptionManagerAPI23 extends BaseEncryptionManager {
             return false;
         }
         try {
-            PrivateKey key = (PrivateKey) mKeyStore.getKey(mKeyAlias, null);
-            try {
-                KeyFactory factory = KeyFactory.getInstance(key.getAlgorithm(), mKeyStoreName);
-                KeyInfo keyInfo = factory.getKeySpec(key, KeyInfo.class);
-                if (!keyInfo.isUserAuthenticationRequired()) {
-                    return true;
-                }
-            } catch (NoSuchProviderException | InvalidKeySpecException error) {
-                Log.w(TAG, "Error during Read private key info: ", error);
+            PrivateKey key = getPrivateKey();
+            KeyInfo keyInfo = getKeyInfo();
+            if (key == null || keyInfo == null) {
+                Log.w(TAG, "Error during Read private key info");
                 return false;
             }
+            if (!keyInfo.isUserAuthenticationRequired()) {
+                return true;
+            }
             mCipher.init(Cipher.DECRYPT_MODE, key);
         } catch (GeneralSecurityException e) {
             return false;
@@ -156,6 +134,36 @@ class EncryptionManagerAPI23 extends BaseEncryptionManager {
         return true;
     }
 
+    @Override
+    protected void onKeysChanged() {
+        mKeyInfo = null;
+    }
+
+    /**
+     * Key information of the private key. Reading it is a keystore call, so it is cached until
+     * the keys change.
+     *
+     * @return the key info or null if there is no key or it can't be read.
+     */
+    @Nullable
+    private KeyInfo getKeyInfo() {
+        KeyInfo keyInfo = mKeyInfo;
+        if (keyInfo != null) {
+            return keyInfo;
+        }
+        try {
+            PrivateKey key = getPrivateKey();
+            if (key != null) {
+                KeyFactory factory = KeyFactory.getInstance(key.getAlgorithm(), mKeyStoreName);
+                keyInfo = factory.getKeySpec(key, KeyInfo.class);
+                mKeyInfo = keyInfo;
+            }
+        } catch (GeneralSecurityException e) {
+            Log.w(TAG, "Error during Read private key info: ", e);
+        }
+        return keyInfo;
+    }
+
     @Override
     public boolean isValidKeys() {
         try {
@@ -19,11 +19,11 @@ import android.content.Context;
 import android.os.Build;
 
 class EncryptionManagerFactory {
-    static EncryptionManager createEncryptionManager(Context context, String keyStoreName,
-                                                     String keyAlias,
-                                                     boolean isAuthenticateUserRequired,
-                                                     int userAuthenticationValidityDurationSeconds,
-                                                     boolean initCipherOnCreate) {
+    // Synchronized so managers created on different threads never generate the same alias twice.
+    static synchronized EncryptionManager createEncryptionManager(
+            Context context, String keyStoreName, String keyAlias,
+            boolean isAuthenticateUserRequired, int userAuthenticationValidityDurationSeconds,
+            boolean initCipherOnCreate) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             return new EncryptionManagerAPI23(context, keyStoreName, keyAlias,
                     isAuthenticateUserRequired, userAuthenticationValidityDurationSeconds,
@@ -19,22 +19,18 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
 
-import java.io.UnsupportedEncodingException;
-import java.security.GeneralSecurityException;
-import java.security.NoSuchAlgorithmException;
-
-import javax.crypto.Cipher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A implementation of {@link EncryptionManager} which requires user authentication when
  * using keys by OS. The private keys are locked in the key store.
  */
 @TargetApi(Build.VERSION_CODES.M)
-public class GuardedEncryptionManager implements EncryptionManager {
+public class GuardedEncryptionManager extends DelegatingEncryptionManager {
     private static final String KEY_STORE = "AndroidKeyStore";
     private static final String KEY_AUTHORIZE_ALIAS = "smart_authorize_key_for_pin";
     private static final int MIN_VALIDITY_DURATION = 10;
-    private EncryptionManager mEncryptionManager;
 
     /**
      * Constructor requires a context. It create encryption manager which requires device
@@ -57,74 +53,71 @@ public class GuardedEncryptionManager implements EncryptionManager {
      */
     public GuardedEncryptionManager(Context context,
                                     int userAuthenticationValidityDurationSeconds) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            mEncryptionManager = EncryptionManagerFactory
-                    .createEncryptionManager(context,
-                            KEY_STORE,
-                            KEY_AUTHORIZE_ALIAS,
-                            true,
-                            (userAuthenticationValidityDurationSeconds > MIN_VALIDITY_DURATION)
-                                    ? userAuthenticationValidityDurationSeconds
-                                    : MIN_VALIDITY_DURATION,
-                            false);
-        } else {
-            throw new IllegalStateException("This class supports API23+");
-        }
-    }
-
-    @Override
-    public String encrypt(String value) throws GeneralSecurityException {
-        return mEncryptionManager.encrypt(value);
-    }
-
-    @Override
-    public String decrypt(String value) throws GeneralSecurityException {
-        return mEncryptionManager.decrypt(value);
+        this(context, userAuthenticationValidityDurationSeconds, false);
     }
 
-    @Override
-    public String getHashed(String value) throws NoSuchAlgorithmException,
-            UnsupportedEncodingException {
-        return mEncryptionManager.getHashed(value);
-    }
-
-    @Override
-    public boolean isHardwareBackedKeyStore() {
-        return mEncryptionManager.isHardwareBackedKeyStore();
-    }
-
-    @Override
-    public void recreateCipher() {
-        mEncryptionManager.recreateCipher();
-    }
-
-    @Override
-    public void setCipher(Cipher cipher) {
-        mEncryptionManager.setCipher(cipher);
+    /**
+     * Constructor requires a context, validity duration time for keys in seconds and whether to
+     * prepare the keys on a background thread. See
+     * {@link DefaultEncryptionManager#DefaultEncryptionManager(Context, boolean)}.
+     *
+     * @param context                                   context
+     * @param userAuthenticationValidityDurationSeconds validity duration time in seconds
+     * @param prepareInBackground                       prepare the keys on a background thread
+     */
+    public GuardedEncryptionManager(Context context,
+                                    int userAuthenticationValidityDurationSeconds,
+                                    boolean prepareInBackground) {
+        super(factory(context, userAuthenticationValidityDurationSeconds), prepareInBackground);
     }
 
-    @Override
-    public Cipher getCipher() {
-        return mEncryptionManager.getCipher();
+    /**
+     * Keep the data keys unwrapped for the given time after the user authenticated, so repeated
+     * reads need no keystore operation and no further authentication. This holds even if the
+     * validity duration of the keys ends first. When the time ends or {@link #lock()} is called,
+     * the keys are wiped from memory and the next read requires authentication again.
+     * Zero, the default, disables the unlocked session. Changing it ends the current session.
+     *
+     * @param duration the session duration
+     * @param unit     the unit of the duration
+     */
+    public void setUnlockedSessionDuration(long duration, TimeUnit unit) {
+        getUnlockedSession().setDuration(unit.toMillis(duration));
     }
 
-    @Override
-    public boolean isUserAuthenticatedOnDevice() {
-        return mEncryptionManager.isUserAuthenticatedOnDevice();
+    /**
+     * Ends the unlocked session, e.g. when the user leaves the screen that needed the data.
+     */
+    public void lock() {
+        getUnlockedSession().lock();
     }
 
-    @Override
-    public void removeKeys() {
-        mEncryptionManager.removeKeys();
+    /**
+     * Whether an unlocked session is active, see
+     * {@link #setUnlockedSessionDuration(long, TimeUnit)}.
+     *
+     * @return true if data can be read without authentication
+     */
+    public boolean isUnlocked() {
+        return getUnlockedSession().isUnlocked();
     }
 
-    @Override
-    public void recreateKeys(Context context) {
-        mEncryptionManager.recreateKeys(context);
+    private UnlockedSession getUnlockedSession() {
+        return ((BaseEncryptionManager) getEncryptionManager()).getUnlockedSession();
     }
 
-    @Override
-    public boolean isValidKeys() {
-        return mEncryptionManager.isValidKeys();
+    private static Callable<EncryptionManager> factory(Context context,
+                                                       int validityDurationSeconds) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            throw new IllegalStateException("This class supports API23+");
+        }
+        return () -> EncryptionManagerFactory.createEncryptionManager(context,
+                KEY_STORE,
+                KEY_AUTHORIZE_ALIAS,
+                true,
+                (validityDurationSeconds > MIN_VALIDITY_DURATION)
+                        ? validityDurationSeconds
+                        : MIN_VALIDITY_DURATION,
+                false);
     }
 }
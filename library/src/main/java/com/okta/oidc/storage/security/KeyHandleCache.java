@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * @hide Keeps the keystore key handles after the first lookup. Every lookup is an IPC call to
+ * the keystore daemon, so without this cache each cipher initialization pays for one or more
+ * round trips. Handles stay valid until the key is deleted or regenerated, which is when
+ * {@link #invalidate()} must be called.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+final class KeyHandleCache {
+    interface Loader {
+        PublicKey loadPublicKey() throws GeneralSecurityException;
+
+        @Nullable
+        PrivateKey loadPrivateKey() throws GeneralSecurityException;
+    }
+
+    private final Loader mLoader;
+    private volatile PublicKey mPublicKey;
+    private volatile PrivateKey mPrivateKey;
+
+    KeyHandleCache(Loader loader) {
+        mLoader = loader;
+    }
+
+    PublicKey getPublicKey() throws GeneralSecurityException {
+        PublicKey key = mPublicKey;
+        if (key == null) {
+            key = mLoader.loadPublicKey();
+            mPublicKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * The private key, or null if the keystore has no key. A missing key is not cached.
+     *
+     * @return the private key
+     * @throws GeneralSecurityException if the keystore lookup failed
+     */
+    @Nullable
+    PrivateKey getPrivateKey() throws GeneralSecurityException {
+        PrivateKey key = mPrivateKey;
+        if (key == null) {
+            key = mLoader.loadPrivateKey();
+            mPrivateKey = key;
+        }
+        return key;
+    }
+
+    void invalidate() {
+        mPublicKey = null;
+        mPrivateKey = null;
+    }
+}
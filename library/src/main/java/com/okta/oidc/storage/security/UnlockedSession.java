@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * @hide Keeps data keys unwrapped after the user authenticated. Keys locked behind user
+ * authentication can only be unwrapped by the keystore while the authentication is valid, and
+ * each unwrap is a keystore round trip. A session starts with the first key unwrapped after the
+ * user authenticated and ends after a fixed duration, or earlier on {@link #lock()}. The keys
+ * are then wiped. A duration of zero, the default, keeps no keys at all.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+final class UnlockedSession {
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "okta-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private final Clock mClock;
+    private final ScheduledExecutorService mTimer;
+    // Wrapped key to unwrapped key.
+    private final Map<String, SessionKey> mKeys = new HashMap<>();
+    private long mDurationMillis;
+    // Zero while locked.
+    private long mUnlockedUntil;
+    private ScheduledFuture<?> mTimeout;
+
+    UnlockedSession() {
+        this(SystemClock::elapsedRealtime, TIMER);
+    }
+
+    UnlockedSession(Clock clock, ScheduledExecutorService timer) {
+        mClock = clock;
+        mTimer = timer;
+    }
+
+    /**
+     * Sets how long keys are kept after the user authenticated. Ends the current session.
+     *
+     * @param durationMillis the duration in milliseconds, zero keeps no keys.
+     */
+    synchronized void setDuration(long durationMillis) {
+        lock();
+        mDurationMillis = Math.max(0, durationMillis);
+    }
+
+    synchronized long getDuration() {
+        return mDurationMillis;
+    }
+
+    synchronized boolean isUnlocked() {
+        if (mUnlockedUntil != 0 && mClock.elapsedRealtime() >= mUnlockedUntil) {
+            lock();
+        }
+        return mUnlockedUntil != 0;
+    }
+
+    /**
+     * The key unwrapped from the wrapped key during this session.
+     *
+     * @param wrapped the wrapped key
+     * @return the key or null if it was not unwrapped or the session is locked.
+     */
+    @Nullable
+    synchronized SecretKey get(String wrapped) {
+        return isUnlocked() ? mKeys.get(wrapped) : null;
+    }
+
+    /**
+     * Called with a key the keystore just unwrapped, which proves the user is authenticated.
+     * Starts a session if none is active and keeps the key until it ends.
+     *
+     * @param wrapped   the wrapped key
+     * @param raw       the unwrapped key, owned by this session afterwards
+     * @param algorithm the key algorithm
+     * @return the key to use
+     */
+    synchronized SecretKey unlock(String wrapped, byte[] raw, String algorithm) {
+        if (mDurationMillis == 0) {
+            SecretKey key = new SecretKeySpec(raw, algorithm);
+            Arrays.fill(raw, (byte) 0);
+            return key;
+        }
+        if (!isUnlocked()) {
+            mUnlockedUntil = mClock.elapsedRealtime() + mDurationMillis;
+            mTimeout = mTimer.schedule(this::lock, mDurationMillis, TimeUnit.MILLISECONDS);
+        }
+        SessionKey existing = mKeys.get(wrapped);
+        if (existing != null) {
+            // Unwrapped twice concurrently, the kept key may already be in use.
+            Arrays.fill(raw, (byte) 0);
+            return existing;
+        }
+        SessionKey key = new SessionKey(raw, algorithm);
+        mKeys.put(wrapped, key);
+        return key;
+    }
+
+    /**
+     * Ends the session and wipes the keys.
+     */
+    synchronized void lock() {
+        mUnlockedUntil = 0;
+        if (mTimeout != null) {
+            mTimeout.cancel(false);
+            mTimeout = null;
+        }
+        for (SessionKey key : mKeys.values()) {
+            key.destroy();
+        }
+        mKeys.clear();
+    }
+
+    /**
+     * A secret key that can be wiped. {@link SecretKeySpec} copies the key and can't be
+     * destroyed. Ciphers copy the key on initialization, so a destroyed key only fails
+     * initializations that start afterwards.
+     */
+    static final class SessionKey implements SecretKey {
+        private final byte[] mKey;
+        private final String mAlgorithm;
+        private volatile boolean mDestroyed;
+
+        SessionKey(byte[] key, String algorithm) {
+            mKey = key;
+            mAlgorithm = algorithm;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return mAlgorithm;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            if (mDestroyed) {
+                throw new IllegalStateException("Key was destroyed");
+            }
+            return mKey.clone();
+        }
+
+        @Override
+        public void destroy() {
+            mDestroyed = true;
+            Arrays.fill(mKey, (byte) 0);
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return mDestroyed;
+        }
+    }
+}
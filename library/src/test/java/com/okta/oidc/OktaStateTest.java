@@ -21,6 +21,7 @@ import androidx.test.platform.app.InstrumentationRegistry;
 import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.request.web.AuthorizeRequest;
 import com.okta.oidc.net.request.web.WebRequest;
+import com.okta.oidc.net.response.TokenRecord;
 import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.storage.OktaRepository;
 import com.okta.oidc.util.AuthorizationException;
@@ -36,8 +37,10 @@ import org.robolectric.annotation.Config;
 
 import static com.okta.oidc.util.TestValues.CUSTOM_URL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -94,9 +97,70 @@ public class OktaStateTest {
         mOktaState.save(tokenResponse);
         mOktaState.save(providerConfiguration);
 
-        mOktaState.delete(tokenResponse);
+        mOktaState.deleteTokenResponse();
         assertNull(mOktaState.getTokenResponse());
         assertNotNull(mOktaState.getProviderConfiguration());
 
     }
+
+    @Test
+    public void tokensAreStoredAsSeparateRecords() throws OktaRepository.EncryptionException {
+        TokenResponse tokenResponse = TestValues.getTokenResponse();
+        mOktaState.save(tokenResponse);
+
+        assertFalse(mOktaRepository.contains(TokenResponse.RESTORE));
+        for (TokenResponse.Part part : TokenResponse.Part.values()) {
+            assertTrue(mOktaRepository.contains(TokenRecord.restoreOf(part)));
+        }
+        assertNotNull(mOktaState.getTokenMetadata());
+
+        TokenResponse partial = mOktaState.getTokenResponse(TokenResponse.Part.ACCESS_TOKEN);
+        assertEquals(tokenResponse.getAccessToken(), partial.getAccessToken());
+        assertEquals(tokenResponse.getExpiresAt(), partial.getExpiresAt());
+        assertEquals(tokenResponse.getScope(), partial.getScope());
+        assertNull(partial.getIdToken());
+        assertNull(partial.getRefreshToken());
+    }
+
+    @Test
+    public void missingTokenRemovesPreviousRecord() throws OktaRepository.EncryptionException {
+        mOktaState.save(TestValues.getTokenResponse());
+        TokenResponse withoutRefresh = TokenResponse.RESTORE.restore(
+                "{\"access_token\":\"access\",\"expires_in\":\"3600\",\"scope\":\"openid\"}");
+        mOktaState.save(withoutRefresh);
+
+        assertFalse(mOktaRepository.contains(
+                TokenRecord.restoreOf(TokenResponse.Part.REFRESH_TOKEN)));
+        assertNull(mOktaState.getTokenResponse().getRefreshToken());
+        assertEquals("access", mOktaState.getTokenResponse().getAccessToken());
+    }
+
+    @Test
+    public void singleRecordIsMigratedOnFirstRead() throws OktaRepository.EncryptionException {
+        TokenResponse tokenResponse = TestValues.getTokenResponse();
+        //Layout written by earlier versions.
+        mOktaRepository.save(tokenResponse);
+        assertTrue(mOktaState.hasTokenResponse());
+
+        TokenResponse migrated = mOktaState.getTokenResponse(TokenResponse.Part.ACCESS_TOKEN);
+        assertEquals(tokenResponse.getAccessToken(), migrated.getAccessToken());
+        assertFalse(mOktaRepository.contains(TokenResponse.RESTORE));
+        assertEquals(tokenResponse.persist(), mOktaState.getTokenResponse().persist());
+    }
+
+    @Test
+    public void migrationDoesNotOverwriteNewerToken() throws OktaRepository.EncryptionException {
+        TokenResponse legacy = TestValues.getTokenResponse();
+        mOktaRepository.save(legacy);
+        OktaRepository.Transaction staleMigration = mOktaState.saveTokenResponse(
+                mOktaRepository.beginTransaction(), legacy)
+                .onlyIfPresent(TokenResponse.RESTORE.getKey());
+
+        TokenResponse newer = TokenResponse.RESTORE.restore(
+                "{\"access_token\":\"newer\",\"expires_in\":\"3600\",\"scope\":\"openid\"}");
+        mOktaState.save(newer);
+
+        assertFalse(staleMigration.commit());
+        assertEquals("newer", mOktaState.getTokenResponse().getAccessToken());
+    }
 }
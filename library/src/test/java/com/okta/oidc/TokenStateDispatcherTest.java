@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc;
+
+import com.okta.oidc.util.TestValues;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class TokenStateDispatcherTest {
+    private final TokenStateDispatcher mDispatcher = new TokenStateDispatcher();
+    private final List<TokenStateEvent> mEvents = new ArrayList<>();
+    private final List<Runnable> mQueued = new ArrayList<>();
+    private final Executor mQueue = mQueued::add;
+
+    @Test
+    public void eventCarriesTokens() {
+        mDispatcher.addListener(mEvents::add, Runnable::run);
+        mDispatcher.notify(TokenStateEvent.Type.SAVED, TestValues.getTokenResponse());
+
+        assertEquals(1, mEvents.size());
+        assertEquals(TokenStateEvent.Type.SAVED, mEvents.get(0).getType());
+        Tokens tokens = mEvents.get(0).getTokens();
+        assertNotNull(tokens);
+        assertEquals(TestValues.getTokenResponse().getAccessToken(), tokens.getAccessToken());
+    }
+
+    @Test
+    public void burstIsCoalescedToLatest() {
+        mDispatcher.addListener(mEvents::add, mQueue);
+        mDispatcher.notify(TokenStateEvent.Type.SAVED, TestValues.getTokenResponse());
+        mDispatcher.notify(TokenStateEvent.Type.REFRESHED, TestValues.getTokenResponse());
+        mDispatcher.notify(TokenStateEvent.Type.CLEARED, null);
+
+        assertEquals(1, mQueued.size());
+        mQueued.remove(0).run();
+        assertEquals(1, mEvents.size());
+        assertEquals(TokenStateEvent.Type.CLEARED, mEvents.get(0).getType());
+        assertNull(mEvents.get(0).getTokens());
+        assertTrue(mQueued.isEmpty());
+    }
+
+    @Test
+    public void eventDuringDeliveryIsDelivered() {
+        mDispatcher.addListener(event -> {
+            mEvents.add(event);
+            if (event.getType() == TokenStateEvent.Type.SAVED) {
+                mDispatcher.notify(TokenStateEvent.Type.REFRESHED, TestValues.getTokenResponse());
+            }
+        }, Runnable::run);
+        mDispatcher.notify(TokenStateEvent.Type.SAVED, TestValues.getTokenResponse());
+
+        assertEquals(2, mEvents.size());
+        assertEquals(TokenStateEvent.Type.REFRESHED, mEvents.get(1).getType());
+    }
+
+    @Test
+    public void removedListenerGetsNoPendingEvent() {
+        TokenStateListener listener = mEvents::add;
+        mDispatcher.addListener(listener, mQueue);
+        mDispatcher.notify(TokenStateEvent.Type.CLEARED, null);
+        mDispatcher.removeListener(listener);
+
+        mQueued.remove(0).run();
+        assertTrue(mEvents.isEmpty());
+    }
+}
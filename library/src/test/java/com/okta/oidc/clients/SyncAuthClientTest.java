@@ -24,6 +24,8 @@ import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.Okta;
 import com.okta.oidc.OktaState;
 import com.okta.oidc.Tokens;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.DeadlineExceededException;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.net.request.NativeAuthorizeRequest;
 import com.okta.oidc.net.request.ProviderConfiguration;
@@ -55,6 +57,7 @@ import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.mockwebserver.RecordedRequest;
 
@@ -69,6 +72,7 @@ import static com.okta.oidc.util.TestValues.EXCHANGE_CODE;
 import static com.okta.oidc.util.TestValues.SESSION_TOKEN;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -188,6 +192,28 @@ public class SyncAuthClientTest {
         assertNotNull(tokens.getIdToken());
     }
 
+    @Test
+    public void signInNativeDeadline() {
+        String nonce = CodeVerifierUtil.generateRandomState();
+        String state = CodeVerifierUtil.generateRandomState();
+        String jws = TestValues.getJwt(mEndPoint.getUrl(), nonce, mConfig.getClientId());
+        AuthenticationPayload payload = new AuthenticationPayload.Builder()
+                .addParameter("nonce", nonce)
+                .setState(state)
+                .build();
+
+        mEndPoint.enqueueNativeRequestSuccess(state, 5);
+        mEndPoint.enqueueTokenSuccess(jws);
+
+        long start = System.nanoTime() / 1000000;
+        Result result = mSyncNativeAuth.signIn(SESSION_TOKEN, payload,
+                Deadline.after(500, TimeUnit.MILLISECONDS));
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().getCause() instanceof DeadlineExceededException);
+        assertTrue(System.nanoTime() / 1000000 - start < 5000);
+    }
+
     @Test
     public void signInNativeCancel() throws AuthorizationException, InterruptedException {
         String nonce = CodeVerifierUtil.generateRandomState();
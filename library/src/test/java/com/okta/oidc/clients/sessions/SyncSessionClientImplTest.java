@@ -21,11 +21,17 @@ import android.net.Uri;
 import androidx.test.platform.app.InstrumentationRegistry;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 import com.okta.oidc.OIDCConfig;
 import com.okta.oidc.Okta;
 import com.okta.oidc.OktaState;
+import com.okta.oidc.TokenStateEvent;
+import com.okta.oidc.TokenStateListener;
+import com.okta.oidc.Tokens;
 import com.okta.oidc.clients.web.SyncWebAuthClient;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.DeadlineExceededException;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.net.params.TokenTypeHint;
 import com.okta.oidc.net.request.AuthorizedRequest;
@@ -33,8 +39,12 @@ import com.okta.oidc.net.request.IntrospectRequest;
 import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.request.RefreshTokenRequest;
 import com.okta.oidc.net.request.RevokeTokenRequest;
+import com.okta.oidc.net.response.AuthorizedResponse;
 import com.okta.oidc.net.response.IntrospectInfo;
+import com.okta.oidc.net.response.TokenMetadata;
 import com.okta.oidc.net.response.TokenResponse;
+import com.okta.oidc.net.response.UserInfo;
+import com.okta.oidc.storage.AppendOnlyFileStorage;
 import com.okta.oidc.storage.OktaRepository;
 import com.okta.oidc.storage.OktaStorage;
 import com.okta.oidc.storage.SharedPreferenceStorage;
@@ -42,6 +52,7 @@ import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.CodeVerifierUtil;
 import com.okta.oidc.util.EncryptionManagerStub;
 import com.okta.oidc.util.MockEndPoint;
+import com.okta.oidc.util.OktaStorageMock;
 import com.okta.oidc.util.HttpClientFactory;
 import com.okta.oidc.util.TestValues;
 
@@ -56,14 +67,28 @@ import org.junit.runner.RunWith;
 import org.robolectric.ParameterizedRobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.mockwebserver.RecordedRequest;
 
 import static com.okta.oidc.util.JsonStrings.TOKEN_RESPONSE;
 import static com.okta.oidc.util.JsonStrings.TOKEN_SUCCESS;
+import static com.okta.oidc.util.JsonStrings.WWW_AUTHENTICATE;
 import static com.okta.oidc.util.TestValues.ACCESS_TOKEN;
 import static com.okta.oidc.util.TestValues.CUSTOM_STATE;
 import static org.hamcrest.Matchers.equalTo;
@@ -74,6 +99,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(ParameterizedRobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -158,6 +184,61 @@ public class SyncSessionClientImplTest {
         assertNull(mSyncSessionClientImpl.getTokens());
     }
 
+    @Test
+    public void clear_notifiesListener() throws OktaRepository.EncryptionException {
+        List<TokenStateEvent> events = new CopyOnWriteArrayList<>();
+        TokenStateListener listener = events::add;
+        mSyncSessionClientImpl.addTokenStateListener(listener, null);
+        mOktaState.save(mTokenResponse);
+
+        mSyncSessionClientImpl.clear();
+
+        assertEquals(1, events.size());
+        assertEquals(TokenStateEvent.Type.CLEARED, events.get(0).getType());
+        assertNull(events.get(0).getTokens());
+
+        mSyncSessionClientImpl.removeTokenStateListener(listener);
+        mSyncSessionClientImpl.clear();
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void refreshToken_usesTokenRefreshedByOtherProcess() throws Exception {
+        File file = new File(mContext.getFilesDir(), "SyncSessionClientImplTest.log");
+        file.delete();
+        AppendOnlyFileStorage firstStorage = new AppendOnlyFileStorage(file, true);
+        AppendOnlyFileStorage secondStorage = new AppendOnlyFileStorage(file, true);
+        SyncSessionClientImpl first = createSessionClient(firstStorage);
+        SyncSessionClientImpl second = createSessionClient(secondStorage);
+        first.getOktaState().save(mProviderConfig);
+        first.getOktaState().save(mTokenResponse);
+        //The other process caches the token it knows.
+        assertTrue(second.isAuthenticated());
+
+        String jws = TestValues.getJwt(mEndPoint.getUrl(), CodeVerifierUtil.generateRandomState(),
+                mConfig.getClientId());
+        mEndPoint.enqueueTokenSuccess(jws);
+        Tokens refreshed = first.refreshToken();
+        Tokens fromOtherProcess = second.refreshToken();
+
+        assertEquals(1, mEndPoint.getRequestCount());
+        assertEquals(refreshed.getAccessToken(), fromOtherProcess.getAccessToken());
+        assertEquals(refreshed.getRefreshToken(), fromOtherProcess.getRefreshToken());
+        firstStorage.close();
+        secondStorage.close();
+    }
+
+    private SyncSessionClientImpl createSessionClient(OktaStorage storage) {
+        SyncWebAuthClient client = new Okta.SyncWebAuthBuilder()
+                .withConfig(mConfig)
+                .withOktaHttpClient(mHttpClient)
+                .withContext(mContext)
+                .withStorage(storage)
+                .withEncryptionManager(new EncryptionManagerStub())
+                .create();
+        return (SyncSessionClientImpl) client.getSessionClient();
+    }
+
     @Test
     public void isLoggedIn_success() throws AuthorizationException, OktaRepository.EncryptionException {
         mOktaState.save(TestValues.getTokenResponse());
@@ -168,6 +249,21 @@ public class SyncSessionClientImplTest {
         assertNotNull(mSyncSessionClientImpl.getTokens());
     }
 
+    @Test
+    public void isLoggedIn_usesTokenMetadata() throws OktaRepository.EncryptionException {
+        TokenResponse tokenResponse = TestValues.getTokenResponse();
+        mOktaState.save(tokenResponse);
+
+        TokenMetadata metadata = mOktaState.getTokenMetadata();
+        assertNotNull(metadata);
+        assertEquals(tokenResponse.getExpiresAt(), metadata.getExpiresAt());
+        assertTrue(mSyncSessionClientImpl.isAuthenticated());
+
+        mSyncSessionClientImpl.clear();
+        assertNull(mOktaState.getTokenMetadata());
+        assertFalse(mSyncSessionClientImpl.isAuthenticated());
+    }
+
     @Test
     public void isLoggedIn_false() throws AuthorizationException {
         boolean result = mSyncSessionClientImpl.isAuthenticated();
@@ -219,6 +315,85 @@ public class SyncSessionClientImplTest {
         assertEquals("Jimmy", result.getString("nickname"));
     }
 
+    @Test
+    public void withDeadline() throws Exception {
+        mOktaState.save(mTokenResponse);
+        mEndPoint.enqueueUserInfoSuccess();
+        SyncSessionClient expired = mSyncSessionClientImpl
+                .withDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+        try {
+            expired.getUserProfile();
+            fail("Expected the deadline to be exceeded");
+        } catch (AuthorizationException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+        assertEquals(0, mEndPoint.getRequestCount());
+
+        UserInfo userInfo = mSyncSessionClientImpl
+                .withDeadline(Deadline.after(1, TimeUnit.MINUTES))
+                .getUserProfile();
+        assertEquals("John Doe", userInfo.get("name"));
+    }
+
+    @Test
+    public void refreshWithDeadlineStopsWaitingForLock() throws Exception {
+        mOktaState.save(mTokenResponse);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> mOktaState.runExclusive("refresh", () -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertTrue(held.await(10, TimeUnit.SECONDS));
+        try {
+            mSyncSessionClientImpl.withDeadline(Deadline.after(100, TimeUnit.MILLISECONDS))
+                    .refreshToken();
+            fail("Expected the deadline to be exceeded");
+        } catch (AuthorizationException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertEquals(0, mEndPoint.getRequestCount());
+    }
+
+    @Test
+    public void migrateToManagerWithOtherHashing() throws Exception {
+        OktaStorageMock storage = new OktaStorageMock(mContext, "migrate", false);
+        SyncWebAuthClient webAuth = new Okta.SyncWebAuthBuilder()
+                .withConfig(mConfig)
+                .withOktaHttpClient(mHttpClient)
+                .withContext(mContext)
+                .withStorage(storage)
+                .withEncryptionManager(new EncryptionManagerStub())
+                .create();
+        SyncSessionClientImpl client = (SyncSessionClientImpl) webAuth.getSessionClient();
+        client.getOktaState().save(mProviderConfig);
+        client.getOktaState().save(mTokenResponse);
+        Set<String> before = new HashSet<>(storage.getSharedPreferences().getAll().keySet());
+
+        client.migrateTo(new EncryptionManagerStub() {
+            @Override
+            public String getHashed(String value)
+                    throws NoSuchAlgorithmException, UnsupportedEncodingException {
+                return super.getHashed("migrated" + value);
+            }
+        });
+
+        Set<String> after = new HashSet<>(storage.getSharedPreferences().getAll().keySet());
+        assertEquals(before.size(), after.size());
+        after.retainAll(before);
+        assertTrue(after.isEmpty());
+        assertEquals(ACCESS_TOKEN, client.getTokens().getAccessToken());
+    }
+
     @Test
     public void userProfileRequestOAuth2() throws AuthorizationException, OktaRepository.EncryptionException {
         mExpectedEx.expect(AuthorizationException.class);
@@ -336,4 +511,63 @@ public class SyncSessionClientImplTest {
         assertThat(recordedRequest.getPath(), equalTo("/userinfo"));
         assertNull(result);
     }
+
+    @Test
+    public void authorizedRequestWithDecoder() throws Exception {
+        mOktaState.save(mTokenResponse);
+        mEndPoint.enqueueJsonSuccess("[{\"id\":\"1\",\"profile\":{\"name\":\"Everyone\"}}," +
+                "{\"id\":\"2\"}]");
+        Uri uri = Uri.parse(mEndPoint.getUrl() + "api/v1/groups");
+        List<String> ids = mSyncSessionClientImpl.authorizedRequest(uri, null, null,
+                ConnectionParameters.RequestMethod.GET, response -> {
+                    List<String> result = new ArrayList<>();
+                    JsonReader reader = new JsonReader(
+                            new InputStreamReader(response.getBody(), "UTF-8"));
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if ("id".equals(reader.nextName())) {
+                                result.add(reader.nextString());
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                    return result;
+                });
+        RecordedRequest recordedRequest = mEndPoint.takeRequest();
+        assertThat(recordedRequest.getHeader("Authorization"), is("Bearer " + ACCESS_TOKEN));
+        assertEquals(Arrays.asList("1", "2"), ids);
+    }
+
+    @Test
+    public void authorizedRequestWithDecoderFailure() throws Exception {
+        mOktaState.save(mTokenResponse);
+        mExpectedEx.expect(AuthorizationException.class);
+        mEndPoint.enqueueReturnUnauthorizedRevoked();
+        Uri uri = Uri.parse(mProviderConfig.userinfo_endpoint);
+        mSyncSessionClientImpl.authorizedRequest(uri, null, null,
+                ConnectionParameters.RequestMethod.GET, response -> {
+                    throw new AssertionError("Decoder called for " + response.getStatusCode());
+                });
+    }
+
+    @Test
+    public void openAuthorizedRequest() throws Exception {
+        mOktaState.save(mTokenResponse);
+        mEndPoint.enqueueReturnUnauthorizedRevoked();
+        Uri uri = Uri.parse(mProviderConfig.userinfo_endpoint);
+        try (AuthorizedResponse response = mSyncSessionClientImpl.openAuthorizedRequest(uri,
+                null, null, ConnectionParameters.RequestMethod.GET)) {
+            assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, response.getStatusCode());
+            assertNotNull(response.getHeader(WWW_AUTHENTICATE));
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.getBody(), "UTF-8"));
+            assertEquals("Unauthorized", reader.readLine());
+        }
+        assertThat(mEndPoint.takeRequest().getPath(), equalTo("/userinfo"));
+    }
 }
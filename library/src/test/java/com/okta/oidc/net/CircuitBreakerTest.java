@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class CircuitBreakerTest {
+    private static final RequestPolicy POLICY =
+            new RequestPolicy.Builder().circuitBreaker(3, 1000).create();
+    @Rule
+    public ExpectedException mExpectedEx = ExpectedException.none();
+    private long mNow = 1000;
+    private CircuitBreaker mBreaker;
+
+    @Before
+    public void setUp() {
+        mBreaker = new CircuitBreaker("https://example.com/token", () -> mNow);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        fail(2);
+        mBreaker.acquire(POLICY);
+        mBreaker.onSuccess();
+        fail(2);
+        assertFalse(mBreaker.isOpen());
+        fail(1);
+        assertTrue(mBreaker.isOpen());
+
+        mExpectedEx.expect(CircuitOpenException.class);
+        mExpectedEx.expectMessage("Circuit breaker open for https://example.com/token");
+        mBreaker.acquire(POLICY);
+    }
+
+    @Test
+    public void halfOpenLetsOneRequestThrough() throws Exception {
+        fail(3);
+        mNow += 1000;
+        mBreaker.acquire(POLICY);
+        try {
+            mBreaker.acquire(POLICY);
+            throw new AssertionError("Only one request may probe the endpoint");
+        } catch (CircuitOpenException e) {
+            //Expected.
+        }
+        mBreaker.onSuccess();
+        mBreaker.acquire(POLICY);
+        mBreaker.acquire(POLICY);
+        assertFalse(mBreaker.isOpen());
+    }
+
+    @Test
+    public void failedProbeReopens() throws Exception {
+        fail(3);
+        mNow += 1000;
+        mBreaker.acquire(POLICY);
+        mBreaker.onFailure(POLICY);
+        assertTrue(mBreaker.isOpen());
+        mNow += 999;
+        assertTrue(mBreaker.isOpen());
+        mNow += 1;
+        assertFalse(mBreaker.isOpen());
+    }
+
+    @Test
+    public void disabledBreakerNeverOpens() throws Exception {
+        RequestPolicy disabled = new RequestPolicy.Builder().circuitBreaker(0, 1000).create();
+        for (int i = 0; i < 10; i++) {
+            mBreaker.acquire(disabled);
+            mBreaker.onFailure(disabled);
+        }
+        assertFalse(mBreaker.isOpen());
+    }
+
+    private void fail(int failures) throws CircuitOpenException {
+        for (int i = 0; i < failures; i++) {
+            mBreaker.acquire(POLICY);
+            mBreaker.onFailure(POLICY);
+        }
+    }
+}
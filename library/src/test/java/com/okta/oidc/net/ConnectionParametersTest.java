@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -89,6 +90,18 @@ public class ConnectionParametersTest {
         assertTrue(prop.containsKey("prop2"));
     }
 
+    @Test
+    public void acceptEncoding() {
+        assertEquals(ContentEncodings.getAcceptEncoding(),
+                mConnParams.requestProperties().get(ContentEncodings.ACCEPT_ENCODING));
+        ConnectionParameters identity = new ParameterBuilder()
+                .setRequestMethod(RequestMethod.GET)
+                .setRequestProperty(ContentEncodings.ACCEPT_ENCODING, "identity")
+                .create();
+        assertEquals("identity",
+                identity.requestProperties().get(ContentEncodings.ACCEPT_ENCODING));
+    }
+
     @Test
     public void postParameters() {
         Map<String, String> post = mConnParams.postParameters();
@@ -106,6 +119,21 @@ public class ConnectionParametersTest {
         assertEquals(mConnParams.readTimeOutMs(), 1000);
     }
 
+    @Test
+    public void timeoutsShortenedToDeadline() {
+        mConnParams.setDeadline(Deadline.after(100, TimeUnit.MILLISECONDS));
+        assertTrue(mConnParams.connectionTimeoutMs() <= 100);
+        assertTrue(mConnParams.readTimeOutMs() <= 100);
+
+        mConnParams.setDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, mConnParams.connectionTimeoutMs());
+        assertEquals(1, mConnParams.readTimeOutMs());
+
+        mConnParams.setDeadline(Deadline.after(1, TimeUnit.HOURS));
+        assertEquals(1000, mConnParams.connectionTimeoutMs());
+        assertEquals(1000, mConnParams.readTimeOutMs());
+    }
+
     @Test
     public void getEncodedPostParameters() {
         assertNotNull(mConnParams.getEncodedPostParameters());
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import androidx.annotation.NonNull;
+
+import com.okta.oidc.net.params.RequestType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class ContentEncodingsTest {
+    private static final byte[] BODY = "{\"name\":\"John Doe\",\"nickname\":\"Jimmy\"}".getBytes();
+    @Rule
+    public ExpectedException mExpectedEx = ExpectedException.none();
+
+    @Test
+    public void decodeGzip() throws Exception {
+        byte[] gzip = encode(new ByteArrayOutputStream(), GZIPOutputStream::new);
+        TransferMetrics metrics = ContentEncodings.getTransferMetrics();
+        long compressed = metrics.getCompressedBytes(RequestType.CONFIGURATION);
+        long uncompressed = metrics.getUncompressedBytes(RequestType.CONFIGURATION);
+
+        InputStream decoded = ContentEncodings.decode(new ByteArrayInputStream(gzip), "gzip",
+                RequestType.CONFIGURATION);
+
+        assertArrayEquals(BODY, readAll(decoded));
+        assertEquals(gzip.length,
+                metrics.getCompressedBytes(RequestType.CONFIGURATION) - compressed);
+        assertEquals(BODY.length,
+                metrics.getUncompressedBytes(RequestType.CONFIGURATION) - uncompressed);
+    }
+
+    @Test
+    public void identityIsCountedAsIs() throws Exception {
+        TransferMetrics metrics = ContentEncodings.getTransferMetrics();
+        long compressed = metrics.getCompressedBytes(RequestType.INTROSPECT);
+        long uncompressed = metrics.getUncompressedBytes(RequestType.INTROSPECT);
+
+        InputStream decoded = ContentEncodings.decode(new ByteArrayInputStream(BODY), null,
+                RequestType.INTROSPECT);
+
+        assertArrayEquals(BODY, readAll(decoded));
+        assertEquals(BODY.length, metrics.getCompressedBytes(RequestType.INTROSPECT) - compressed);
+        assertEquals(BODY.length,
+                metrics.getUncompressedBytes(RequestType.INTROSPECT) - uncompressed);
+        assertFalse(ContentEncodings.isEncoded("identity"));
+    }
+
+    @Test
+    public void registeredDecoderIsAdvertised() throws Exception {
+        ContentEncodings.register(new ContentDecoder() {
+            @NonNull
+            @Override
+            public String getEncoding() {
+                return "deflate";
+            }
+
+            @NonNull
+            @Override
+            public InputStream decode(@NonNull InputStream encoded) {
+                return new InflaterInputStream(encoded);
+            }
+        });
+        byte[] deflate = encode(new ByteArrayOutputStream(), DeflaterOutputStream::new);
+
+        assertTrue(ContentEncodings.getAcceptEncoding().startsWith("gzip"));
+        assertTrue(ContentEncodings.getAcceptEncoding().contains("deflate"));
+        assertArrayEquals(BODY, readAll(ContentEncodings.decode(
+                new ByteArrayInputStream(deflate), "Deflate", null)));
+    }
+
+    @Test
+    public void unsupportedEncoding() throws Exception {
+        mExpectedEx.expect(IOException.class);
+        mExpectedEx.expectMessage("Unsupported Content-Encoding compress");
+        ContentEncodings.decode(new ByteArrayInputStream(BODY), "compress", null);
+    }
+
+    private interface Encoder {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(ByteArrayOutputStream bytes, Encoder encoder)
+            throws IOException {
+        try (OutputStream out = encoder.wrap(bytes)) {
+            out.write(BODY);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
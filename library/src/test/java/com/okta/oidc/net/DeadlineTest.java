@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class DeadlineTest {
+    @Test
+    public void noneNeverExpires() throws Exception {
+        assertFalse(Deadline.NONE.isBounded());
+        assertFalse(Deadline.NONE.isExpired());
+        assertEquals(Long.MAX_VALUE, Deadline.NONE.getRemainingMs());
+        assertEquals(15000, Deadline.NONE.shorten(15000));
+        Deadline.NONE.check();
+    }
+
+    @Test
+    public void remainingTime() {
+        Deadline deadline = Deadline.after(1, TimeUnit.MINUTES);
+        assertTrue(deadline.isBounded());
+        assertFalse(deadline.isExpired());
+        long remaining = deadline.getRemainingMs();
+        assertTrue(remaining > 0 && remaining <= 60000);
+        assertEquals(10000, deadline.shorten(10000));
+        assertTrue(deadline.shorten(Integer.MAX_VALUE) <= 60000);
+    }
+
+    @Test
+    public void expiredDeadline() {
+        Deadline deadline = Deadline.after(-1, TimeUnit.SECONDS);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.getRemainingMs());
+        //Zero is an infinite timeout.
+        assertEquals(1, deadline.shorten(10000));
+        try {
+            deadline.check();
+            fail("Expected the deadline to be exceeded");
+        } catch (DeadlineExceededException e) {
+            assertEquals("Deadline exceeded", e.getMessage());
+        }
+    }
+
+    @Test
+    public void expiresAfterDuration() throws Exception {
+        Deadline deadline = Deadline.after(20, TimeUnit.MILLISECONDS);
+        Thread.sleep(40);
+        assertTrue(deadline.isExpired());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class HttpCacheEntryTest {
+    private static final long NOW = 1_000_000;
+
+    @Test
+    public void maxAgeLessAge() {
+        HttpCacheEntry entry = HttpCacheEntry.of(response(HTTP_OK,
+                "cache-control", "public, max-age=60", "age", "10"), NOW);
+        assertNotNull(entry);
+        assertEquals(NOW + 50_000, entry.getExpiresAt());
+        assertTrue(entry.isFresh(NOW + 49_999));
+        assertFalse(entry.isFresh(NOW + 50_000));
+        assertFalse(entry.hasValidators());
+    }
+
+    @Test
+    public void noCacheKeepsValidators() {
+        HttpCacheEntry entry = HttpCacheEntry.of(response(HTTP_OK,
+                "Cache-Control", "no-cache, max-age=60", "ETag", "\"v1\"",
+                "Last-Modified", "Tue, 15 Oct 2019 12:00:00 GMT"), NOW);
+        assertNotNull(entry);
+        assertFalse(entry.isFresh(NOW));
+        assertEquals("\"v1\"", entry.getETag());
+        assertEquals("Tue, 15 Oct 2019 12:00:00 GMT", entry.getLastModified());
+
+        ConnectionParameters.ParameterBuilder builder = new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(ConnectionParameters.RequestMethod.GET);
+        entry.addValidators(builder);
+        Map<String, String> properties = builder.create().requestProperties();
+        assertEquals("\"v1\"", properties.get(HttpCacheEntry.IF_NONE_MATCH));
+        assertEquals("Tue, 15 Oct 2019 12:00:00 GMT",
+                properties.get(HttpCacheEntry.IF_MODIFIED_SINCE));
+    }
+
+    @Test
+    public void notStoredIsStale() {
+        HttpCacheEntry entry = HttpCacheEntry.of(response(HTTP_OK,
+                "Cache-Control", "no-store", "ETag", "\"v1\""), NOW);
+        assertNotNull(entry);
+        assertFalse(entry.isFresh(NOW));
+        assertFalse(entry.hasValidators());
+    }
+
+    @Test
+    public void notReusableWithoutValidatorsIsStale() {
+        HttpCacheEntry noCache = HttpCacheEntry.of(response(HTTP_OK,
+                "Cache-Control", "no-cache"), NOW);
+        assertNotNull(noCache);
+        assertFalse(noCache.isFresh(NOW));
+        assertFalse(noCache.hasValidators());
+
+        HttpCacheEntry maxAgeZero = HttpCacheEntry.of(response(HTTP_OK,
+                "Cache-Control", "max-age=0"), NOW);
+        assertNotNull(maxAgeZero);
+        assertFalse(maxAgeZero.isFresh(NOW));
+    }
+
+    @Test
+    public void noCacheHeaders() {
+        assertNull(HttpCacheEntry.of(response(HTTP_OK), NOW));
+    }
+
+    @Test
+    public void revalidatedKeepsValidators() {
+        HttpCacheEntry entry = new HttpCacheEntry("\"v1\"", null, NOW);
+
+        HttpCacheEntry renewed = entry.revalidated(response(HTTP_NOT_MODIFIED,
+                "Cache-Control", "max-age=3600"), NOW + 1000);
+        assertNotNull(renewed);
+        assertEquals("\"v1\"", renewed.getETag());
+        assertEquals(NOW + 1000 + 3_600_000, renewed.getExpiresAt());
+
+        HttpCacheEntry stale = entry.revalidated(response(HTTP_NOT_MODIFIED), NOW + 1000);
+        assertNotNull(stale);
+        assertEquals("\"v1\"", stale.getETag());
+        assertFalse(stale.isFresh(NOW + 1000));
+    }
+
+    @Test
+    public void revalidatedNotStoredIsStale() {
+        HttpCacheEntry entry = new HttpCacheEntry("\"v1\"", null, NOW);
+
+        HttpCacheEntry renewed = entry.revalidated(response(HTTP_NOT_MODIFIED,
+                "Cache-Control", "no-store"), NOW + 1000);
+        assertFalse(renewed.isFresh(NOW + 1000));
+        assertFalse(renewed.hasValidators());
+    }
+
+    private static HttpResponse response(int status, String... headers) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i], Collections.singletonList(headers[i + 1]));
+        }
+        return new HttpResponse(status, map);
+    }
+}
@@ -19,11 +19,13 @@ import android.net.Uri;
 
 import com.google.gson.Gson;
 import com.okta.oidc.OIDCConfig;
+import com.okta.oidc.net.params.RequestType;
 import com.okta.oidc.net.request.AuthorizedRequest;
 import com.okta.oidc.net.request.HttpRequestBuilder;
 import com.okta.oidc.net.request.ProviderConfiguration;
 import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.util.AuthorizationException;
+import com.okta.oidc.util.CodeVerifierUtil;
 import com.okta.oidc.util.JsonStrings;
 import com.okta.oidc.util.MockEndPoint;
 import com.okta.oidc.util.TestValues;
@@ -40,6 +42,7 @@ import org.robolectric.annotation.Config;
 import java.io.InputStream;
 import java.util.concurrent.CountDownLatch;
 
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -152,4 +155,83 @@ public class HttpClientImplTest {
         mHttpClient.connect(Uri.parse(mEndPoint.getUrl()), mRequest.mConnParams);
         assertEquals("OK", mHttpClient.getResponseMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void connectionIsReusedAcrossRequests() throws Exception {
+        String url = mEndPoint.getUrl();
+        OIDCConfig config = TestValues.getConfigWithUrl(url);
+        ProviderConfiguration providerConfiguration = TestValues.getProviderConfiguration(url);
+        TokenResponse tokenResponse =
+                new Gson().fromJson(JsonStrings.TOKEN_RESPONSE, TokenResponse.class);
+        ConnectionMetrics metrics = HttpClientImpl.getConnectionMetrics();
+        long requests = metrics.getRequestCount();
+        long connections = metrics.getConnectionCount();
+        long handshakes = metrics.getHandshakeCount();
+
+        //discovery -> token -> userinfo
+        mEndPoint.enqueueConfigurationSuccess();
+        assertNotNull(HttpRequestBuilder.newConfigurationRequest()
+                .config(config)
+                .createRequest()
+                .executeRequest(mHttpClient));
+        String jws = TestValues.getJwt(url, CodeVerifierUtil.generateRandomState(),
+                config.getClientId());
+        mEndPoint.enqueueTokenSuccess(jws);
+        assertNotNull(TestValues.getRefreshRequest(config, tokenResponse, providerConfiguration)
+                .executeRequest(mHttpClient));
+        mEndPoint.enqueueUserInfoSuccess();
+        assertNotNull(HttpRequestBuilder.newProfileRequest()
+                .providerConfiguration(providerConfiguration)
+                .tokenResponse(tokenResponse)
+                .config(config)
+                .createRequest()
+                .executeRequest(mHttpClient));
+
+        //Handshake listeners may be notified on another thread.
+        long deadline = System.currentTimeMillis() + 1000;
+        while (metrics.getHandshakeCount() == handshakes
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, metrics.getRequestCount() - requests);
+        assertEquals(1, metrics.getConnectionCount() - connections);
+        assertEquals(1, metrics.getHandshakeCount() - handshakes);
+        assertTrue(metrics.getReusedConnectionCount() >= 2);
+    }
+
+    @Test
+    public void exchangesDoNotShareState() throws Exception {
+        mEndPoint.enqueueUserInfoSuccess();
+        mEndPoint.enqueueConfigurationFailure();
+        Uri uri = Uri.parse(mEndPoint.getUrl());
+        try (OktaHttpExchange first = mHttpClient.execute(uri, mRequest.mConnParams);
+             OktaHttpExchange second = mHttpClient.execute(uri, mRequest.mConnParams)) {
+            assertEquals(HTTP_OK, first.getResponseCode());
+            assertEquals(HTTP_NOT_FOUND, second.getResponseCode());
+
+            second.cancel();
+            HttpResponse response = new HttpResponse(first.getResponseCode(),
+                    first.getHeaderFields(), first.getContentLength(), first, null);
+            assertEquals("John Doe", response.asJson().get("name"));
+            assertNotNull(response.getHeaderField("Content-Length"));
+        }
+    }
+
+    @Test
+    public void gzipResponseIsDecoded() throws Exception {
+        TransferMetrics metrics = ContentEncodings.getTransferMetrics();
+        long compressed = metrics.getCompressedBytes(RequestType.AUTHORIZED);
+        long uncompressed = metrics.getUncompressedBytes(RequestType.AUTHORIZED);
+        byte[] body = mEndPoint.enqueueGzipJsonSuccess(JsonStrings.USER_PROFILE);
+
+        JSONObject result = mRequest.executeRequest(mHttpClient);
+
+        assertEquals("John Doe", result.get("name"));
+        assertEquals(ContentEncodings.getAcceptEncoding(),
+                mEndPoint.takeRequest().getHeader(ContentEncodings.ACCEPT_ENCODING));
+        assertEquals(body.length,
+                metrics.getCompressedBytes(RequestType.AUTHORIZED) - compressed);
+        assertEquals(JsonStrings.USER_PROFILE.getBytes("UTF-8").length,
+                metrics.getUncompressedBytes(RequestType.AUTHORIZED) - uncompressed);
+    }
+}
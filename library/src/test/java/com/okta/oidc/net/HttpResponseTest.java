@@ -21,6 +21,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import com.okta.oidc.net.response.TokenResponse;
 
 import org.json.JSONObject;
@@ -32,11 +33,13 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -227,6 +230,41 @@ public class HttpResponseTest {
         assertEquals(code, SESSION_TOKEN);
     }
 
+    @Test
+    public void decodeJson() throws Exception {
+        TokenResponse tokenResponse = bodyResponse(HTTP_OK, TOKEN_SUCCESS)
+                .decode(TokenResponse.class);
+        TokenResponse expected = new Gson().fromJson(TOKEN_SUCCESS, TokenResponse.class);
+
+        assertEquals(expected.getAccessToken(), tokenResponse.getAccessToken());
+        assertEquals(expected.getExpiresIn(), tokenResponse.getExpiresIn());
+    }
+
+    @Test
+    public void decodeMalformedJson() throws Exception {
+        mExpectedEx.expect(JsonSyntaxException.class);
+        bodyResponse(HTTP_OK, "{\"access_token\":").decode(TokenResponse.class);
+    }
+
+    @Test
+    public void decodeEmptyBody() throws Exception {
+        mExpectedEx.expect(JsonSyntaxException.class);
+        bodyResponse(HTTP_OK, "").decode(TokenResponse.class);
+    }
+
+    @Test
+    public void decodeErrorStatus() throws Exception {
+        mExpectedEx.expect(IOException.class);
+        mExpectedEx.expectMessage("Invalid status code 404");
+        bodyResponse(HTTP_NOT_FOUND, CONFIGURATION_NOT_FOUND).decode(TokenResponse.class);
+    }
+
+    private static HttpResponse bodyResponse(int status, String body) {
+        byte[] bytes = body.getBytes();
+        return new HttpResponse(status, Collections.emptyMap(), bytes.length,
+                new ByteArrayInputStream(bytes), null);
+    }
+
     private class MockOktaHttpClient implements OktaHttpClient {
         private HttpURLConnection mConnection;
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import com.google.gson.Gson;
+import com.okta.oidc.net.request.ProviderConfiguration;
+import com.okta.oidc.util.JsonStrings;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares decoding a large discovery document while it is read with the former path, which
+ * buffered the body into a JSONObject and serialized it again for Gson.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class JsonDecodeBenchmarkTest {
+    private static final int EXTRA_VALUES = 20000;
+    private static final int WARM_UP = 5;
+    private byte[] mDocument;
+
+    private interface Decoder {
+        ProviderConfiguration decode(HttpResponse response) throws Exception;
+    }
+
+    private static final Decoder BUFFERED = response -> new Gson()
+            .fromJson(response.asJson().toString(), ProviderConfiguration.class);
+    private static final Decoder STREAMING = response ->
+            response.decode(ProviderConfiguration.class);
+
+    @Before
+    public void setUp() throws Exception {
+        JSONObject document = new JSONObject(JsonStrings.PROVIDER_CONFIG);
+        JSONArray claims = new JSONArray();
+        JSONArray scopes = new JSONArray();
+        for (int i = 0; i < EXTRA_VALUES; i++) {
+            claims.put("claim_" + i);
+            scopes.put("scope_" + i);
+        }
+        document.put("claims_supported", claims);
+        document.put("scopes_supported", scopes);
+        mDocument = document.toString().getBytes(ConnectionParameters.DEFAULT_ENCODING);
+    }
+
+    @Test
+    public void decodersAgree() throws Exception {
+        ProviderConfiguration buffered = BUFFERED.decode(response());
+        ProviderConfiguration streaming = STREAMING.decode(response());
+
+        assertEquals(buffered.persist(), streaming.persist());
+    }
+
+    @Test
+    public void streamingAllocatesLess() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        warmUp();
+        long start = threads.getThreadAllocatedBytes(thread);
+        BUFFERED.decode(response());
+        long buffered = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        STREAMING.decode(response());
+        long streaming = threads.getThreadAllocatedBytes(thread) - start;
+
+        assertTrue("streaming " + streaming + " buffered " + buffered, streaming < buffered);
+    }
+
+    private void warmUp() throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            BUFFERED.decode(response());
+            STREAMING.decode(response());
+        }
+    }
+
+    private HttpResponse response() {
+        return new HttpResponse(HTTP_OK, Collections.emptyMap(), mDocument.length,
+                new ByteArrayInputStream(mDocument), null);
+    }
+}
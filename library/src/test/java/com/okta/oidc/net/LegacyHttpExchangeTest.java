@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class LegacyHttpExchangeTest {
+    private static final Uri URI = Uri.parse("https://example.com");
+    private ConnectionParameters mParams;
+    private LegacyClient mClient;
+
+    @Before
+    public void setUp() {
+        mParams = new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(ConnectionParameters.RequestMethod.GET)
+                .create();
+        mClient = new LegacyClient();
+    }
+
+    @Test
+    public void exchangeReadsFromClient() throws Exception {
+        try (OktaHttpExchange exchange = mClient.execute(URI, mParams)) {
+            assertEquals(HTTP_OK, exchange.getResponseCode());
+            assertEquals("OK", exchange.getResponseMessage());
+            assertEquals("1", exchange.getHeader("Request"));
+            assertEquals(1, exchange.getBody().read());
+        }
+        assertEquals(1, mClient.mCleanUps.get());
+    }
+
+    @Test
+    public void nextExchangeWaitsForClose() throws Exception {
+        OktaHttpExchange first = mClient.execute(URI, mParams);
+        CountDownLatch sent = new CountDownLatch(1);
+        AtomicReference<OktaHttpExchange> second = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                second.set(mClient.execute(URI, mParams));
+                sent.countDown();
+            } catch (Exception e) {
+                //NO-OP
+            }
+        });
+        thread.start();
+
+        assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+        assertEquals("1", first.getHeader("Request"));
+        first.close();
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+        assertEquals("2", second.get().getHeader("Request"));
+        second.get().close();
+        thread.join();
+    }
+
+    @Test
+    public void closedExchangeDoesNotCancelClient() throws Exception {
+        OktaHttpExchange exchange = mClient.execute(URI, mParams);
+        exchange.close();
+        exchange.cancel();
+        exchange.close();
+
+        assertEquals(0, mClient.mCancels.get());
+        assertEquals(1, mClient.mCleanUps.get());
+    }
+
+    @Test
+    public void failedConnectReleasesClient() throws Exception {
+        mClient.mFail = true;
+        try {
+            mClient.execute(URI, mParams);
+            fail("Expected failure");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+        mClient.mFail = false;
+        try (OktaHttpExchange exchange = mClient.execute(URI, mParams)) {
+            assertEquals("2", exchange.getHeader("Request"));
+        }
+    }
+
+    private static class LegacyClient implements OktaHttpClient {
+        private final AtomicInteger mRequests = new AtomicInteger();
+        private final AtomicInteger mCancels = new AtomicInteger();
+        private final AtomicInteger mCleanUps = new AtomicInteger();
+        private volatile boolean mFail;
+        private volatile String mRequest;
+
+        @Override
+        public InputStream connect(@NonNull Uri uri, @NonNull ConnectionParameters param) {
+            mRequest = String.valueOf(mRequests.incrementAndGet());
+            if (mFail) {
+                throw new IllegalStateException("Failed");
+            }
+            return new ByteArrayInputStream(new byte[]{1, 2, 3});
+        }
+
+        @Override
+        public void cleanUp() {
+            mRequest = null;
+            mCleanUps.incrementAndGet();
+        }
+
+        @Override
+        public void cancel() {
+            mCancels.incrementAndGet();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return Collections.singletonMap("Request", Collections.singletonList(mRequest));
+        }
+
+        @Override
+        public String getHeader(String header) {
+            return "Request".equals(header) ? mRequest : null;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return mRequest == null ? -1 : HTTP_OK;
+        }
+
+        @Override
+        public int getContentLength() {
+            return 3;
+        }
+
+        @Override
+        public String getResponseMessage() {
+            return "OK";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net;
+
+import com.okta.oidc.net.params.RequestType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RequestPolicyTest {
+    @After
+    public void tearDown() {
+        RequestPolicies.reset();
+    }
+
+    @Test
+    public void backoffIsExponentialWithJitter() {
+        RequestPolicy policy = new RequestPolicy.Builder().backoff(100, 1000).create();
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.getBackoffMs(1));
+            assertBetween(100, 200, policy.getBackoffMs(2));
+            assertBetween(200, 400, policy.getBackoffMs(3));
+            assertBetween(500, 1000, policy.getBackoffMs(10));
+        }
+    }
+
+    @Test
+    public void parseRetryAfter() {
+        long now = 1571140800000L; //Tue, 15 Oct 2019 12:00:00 GMT
+        assertEquals(120000, RequestPolicy.parseRetryAfter("120", now));
+        assertEquals(30000,
+                RequestPolicy.parseRetryAfter("Tue, 15 Oct 2019 12:00:30 GMT", now));
+        assertEquals(0, RequestPolicy.parseRetryAfter("Tue, 15 Oct 2019 11:00:00 GMT", now));
+        assertEquals(-1, RequestPolicy.parseRetryAfter("soon", now));
+        assertEquals(-1, RequestPolicy.parseRetryAfter(null, now));
+    }
+
+    @Test
+    public void retryableStatus() {
+        assertTrue(RequestPolicy.isRetryableStatus(503));
+        assertTrue(RequestPolicy.isRetryableStatus(429));
+        assertFalse(RequestPolicy.isRetryableStatus(400));
+        assertFalse(RequestPolicy.isRetryableStatus(501));
+    }
+
+    @Test
+    public void policiesByRequestType() {
+        RequestPolicy policy = new RequestPolicy.Builder().maxAttempts(1).create();
+        RequestPolicies.set(RequestType.PROFILE, policy);
+
+        assertSame(policy, RequestPolicies.get(RequestType.PROFILE));
+        assertSame(RequestPolicy.DEFAULT, RequestPolicies.get(RequestType.INTROSPECT));
+        assertSame(RequestPolicy.DEFAULT, RequestPolicies.get(null));
+    }
+
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " < " + min, value >= min);
+        assertTrue(value + " > " + max, value <= max);
+    }
+}
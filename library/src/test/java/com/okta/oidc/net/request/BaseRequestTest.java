@@ -16,13 +16,20 @@ package com.okta.oidc.net.request;
 
 import android.net.Uri;
 
+import com.okta.oidc.net.CircuitOpenException;
 import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.DeadlineExceededException;
 import com.okta.oidc.net.HttpResponse;
 import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.RequestPolicies;
+import com.okta.oidc.net.RequestPolicy;
+import com.okta.oidc.net.params.RequestType;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.MockEndPoint;
 import com.okta.oidc.util.HttpClientFactory;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,13 +39,18 @@ import org.robolectric.ParameterizedRobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.io.IOException;
+import java.net.ConnectException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.okta.oidc.util.HttpClientFactory.USE_DEFAULT_HTTP;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(ParameterizedRobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -78,6 +90,12 @@ public class BaseRequestTest {
         mHttpClient = mClientFactory.build();
     }
 
+    @After
+    public void tearDown() throws Exception {
+        RequestPolicies.reset();
+        mEndPoint.shutDown();
+    }
+
     @Test
     public void openConnection() throws Exception {
         mEndPoint.enqueueReturnSuccessEmptyBody();
@@ -133,4 +151,172 @@ public class BaseRequestTest {
         mRequest.close();
         response.getContent().read();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void retryIdempotentRequest() throws Exception {
+        RequestPolicies.set(RequestType.CONFIGURATION, new RequestPolicy.Builder()
+                .backoff(1, 1)
+                .create());
+        mEndPoint.enqueueServiceUnavailable(null);
+        mEndPoint.enqueueServiceUnavailable("0");
+        mEndPoint.enqueueReturnSuccessEmptyBody();
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+
+        HttpResponse response = mRequest.openConnection(mHttpClient);
+
+        assertEquals(HTTP_OK, response.getStatusCode());
+        assertEquals(3, mEndPoint.getRequestCount());
+    }
+
+    @Test
+    public void tokenRequestIsNotReplayed() throws Exception {
+        RequestPolicies.set(RequestType.REFRESH_TOKEN, new RequestPolicy.Builder()
+                .backoff(1, 1)
+                .create());
+        mEndPoint.enqueueServiceUnavailable(null);
+        mEndPoint.enqueueReturnSuccessEmptyBody();
+        setUpRequest(RequestType.REFRESH_TOKEN, ConnectionParameters.RequestMethod.POST);
+
+        HttpResponse response = mRequest.openConnection(mHttpClient);
+
+        assertEquals(HTTP_UNAVAILABLE, response.getStatusCode());
+        assertEquals(1, mEndPoint.getRequestCount());
+    }
+
+    @Test
+    public void retryAfterTooLong() throws Exception {
+        mEndPoint.enqueueServiceUnavailable("3600");
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+
+        HttpResponse response = mRequest.openConnection(mHttpClient);
+
+        assertEquals(HTTP_UNAVAILABLE, response.getStatusCode());
+        assertEquals(1, mEndPoint.getRequestCount());
+    }
+
+    @Test
+    public void circuitBreakerFailsFast() throws Exception {
+        RequestPolicies.set(RequestType.REFRESH_TOKEN, new RequestPolicy.Builder()
+                .maxAttempts(1)
+                .circuitBreaker(2, 60000)
+                .create());
+        mEndPoint.enqueueServiceUnavailable(null);
+        mEndPoint.enqueueServiceUnavailable(null);
+        mEndPoint.enqueueReturnSuccessEmptyBody();
+        for (int i = 0; i < 2; i++) {
+            setUpRequest(RequestType.REFRESH_TOKEN, ConnectionParameters.RequestMethod.POST);
+            mRequest.openConnection(mHttpClient).disconnect();
+        }
+
+        try {
+            setUpRequest(RequestType.REFRESH_TOKEN, ConnectionParameters.RequestMethod.POST);
+            mRequest.openConnection(mHttpClient);
+            fail("Expected the circuit breaker to be open");
+        } catch (CircuitOpenException e) {
+            assertTrue(e.getRetryAfterMs() > 0);
+        }
+        assertEquals(2, mEndPoint.getRequestCount());
+    }
+
+    @Test
+    public void connectFailuresDoNotOpenCircuitBreaker() throws Exception {
+        RequestPolicies.set(RequestType.REFRESH_TOKEN, new RequestPolicy.Builder()
+                .maxAttempts(1)
+                .circuitBreaker(2, 60000)
+                .create());
+        for (int i = 0; i < 3; i++) {
+            setUpRequest(RequestType.REFRESH_TOKEN, ConnectionParameters.RequestMethod.POST);
+            //Nothing listens on port 1.
+            mRequest.mUri = Uri.parse("https://127.0.0.1:1/token");
+            try {
+                mRequest.openConnection(mHttpClient);
+                fail("Expected the connection to fail");
+            } catch (ConnectException e) {
+                //Not a CircuitOpenException.
+            }
+        }
+    }
+
+    @Test
+    public void cancelDuringBackoff() throws Exception {
+        mExpectedEx.expect(IOException.class);
+        mExpectedEx.expectMessage("Canceled");
+        RequestPolicies.set(RequestType.CONFIGURATION, new RequestPolicy.Builder()
+                .backoff(60000, 60000)
+                .create());
+        mEndPoint.enqueueServiceUnavailable(null);
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+        AtomicReference<Exception> exception = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                mRequest.openConnection(mHttpClient);
+            } catch (Exception e) {
+                exception.set(e);
+            }
+        });
+        t.start();
+        mEndPoint.takeRequest();
+
+        mRequest.cancelRequest();
+        t.join(5000);
+        if (exception.get() != null) {
+            throw exception.get();
+        }
+    }
+
+    @Test
+    public void expiredDeadlineSendsNothing() throws Exception {
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+        mRequest.setDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+        try {
+            mRequest.openConnection(mHttpClient);
+            fail("Expected the deadline to be exceeded");
+        } catch (DeadlineExceededException e) {
+            assertEquals(0, mEndPoint.getRequestCount());
+        }
+    }
+
+    @Test
+    public void slowResponseExceedsDeadline() throws Exception {
+        mEndPoint.enqueueReturnSuccessEmptyBody(5);
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+        mRequest.setDeadline(Deadline.after(500, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime() / 1000000;
+        try {
+            mRequest.openConnection(mHttpClient);
+            fail("Expected the deadline to be exceeded");
+        } catch (DeadlineExceededException e) {
+            assertTrue(System.nanoTime() / 1000000 - start < 5000);
+        }
+    }
+
+    @Test
+    public void noRetryPastDeadline() throws Exception {
+        RequestPolicies.set(RequestType.CONFIGURATION, new RequestPolicy.Builder()
+                .backoff(60000, 60000)
+                .create());
+        mEndPoint.enqueueServiceUnavailable(null);
+        setUpRequest(RequestType.CONFIGURATION, ConnectionParameters.RequestMethod.GET);
+        mRequest.setDeadline(Deadline.after(10, TimeUnit.SECONDS));
+
+        HttpResponse response = mRequest.openConnection(mHttpClient);
+
+        assertEquals(HTTP_UNAVAILABLE, response.getStatusCode());
+        assertEquals(1, mEndPoint.getRequestCount());
+    }
+
+    private void setUpRequest(RequestType type, ConnectionParameters.RequestMethod method) {
+        mRequest = new BaseRequest<String, AuthorizationException>() {
+            @Override
+            public String executeRequest(OktaHttpClient client) throws AuthorizationException {
+                return null;
+            }
+        };
+        mRequest.mRequestType = type;
+        mRequest.mUri = Uri.parse(mEndPoint.getUrl());
+        mRequest.mConnParams = new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(method)
+                .setRequestType(type)
+                .create();
+    }
+}
@@ -16,6 +16,7 @@ package com.okta.oidc.net.request;
 
 import com.google.gson.Gson;
 import com.okta.oidc.OIDCConfig;
+import com.okta.oidc.net.HttpCacheEntry;
 import com.okta.oidc.net.OktaHttpClient;
 import com.okta.oidc.util.AuthorizationException;
 import com.okta.oidc.util.JsonStrings;
@@ -39,7 +40,11 @@ import java.util.concurrent.Executors;
 
 import static com.okta.oidc.util.TestValues.WELL_KNOWN_OAUTH;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(ParameterizedRobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -119,4 +124,29 @@ public class ConfigurationRequestTest {
         mEndPoint.enqueueConfigurationFailure();
         mRequest.executeRequest(mHttpClient);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void revalidateNotModified() throws Exception {
+        mEndPoint.enqueueCachedConfigurationSuccess("\"v1\"", 0);
+        ProviderConfiguration configuration = mRequest.executeRequest(mHttpClient);
+        HttpCacheEntry entry = configuration.getCacheEntry();
+        assertNotNull(entry);
+        assertEquals("\"v1\"", entry.getETag());
+        assertFalse(entry.isFresh(System.currentTimeMillis()));
+        assertNull(mEndPoint.takeRequest().getHeader(HttpCacheEntry.IF_NONE_MATCH));
+
+        mEndPoint.enqueueNotModified(3600);
+        ProviderConfiguration revalidated = HttpRequestBuilder.newConfigurationRequest()
+                .config(TestValues.getConfigWithUrl(mEndPoint.getUrl()))
+                .providerConfiguration(configuration)
+                .createRequest()
+                .executeRequest(mHttpClient);
+
+        assertNotSame(configuration, revalidated);
+        assertEquals(configuration.issuer, revalidated.issuer);
+        assertFalse(configuration.getCacheEntry().isFresh(System.currentTimeMillis()));
+        assertEquals("\"v1\"", mEndPoint.takeRequest().getHeader(HttpCacheEntry.IF_NONE_MATCH));
+        assertEquals("\"v1\"", revalidated.getCacheEntry().getETag());
+        assertTrue(revalidated.getCacheEntry().isFresh(System.currentTimeMillis()));
+    }
+}
@@ -15,6 +15,7 @@
 package com.okta.oidc.net.request;
 
 import com.google.gson.Gson;
+import com.okta.oidc.net.HttpCacheEntry;
 import com.okta.oidc.util.TestValues;
 
 import org.junit.Before;
@@ -36,8 +37,11 @@ import static com.okta.oidc.util.TestValues.REVOCATION_ENDPOINT;
 import static com.okta.oidc.util.TestValues.TOKEN_ENDPOINT;
 import static com.okta.oidc.util.TestValues.USERINFO_ENDPOINT;
 import static com.okta.oidc.util.TestValues.getCustomConfiguration;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -89,6 +93,43 @@ public class ProviderConfigurationTest {
         assertEquals(other.persist(), json);
     }
 
+    @Test
+    public void persistBytes() {
+        String json = mValidConfiguration.persist();
+        byte[] record = mValidConfiguration.persistBytes();
+        ProviderConfiguration other = ProviderConfiguration.RESTORE.restore(record);
+        other.validate(false);
+        assertEquals(json, other.persist());
+        assertTrue(record.length < json.getBytes().length);
+        assertEquals(json, ProviderConfiguration.RESTORE.restore(json.getBytes()).persist());
+    }
+
+    @Test
+    public void persistCacheEntry() {
+        mValidConfiguration.setCacheEntry(new HttpCacheEntry("\"v1\"", null, 1000));
+        String json = mValidConfiguration.persist();
+
+        HttpCacheEntry fromRecord = ProviderConfiguration.RESTORE
+                .restore(mValidConfiguration.persistBytes()).getCacheEntry();
+        HttpCacheEntry fromJson = ProviderConfiguration.RESTORE.restore(json).getCacheEntry();
+
+        assertEquals("\"v1\"", fromRecord.getETag());
+        assertNull(fromRecord.getLastModified());
+        assertEquals(1000, fromRecord.getExpiresAt());
+        assertEquals("\"v1\"", fromJson.getETag());
+        assertEquals(1000, fromJson.getExpiresAt());
+    }
+
+    @Test
+    public void persistBytesRoundTrips() {
+        byte[] record = mValidConfiguration.persistBytes();
+        ProviderConfiguration restored = ProviderConfiguration.RESTORE.restore(record);
+
+        assertArrayEquals(record, restored.persistBytes());
+        assertEquals(mValidConfiguration.persist(), restored.persist());
+        assertTrue(record.length < mValidConfiguration.persist().getBytes().length);
+    }
+
     @Test
     public void useCustomConfiguration() {
         ProviderConfiguration config =
@@ -44,6 +44,8 @@ import static com.okta.oidc.util.TestValues.LOGIN_HINT;
 import static com.okta.oidc.util.TestValues.PROMPT;
 import static com.okta.oidc.util.TestValues.SCOPES;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -165,4 +167,29 @@ public class AuthorizeRequestTest {
         assertEquals(request.persist(), json);
     }
 
+    @Test
+    public void persistBytes() {
+        WebRequest request = WebRequest.RESTORE.restore(mRequest.persistBytes());
+        assertTrue(request instanceof AuthorizeRequest);
+        assertEquals(mRequest.persist(), request.persist());
+        assertEquals(mRequest.getCodeVerifier(), ((AuthorizeRequest) request).getCodeVerifier());
+    }
+
+    @Test
+    public void restoreJsonBytes() {
+        WebRequest request = WebRequest.RESTORE.restore(mRequest.persist().getBytes());
+        assertTrue(request instanceof AuthorizeRequest);
+        assertEquals(mRequest.getState(), request.getState());
+    }
+
+    @Test
+    public void copyHasOwnParameters() {
+        WebRequest request = WebRequest.RESTORE.restore(mRequest.persistBytes());
+        WebRequest copy = WebRequest.RESTORE.copy(request);
+        assertNotSame(request, copy);
+        //toUri() removes the authorize endpoint from the parameters of the request.
+        assertEquals(request.toUri(), copy.toUri());
+        assertEquals(mRequest.getCodeVerifier(), ((AuthorizeRequest) copy).getCodeVerifier());
+    }
+
 }
\ No newline at end of file
@@ -35,6 +35,8 @@ import static com.okta.oidc.util.JsonStrings.TOKEN_RESPONSE;
 import static com.okta.oidc.util.TestValues.CUSTOM_STATE;
 import static com.okta.oidc.util.TestValues.CUSTOM_URL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -124,4 +126,21 @@ public class LogoutRequestTest {
         LogoutRequest request = new LogoutRequest(parameters);
         assertEquals(request.persist(), json);
     }
+
+    @Test
+    public void persistBytes() {
+        WebRequest request = WebRequest.RESTORE.restore(mRequest.persistBytes());
+        assertTrue(request instanceof LogoutRequest);
+        assertEquals(mRequest.persist(), request.persist());
+        assertEquals(mRequest.toUri(), request.toUri());
+    }
+
+    @Test
+    public void copyHasOwnParameters() {
+        WebRequest request = WebRequest.RESTORE.restore(mRequest.persistBytes());
+        WebRequest copy = WebRequest.RESTORE.copy(request);
+        assertNotSame(request, copy);
+        assertTrue(copy instanceof LogoutRequest);
+        assertEquals(request.persist(), copy.persist());
+    }
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ import static com.okta.oidc.util.TestValues.REFRESH_TOKEN;
 import static com.okta.oidc.util.TestValues.SCOPES;
 import static com.okta.oidc.util.TestValues.TYPE_BEARER;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -88,4 +89,18 @@ public class TokenResponseTest {
         assertEquals(tokenResponse.persist(), json);
     }
 
+    @Test
+    public void persistBytes() {
+        byte[] record = mToken.persistBytes();
+        TokenResponse tokenResponse = RESTORE.restore(record);
+        assertEquals(mToken.persist(), tokenResponse.persist());
+        assertTrue(record.length < mToken.persist().getBytes().length);
+    }
+
+    @Test
+    public void restoreJsonBytes() {
+        TokenResponse tokenResponse = RESTORE.restore(mToken.persist().getBytes());
+        assertEquals(mToken.persist(), tokenResponse.persist());
+    }
+
 }
\ No newline at end of file
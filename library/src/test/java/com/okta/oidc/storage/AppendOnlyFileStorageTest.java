@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class AppendOnlyFileStorageTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(mFolder.getRoot(), "storage.log");
+    }
+
+    @Test
+    public void saveGetDelete() {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("key", "value");
+        assertEquals("value", storage.get("key"));
+        storage.save("key", "überschrieben");
+        assertEquals("überschrieben", storage.get("key"));
+        storage.delete("key");
+        assertNull(storage.get("key"));
+        storage.close();
+    }
+
+    @Test
+    public void bytesAreStoredRaw() {
+        byte[] value = {0, 1, (byte) 0xFF, (byte) 0x80, 'v', '2', ':'};
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        assertTrue(storage.supportsBytes());
+        storage.saveBytes("key", value);
+        storage.edit().putBytes("other", new byte[]{2}).put("text", "text").commit();
+        long size = storage.getFileSize();
+        storage.close();
+
+        AppendOnlyFileStorage reopened = new AppendOnlyFileStorage(mFile);
+        assertArrayEquals(value, reopened.getBytes("key"));
+        assertArrayEquals(new byte[]{2}, reopened.getBytes("other"));
+        assertEquals("text", reopened.get("text"));
+        assertEquals(size, reopened.getFileSize());
+        reopened.close();
+    }
+
+    @Test
+    public void reopenRebuildsIndex() {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("first", "1");
+        storage.edit().put("second", "2").put("third", "3").remove("first").commit();
+        storage.close();
+
+        AppendOnlyFileStorage reopened = new AppendOnlyFileStorage(mFile);
+        assertNull(reopened.get("first"));
+        assertEquals("2", reopened.get("second"));
+        assertEquals("3", reopened.get("third"));
+        reopened.close();
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws Exception {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("key", "committed");
+        storage.edit().put("key", "torn").put("other", "torn").commit();
+        storage.close();
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        AppendOnlyFileStorage reopened = new AppendOnlyFileStorage(mFile);
+        assertEquals("committed", reopened.get("key"));
+        assertNull(reopened.get("other"));
+        reopened.save("other", "after");
+        reopened.close();
+
+        AppendOnlyFileStorage again = new AppendOnlyFileStorage(mFile);
+        assertEquals("after", again.get("other"));
+        again.close();
+    }
+
+    @Test
+    public void corruptRecordIsDropped() throws Exception {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("key", "good");
+        long goodSize = storage.getFileSize();
+        storage.save("key", "flipped");
+        storage.close();
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        AppendOnlyFileStorage reopened = new AppendOnlyFileStorage(mFile);
+        assertEquals("good", reopened.get("key"));
+        assertEquals(goodSize, mFile.length());
+        reopened.close();
+    }
+
+    @Test
+    public void unknownFileIsReset() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.write("<map></map>".getBytes("UTF-8"));
+        }
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        assertNull(storage.get("key"));
+        storage.save("key", "value");
+        assertEquals("value", storage.get("key"));
+        storage.close();
+    }
+
+    @Test
+    public void compactionKeepsLiveValues() {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            big.append('x');
+        }
+        for (int i = 0; i < 64; i++) {
+            storage.save("token", big.toString() + i);
+        }
+        storage.save("config", "config");
+        storage.save("removed", "removed");
+        storage.delete("removed");
+
+        storage.compact();
+
+        assertTrue(storage.getFileSize() < 2048);
+        assertEquals(big.toString() + 63, storage.get("token"));
+        assertEquals("config", storage.get("config"));
+        assertNull(storage.get("removed"));
+        storage.close();
+
+        AppendOnlyFileStorage reopened = new AppendOnlyFileStorage(mFile);
+        assertEquals(big.toString() + 63, reopened.get("token"));
+        assertEquals("config", reopened.get("config"));
+        reopened.close();
+    }
+
+    @Test
+    public void failedCompactionKeepsFile() {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("key", "value");
+        //The compacted file can't be created where a directory is.
+        assertTrue(new File(mFile.getPath() + ".compact").mkdir());
+
+        try {
+            storage.compact();
+            fail("Expected the compaction to fail");
+        } catch (RuntimeException e) {
+            assertEquals("Failed to compact storage file", e.getMessage());
+        }
+
+        assertEquals("value", storage.get("key"));
+        storage.save("other", "other");
+        assertEquals("other", storage.get("other"));
+        storage.close();
+    }
+
+    @Test
+    public void compactionAfterCloseDoesNothing() {
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(mFile);
+        storage.save("key", "value");
+        long size = mFile.length();
+        storage.close();
+
+        storage.compact();
+
+        assertEquals(size, mFile.length());
+    }
+
+    @Test
+    public void multiProcessInstancesSeeEachOthersWrites() {
+        AppendOnlyFileStorage first = new AppendOnlyFileStorage(mFile, true);
+        AppendOnlyFileStorage second = new AppendOnlyFileStorage(mFile, true);
+        AtomicInteger changes = new AtomicInteger();
+        second.setOnChangeListener(changes::incrementAndGet);
+
+        first.save("key", "first");
+        assertEquals("first", second.get("key"));
+        assertEquals(1, changes.get());
+
+        second.edit().put("key", "second").put("other", "other").commit();
+        assertEquals("second", first.get("key"));
+        assertEquals("other", first.get("other"));
+        first.delete("other");
+        second.checkForChanges();
+        assertEquals(2, changes.get());
+        assertNull(second.get("other"));
+        // Own writes are not reported.
+        second.save("key", "third");
+        second.checkForChanges();
+        assertEquals(2, changes.get());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void multiProcessCompactionIsPickedUp() {
+        AppendOnlyFileStorage first = new AppendOnlyFileStorage(mFile, true);
+        AppendOnlyFileStorage second = new AppendOnlyFileStorage(mFile, true);
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            big.append('x');
+        }
+        for (int i = 0; i < 64; i++) {
+            first.save("token", big.toString() + i);
+        }
+        assertEquals(big.toString() + 63, second.get("token"));
+
+        first.compact();
+        assertEquals(big.toString() + 63, second.get("token"));
+        assertTrue(second.getFileSize() < 2048);
+        second.save("token", "after");
+        assertEquals("after", first.get("token"));
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void runExclusiveSeesChangesOfPreviousHolder() {
+        AppendOnlyFileStorage first = new AppendOnlyFileStorage(mFile, true);
+        AppendOnlyFileStorage second = new AppendOnlyFileStorage(mFile, true);
+        AtomicInteger changes = new AtomicInteger();
+        second.setOnChangeListener(changes::incrementAndGet);
+
+        first.runExclusive("refresh", () -> {
+            first.save("token", "refreshed");
+            return null;
+        });
+        int changesBeforeTask = second.runExclusive("refresh", changes::get);
+        assertEquals(1, changesBeforeTask);
+        assertEquals("refreshed", second.get("token"));
+        assertEquals("nested", first.runExclusive("refresh",
+                () -> first.runExclusive("refresh", () -> "nested")));
+        first.close();
+        second.close();
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.okta.oidc.net.response.TokenRecord;
+import com.okta.oidc.net.response.TokenResponse;
+import com.okta.oidc.util.EncryptionManagerStub;
+import com.okta.oidc.util.TestValues;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.okta.oidc.util.TestValues.ACCESS_TOKEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class OktaRepositoryConcurrencyTest {
+    private static final int READERS = 8;
+    private static final int READS_PER_THREAD = 1000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Context mContext;
+    private BlockingStorage mStorage;
+    private BlockingEncryptionManager mEncryptionManager;
+    private OktaRepository mRepository;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mStorage = new BlockingStorage();
+        mEncryptionManager = new BlockingEncryptionManager();
+        mRepository = new OktaRepository(mStorage, mContext, mEncryptionManager, false, true);
+        mExecutor = Executors.newFixedThreadPool(READERS + 1);
+    }
+
+    @Test
+    public void cachedReadsDoNotWaitOnDecrypt() throws Exception {
+        mRepository.save(new Record(Record.CACHED.getKey(), "cached"));
+        mRepository.get(Record.CACHED);
+        mStorage.save(hashed(Record.SLOW.getKey()), "slow" + EncryptionManagerStub.STUPID_SALT);
+
+        mEncryptionManager.block();
+        Future<Record> slow = mExecutor.submit(() -> mRepository.get(Record.SLOW));
+        assertTrue(mEncryptionManager.awaitBlocked());
+
+        assertTrue(runCachedReaders(mExecutor, mRepository));
+        assertFalse(slow.isDone());
+
+        mEncryptionManager.release();
+        assertEquals("slow", slow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getData());
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void cachedReadsDoNotWaitOnStorageWrite() throws Exception {
+        mRepository.save(new Record(Record.CACHED.getKey(), "cached"));
+        mRepository.get(Record.CACHED);
+
+        mStorage.block();
+        Future<?> write = mExecutor.submit(() -> {
+            mRepository.save(new Record(Record.SLOW.getKey(), "slow"));
+            return null;
+        });
+        assertTrue(mStorage.awaitBlocked());
+
+        assertTrue(runCachedReaders(mExecutor, mRepository));
+        assertTrue(mRepository.contains(Record.CACHED));
+        assertFalse(write.isDone());
+
+        mStorage.release();
+        write.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("slow", mRepository.get(Record.SLOW).getData());
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void readersNeverObserveStaleValueAfterWrite() throws Exception {
+        mRepository.save(new Record(Record.CACHED.getKey(), "0"));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong lastWritten = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(READERS);
+        AtomicBoolean stale = new AtomicBoolean();
+        for (int i = 0; i < READERS; i++) {
+            mExecutor.submit(() -> {
+                try {
+                    while (!done.get()) {
+                        long floor = lastWritten.get();
+                        long seen = Long.parseLong(mRepository.get(Record.CACHED).getData());
+                        if (seen < floor) {
+                            stale.set(true);
+                        }
+                    }
+                } catch (OktaRepository.EncryptionException e) {
+                    stale.set(true);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        for (long value = 1; value <= 500; value++) {
+            mRepository.save(new Record(Record.CACHED.getKey(), String.valueOf(value)));
+            lastWritten.set(value);
+        }
+        done.set(true);
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(stale.get());
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void tokenReadDoesNotBlockWritesWhileDecrypting() throws Exception {
+        TokenRecord.save(mRepository.beginTransaction(), TestValues.getTokenResponse()).commit();
+        mRepository.save(new Record(Record.CACHED.getKey(), "cached"));
+        //Without the plain values of mRepository, so reading the tokens decrypts.
+        OktaRepository repository =
+                new OktaRepository(mStorage, mContext, mEncryptionManager, false, true);
+        repository.get(Record.CACHED);
+
+        mEncryptionManager.block();
+        Future<TokenResponse> read = mExecutor.submit(() ->
+                TokenRecord.read(repository, TokenResponse.Part.ACCESS_TOKEN));
+        assertTrue(mEncryptionManager.awaitBlocked());
+
+        mExecutor.submit(() -> {
+            repository.save(new Record(Record.SLOW.getKey(), "slow"));
+            return null;
+        }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(runCachedReaders(mExecutor, repository));
+        assertEquals("slow", repository.get(Record.SLOW).getData());
+        assertFalse(read.isDone());
+
+        mEncryptionManager.release();
+        assertEquals(ACCESS_TOKEN,
+                read.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getAccessToken());
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Contention benchmark: {@value READERS} readers hammer a cached key with get and contains
+     * while a decrypt is blocked and a writer commits. With a single monitor the readers would
+     * wait behind the decrypt; here they must all finish before it is released.
+     */
+    @Test
+    public void contentionBenchmark() throws Exception {
+        mRepository.save(new Record(Record.CACHED.getKey(), "cached"));
+        mRepository.get(Record.CACHED);
+        mStorage.save(hashed(Record.SLOW.getKey()), "slow" + EncryptionManagerStub.STUPID_SALT);
+
+        mEncryptionManager.block();
+        Future<Record> slow = mExecutor.submit(() -> mRepository.get(Record.SLOW));
+        assertTrue(mEncryptionManager.awaitBlocked());
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(READERS);
+        AtomicLong reads = new AtomicLong();
+        for (int i = 0; i < READERS; i++) {
+            mExecutor.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < READS_PER_THREAD; j++) {
+                        assertEquals("cached", mRepository.get(Record.CACHED).getData());
+                        assertTrue(mRepository.contains(Record.CACHED));
+                        reads.incrementAndGet();
+                    }
+                } catch (InterruptedException | OktaRepository.EncryptionException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    finished.countDown();
+                }
+                return null;
+            });
+        }
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<?> write = writer.submit(() -> {
+            start.await();
+            mRepository.save(new Record(Record.OTHER.getKey(), "other"));
+            return null;
+        });
+        start.countDown();
+
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals((long) READERS * READS_PER_THREAD, reads.get());
+        write.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(slow.isDone());
+
+        mEncryptionManager.release();
+        assertEquals("slow", slow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getData());
+        assertEquals("other", mRepository.get(Record.OTHER).getData());
+        writer.shutdown();
+        mExecutor.shutdown();
+    }
+
+    private boolean runCachedReaders(ExecutorService executor, OktaRepository repository)
+            throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(READERS);
+        for (int i = 0; i < READERS; i++) {
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < READS_PER_THREAD; j++) {
+                        repository.get(Record.CACHED);
+                    }
+                } catch (OktaRepository.EncryptionException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        return finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private String hashed(String key) throws Exception {
+        return mEncryptionManager.getHashed(key);
+    }
+
+    private static class Record implements Persistable {
+        static final Restore<Record> CACHED = restore("cached");
+        static final Restore<Record> SLOW = restore("slow");
+        static final Restore<Record> OTHER = restore("other");
+
+        private final String mKey;
+        private final String mData;
+
+        Record(String key, String data) {
+            mKey = key;
+            mData = data;
+        }
+
+        String getData() {
+            return mData;
+        }
+
+        @NonNull
+        @Override
+        public String getKey() {
+            return mKey;
+        }
+
+        @Override
+        public String persist() {
+            return mData;
+        }
+
+        private static Restore<Record> restore(String key) {
+            return new Restore<Record>() {
+                @NonNull
+                @Override
+                public String getKey() {
+                    return key;
+                }
+
+                @Override
+                public Record restore(@Nullable String data) {
+                    return data == null ? null : new Record(key, data);
+                }
+            };
+        }
+    }
+
+    private static class BlockingStorage implements OktaStorage {
+        private final Map<String, String> mValues = new ConcurrentHashMap<>();
+        private final CountDownLatch mBlocked = new CountDownLatch(1);
+        private volatile CountDownLatch mGate;
+
+        void block() {
+            mGate = new CountDownLatch(1);
+        }
+
+        void release() {
+            mGate.countDown();
+        }
+
+        boolean awaitBlocked() throws InterruptedException {
+            return mBlocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void save(@NonNull String key, @NonNull String value) {
+            await();
+            mValues.put(key, value);
+        }
+
+        @Nullable
+        @Override
+        public String get(@NonNull String key) {
+            return mValues.get(key);
+        }
+
+        @Override
+        public void delete(@NonNull String key) {
+            await();
+            mValues.remove(key);
+        }
+
+        private void await() {
+            try {
+                CountDownLatch gate = mGate;
+                if (gate != null) {
+                    mBlocked.countDown();
+                    gate.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class BlockingEncryptionManager extends EncryptionManagerStub {
+        private final CountDownLatch mBlocked = new CountDownLatch(1);
+        private volatile CountDownLatch mGate;
+
+        BlockingEncryptionManager() {
+            super(false);
+        }
+
+        void block() {
+            mGate = new CountDownLatch(1);
+        }
+
+        void release() {
+            mGate.countDown();
+        }
+
+        boolean awaitBlocked() throws InterruptedException {
+            return mBlocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public String decrypt(String value) throws GeneralSecurityException {
+            CountDownLatch gate = mGate;
+            if (gate != null) {
+                mBlocked.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.decrypt(value);
+        }
+    }
+}
@@ -17,8 +17,12 @@ package com.okta.oidc.storage;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import com.okta.oidc.net.request.ProviderConfiguration;
+import com.okta.oidc.net.response.TokenResponse;
 import com.okta.oidc.util.EncryptedPersistableMock;
 import com.okta.oidc.util.EncryptionManagerStub;
 import com.okta.oidc.util.OktaStorageMock;
@@ -31,13 +35,23 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 27)
@@ -172,4 +186,383 @@ public class OktaRepositoryTest {
         assertNotEquals(valueFromCache, persistable.getData() +
                 EncryptionManagerStub.STUPID_SALT);
     }
+
+    @Test
+    public void cachedGetSkipsDecryptAndRestore() throws OktaRepository.EncryptionException {
+        final AtomicInteger decrypts = new AtomicInteger();
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                new EncryptionManagerStub(false) {
+                    @Override
+                    public String decrypt(String value) throws GeneralSecurityException {
+                        decrypts.incrementAndGet();
+                        return super.decrypt(value);
+                    }
+                }, false, true);
+        PersistableMock persistable = TestValues.getNotEncryptedPersistable();
+        repository.save(persistable);
+        repository.cacheStorage.clear();
+
+        PersistableMock first = repository.get(PersistableMock.RESTORE);
+        PersistableMock second = repository.get(PersistableMock.RESTORE);
+
+        assertSame(first, second);
+        assertEquals(1, decrypts.get());
+        assertEquals(1, repository.getCacheMissCount());
+        assertEquals(1, repository.getCacheHitCount());
+    }
+
+    @Test
+    public void cachedGetReturnsCopies() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        ProviderConfiguration configuration =
+                TestValues.getProviderConfiguration("https://example.com");
+        configuration.scopes_supported = new String[]{"openid"};
+        repository.save(configuration);
+
+        ProviderConfiguration first = repository.get(ProviderConfiguration.RESTORE);
+        first.issuer = "changed";
+        first.scopes_supported[0] = "changed";
+        ProviderConfiguration second = repository.get(ProviderConfiguration.RESTORE);
+
+        assertNotSame(first, second);
+        assertEquals("https://example.com", second.issuer);
+        assertEquals("openid", second.scopes_supported[0]);
+        assertEquals(1, repository.getCacheHitCount());
+    }
+
+    @Test
+    public void saveInvalidatesRestoredCache() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        repository.save(TestValues.getNotEncryptedPersistable());
+        PersistableMock first = repository.get(PersistableMock.RESTORE);
+
+        repository.save(TestValues.getNotEncryptedPersistable());
+        PersistableMock second = repository.get(PersistableMock.RESTORE);
+
+        assertNotSame(first, second);
+        assertEquals(2, repository.getCacheMissCount());
+        assertEquals(0, repository.getCacheHitCount());
+    }
+
+    @Test
+    public void restoredCacheKeepsRestoreTypes() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        repository.save(TestValues.getNotEncryptedPersistable());
+        PersistableMock plain = repository.get(PersistableMock.RESTORE);
+        EncryptedPersistableMock encrypted = repository.get(EncryptedPersistableMock.RESTORE);
+
+        assertNotNull(plain);
+        assertNotNull(encrypted);
+        assertEquals(plain.getData(), encrypted.getData());
+    }
+
+    @Test
+    public void noCacheModeDoesNotCountOrCache() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, false);
+        repository.save(TestValues.getNotEncryptedPersistable());
+        PersistableMock first = repository.get(PersistableMock.RESTORE);
+        PersistableMock second = repository.get(PersistableMock.RESTORE);
+
+        assertNotSame(first, second);
+        assertEquals(0, repository.getCacheHitCount());
+        assertEquals(0, repository.getCacheMissCount());
+        assert (repository.restoredCache.isEmpty());
+    }
+
+    @Test
+    public void transactionAppliesAllChanges() throws Exception {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        repository.save(TestValues.getNotEncryptedPersistable());
+        repository.get(PersistableMock.RESTORE);
+
+        repository.beginTransaction()
+                .delete(PersistableMock.RESTORE.getKey())
+                .commit();
+
+        assertNull(repository.get(PersistableMock.RESTORE));
+        assertNull(mOktaStorageSoftware.getSharedPreferences()
+                .getString(mSoftwareEncryption.getHashed(PersistableMock.RESTORE.getKey()), null));
+
+        repository.beginTransaction()
+                .delete(PersistableMock.RESTORE.getKey())
+                .save(TestValues.getNotEncryptedPersistable())
+                .commit();
+
+        assertEquals("data", repository.get(PersistableMock.RESTORE).getData());
+        assertEquals("data" + EncryptionManagerStub.STUPID_SALT,
+                mOktaStorageSoftware.getSharedPreferences()
+                        .getString(mSoftwareEncryption.getHashed(
+                                PersistableMock.RESTORE.getKey()), null));
+    }
+
+    @Test
+    public void transactionUsesDefaultEditor() throws Exception {
+        final Map<String, String> values = new HashMap<>();
+        final AtomicInteger writes = new AtomicInteger();
+        OktaStorage storage = new OktaStorage() {
+            @Override
+            public void save(@NonNull String key, @NonNull String value) {
+                writes.incrementAndGet();
+                values.put(key, value);
+            }
+
+            @Nullable
+            @Override
+            public String get(@NonNull String key) {
+                return values.get(key);
+            }
+
+            @Override
+            public void delete(@NonNull String key) {
+                writes.incrementAndGet();
+                values.remove(key);
+            }
+        };
+        OktaRepository repository = new OktaRepository(storage, mContext,
+                mSoftwareEncryption, false, false);
+
+        OktaRepository.Transaction transaction = repository.beginTransaction()
+                .save(TestValues.getNotEncryptedPersistable())
+                .delete(PersistableMock.RESTORE.getKey())
+                .save(TestValues.getNotEncryptedPersistable());
+        assertEquals(0, writes.get());
+        transaction.commit();
+
+        //the record itself plus dropping its metadata.
+        assertEquals(2, writes.get());
+        assertEquals("data", repository.get(PersistableMock.RESTORE).getData());
+    }
+
+    @Test
+    public void metadataIsReadWithoutDecrypt() throws OktaRepository.EncryptionException {
+        final AtomicInteger decrypts = new AtomicInteger();
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                new EncryptionManagerStub(false) {
+                    @Override
+                    public String decrypt(String value) throws GeneralSecurityException {
+                        decrypts.incrementAndGet();
+                        return super.decrypt(value);
+                    }
+                }, false, false);
+        repository.save(new MetadataPersistable("secret", "metadata"));
+
+        assertEquals("metadata", repository.getMetadata(MetadataPersistable.RESTORE));
+        assertEquals(0, decrypts.get());
+        assertEquals("secret", repository.get(MetadataPersistable.RESTORE).mData);
+    }
+
+    @Test
+    public void deleteRemovesMetadata() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        repository.save(new MetadataPersistable("secret", "metadata"));
+        repository.delete(MetadataPersistable.RESTORE.getKey());
+
+        assertNull(repository.getMetadata(MetadataPersistable.RESTORE));
+        assertNull(repository.get(MetadataPersistable.RESTORE));
+    }
+
+    @Test
+    public void saveMetadataBackfillsExistingRecord() throws OktaRepository.EncryptionException {
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                mSoftwareEncryption, false, true);
+        repository.save(new MetadataPersistable("secret", null));
+        assertNull(repository.getMetadata(MetadataPersistable.RESTORE));
+
+        repository.saveMetadata(new MetadataPersistable("secret", "metadata"));
+
+        assertEquals("metadata", repository.getMetadata(MetadataPersistable.RESTORE));
+        assertEquals("secret", repository.get(MetadataPersistable.RESTORE).mData);
+    }
+
+    @Test
+    public void legacyValueIsReEncryptedOnRead() throws Exception {
+        EncryptionManagerStub manager = new EncryptionManagerStub(false) {
+            private static final String HEADER = "v2:";
+
+            @Override
+            public String encrypt(String value) throws GeneralSecurityException {
+                return HEADER + super.encrypt(value);
+            }
+
+            @Override
+            public String decrypt(String value) throws GeneralSecurityException {
+                return super.decrypt(value.startsWith(HEADER)
+                        ? value.substring(HEADER.length()) : value);
+            }
+
+            @Override
+            public boolean needsReEncryption(String value) {
+                return !value.startsWith(HEADER);
+            }
+        };
+        OktaRepository repository = new OktaRepository(mOktaStorageSoftware, mContext,
+                manager, false, true);
+        String key = manager.getHashed(PersistableMock.RESTORE.getKey());
+        mOktaStorageSoftware.save(key, "data" + EncryptionManagerStub.STUPID_SALT);
+
+        assertEquals("data", repository.get(PersistableMock.RESTORE).getData());
+        assertEquals("v2:data" + EncryptionManagerStub.STUPID_SALT,
+                mOktaStorageSoftware.get(key));
+        assertEquals("data", repository.get(PersistableMock.RESTORE).getData());
+    }
+
+    @Test
+    public void byteStorageStoresEncryptedBytes() throws Exception {
+        ByteStorage storage = new ByteStorage();
+        OktaRepository repository = new OktaRepository(storage, mContext,
+                mSoftwareEncryption, false, false);
+        repository.save(TestValues.getNotEncryptedPersistable());
+
+        byte[] stored = storage.mValues.get(
+                mSoftwareEncryption.getHashed(PersistableMock.RESTORE.getKey()));
+        assertEquals("data" + EncryptionManagerStub.STUPID_SALT, new String(stored, "UTF-8"));
+        assertEquals("data", repository.get(PersistableMock.RESTORE).getData());
+
+        repository.delete(PersistableMock.RESTORE.getKey());
+        assertNull(repository.get(PersistableMock.RESTORE));
+    }
+
+    @Test
+    public void truncatedRecordThrowsEncryptionException() throws Exception {
+        ByteStorage storage = new ByteStorage();
+        OktaRepository repository = new OktaRepository(storage, mContext, null, false, false);
+        TokenResponse token = TestValues.getTokenResponse();
+        repository.save(token);
+        byte[] stored = storage.mValues.get(token.getKey());
+        assertNotNull(RecordReader.of(stored));
+        storage.mValues.put(token.getKey(), Arrays.copyOf(stored, stored.length / 2));
+
+        try {
+            repository.get(TokenResponse.RESTORE);
+            fail("Truncated record restored");
+        } catch (OktaRepository.EncryptionException e) {
+            assertEquals(OktaRepository.EncryptionException.DECRYPT_ERROR, e.getType());
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void byteStorageStoresBinaryRecords() throws Exception {
+        File file = new File(mContext.getFilesDir(), "OktaRepositoryTest.log");
+        file.delete();
+        AppendOnlyFileStorage storage = new AppendOnlyFileStorage(file);
+        TokenResponse token = TestValues.getTokenResponse();
+        OktaRepository repository = new OktaRepository(storage, mContext, null, false, false);
+        repository.save(token);
+
+        assertNotNull(RecordReader.of(storage.getBytes(token.getKey())));
+        assertEquals(token.persist(), repository.get(TokenResponse.RESTORE).persist());
+
+        // Managers that only encrypt text keep the JSON form.
+        repository.setEncryptionManager(mSoftwareEncryption);
+        repository.save(token);
+        byte[] stored = storage.getBytes(mSoftwareEncryption.getHashed(token.getKey()));
+        assertNull(RecordReader.of(stored));
+        assertEquals(token.persist(), repository.get(TokenResponse.RESTORE).persist());
+        storage.close();
+    }
+
+    @Test
+    public void cachesAreInvalidatedByOtherProcess() throws Exception {
+        File file = new File(mContext.getFilesDir(), "OktaRepositoryTest.shared.log");
+        file.delete();
+        AppendOnlyFileStorage firstStorage = new AppendOnlyFileStorage(file, true);
+        AppendOnlyFileStorage secondStorage = new AppendOnlyFileStorage(file, true);
+        OktaRepository first = new OktaRepository(firstStorage, mContext, null, false, true);
+        OktaRepository second = new OktaRepository(secondStorage, mContext, null, false, true);
+
+        first.save(new MetadataPersistable("first", "first metadata"));
+        assertEquals("first", second.get(MetadataPersistable.RESTORE).persist());
+        assertEquals("first metadata", second.getMetadata(MetadataPersistable.RESTORE));
+
+        first.save(new MetadataPersistable("second", "second metadata"));
+        //Normally called when the lock file is modified.
+        secondStorage.checkForChanges();
+        assertTrue(second.restoredCache.isEmpty());
+        assertEquals("second", second.get(MetadataPersistable.RESTORE).persist());
+        assertEquals("second metadata", second.getMetadata(MetadataPersistable.RESTORE));
+        firstStorage.close();
+        secondStorage.close();
+    }
+
+    private static class MetadataPersistable implements Persistable {
+        static final Restore<MetadataPersistable> RESTORE = new Restore<MetadataPersistable>() {
+            @NonNull
+            @Override
+            public String getKey() {
+                return "MetadataPersistable";
+            }
+
+            @Override
+            public MetadataPersistable restore(@Nullable String data) {
+                return data == null ? null : new MetadataPersistable(data, null);
+            }
+        };
+
+        private final String mData;
+        private final String mMetadata;
+
+        MetadataPersistable(String data, String metadata) {
+            mData = data;
+            mMetadata = metadata;
+        }
+
+        @NonNull
+        @Override
+        public String getKey() {
+            return RESTORE.getKey();
+        }
+
+        @Override
+        public String persist() {
+            return mData;
+        }
+
+        @Override
+        public String persistMetadata() {
+            return mMetadata;
+        }
+    }
+
+    private static class ByteStorage implements OktaStorage {
+        private final Map<String, byte[]> mValues = new HashMap<>();
+
+        @Override
+        public void save(@NonNull String key, @NonNull String value) {
+            throw new AssertionError("string API used");
+        }
+
+        @Nullable
+        @Override
+        public String get(@NonNull String key) {
+            throw new AssertionError("string API used");
+        }
+
+        @Override
+        public void delete(@NonNull String key) {
+            mValues.remove(key);
+        }
+
+        @Override
+        public boolean supportsBytes() {
+            return true;
+        }
+
+        @Override
+        public void saveBytes(@NonNull String key, @NonNull byte[] value) {
+            mValues.put(key, value);
+        }
+
+        @Nullable
+        @Override
+        public byte[] getBytes(@NonNull String key) {
+            return mValues.get(key);
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import com.okta.oidc.net.response.TokenResponse;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RecordReaderTest {
+    @Test
+    public void readsAllFieldTypes() {
+        Map<String, String> map = new HashMap<>();
+        map.put("key", "value");
+        map.put("empty", null);
+        byte[] record = new RecordWriter(3)
+                .putString(1, "überschrieben")
+                .putLong(2, -1)
+                .putLong(3, Long.MAX_VALUE)
+                .putBoolean(4, true)
+                .putStringArray(5, new String[]{"a", null, ""})
+                .putStringMap(6, map)
+                .putString(7, null)
+                .toByteArray();
+
+        RecordReader reader = RecordReader.of(record);
+        assertEquals(3, reader.getVersion());
+        assertTrue(reader.next());
+        assertEquals("überschrieben", reader.readString());
+        assertTrue(reader.next());
+        assertEquals(-1, reader.readLong());
+        assertTrue(reader.next());
+        assertEquals(Long.MAX_VALUE, reader.readLong());
+        assertTrue(reader.next());
+        assertTrue(reader.readBoolean());
+        assertTrue(reader.next());
+        assertArrayEquals(new String[]{"a", null, ""}, reader.readStringArray());
+        assertTrue(reader.next());
+        assertEquals(map, reader.readStringMap());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void unreadAndUnknownFieldsAreSkipped() {
+        byte[] record = new RecordWriter(1)
+                .putStringArray(40, new String[]{"from", "a", "newer", "version"})
+                .putString(1, "first")
+                .putLong(41, 42)
+                .putString(2, "second")
+                .toByteArray();
+
+        RecordReader reader = RecordReader.of(record);
+        StringBuilder known = new StringBuilder();
+        while (reader.next()) {
+            if (reader.getTag() < 40) {
+                known.append(reader.readString());
+            }
+        }
+        assertEquals("firstsecond", known.toString());
+    }
+
+    @Test
+    public void newerTokenRecordIsReadByThisVersion() {
+        byte[] record = new RecordWriter(2)
+                .putString(1, "access")
+                .putString(100, "field added later")
+                .putString(3, "3600")
+                .toByteArray();
+
+        TokenResponse token = TokenResponse.RESTORE.restore(record);
+        assertEquals("access", token.getAccessToken());
+        assertEquals("3600", token.getExpiresIn());
+        assertNull(token.getRefreshToken());
+        assertEquals(-1, token.getExpiresAt());
+    }
+
+    @Test
+    public void jsonIsNotARecord() throws Exception {
+        assertNull(RecordReader.of(null));
+        assertNull(RecordReader.of(new byte[0]));
+        assertNull(RecordReader.of("{\"access_token\":\"a\"}".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedRecordThrows() {
+        byte[] record = new RecordWriter(1).putString(1, "value").toByteArray();
+        RecordReader reader = RecordReader.of(Arrays.copyOf(record, record.length - 1));
+        reader.next();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class SharedPreferenceStorageTest {
+    private static final String PREF_NAME = "SharedPreferenceStorageTest";
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    @Test
+    public void editCommitsAllChanges() {
+        SharedPreferenceStorage storage = new SharedPreferenceStorage(mContext, PREF_NAME);
+        storage.save("removed", "value");
+        storage.edit()
+                .put("first", "1")
+                .put("second", "2")
+                .remove("removed")
+                .commit();
+
+        assertEquals("1", storage.get("first"));
+        assertEquals("2", storage.get("second"));
+        assertNull(storage.get("removed"));
+    }
+
+    @Test
+    public void editIsNotAppliedBeforeCommit() {
+        SharedPreferenceStorage storage = new SharedPreferenceStorage(mContext, PREF_NAME);
+        OktaStorage.Editor editor = storage.edit().put("pending", "value");
+
+        assertNull(storage.get("pending"));
+        editor.commit();
+        assertEquals("value", storage.get("pending"));
+    }
+
+    @Test
+    public void bytesAreBase64Encoded() {
+        byte[] value = {0, 1, (byte) 0xFF, (byte) 0x80};
+        SharedPreferenceStorage storage = new SharedPreferenceStorage(mContext, PREF_NAME);
+        assertFalse(storage.supportsBytes());
+        storage.edit().putBytes("key", value).commit();
+
+        assertArrayEquals(value, storage.getBytes("key"));
+        assertEquals("AAH/gA==", storage.get("key"));
+        assertNull(storage.getBytes("missing"));
+    }
+
+    @Test
+    public void writeBehindIsVisibleImmediately() {
+        SharedPreferenceStorage storage = new SharedPreferenceStorage(mContext, PREF_NAME, true);
+        storage.save("key", "first");
+        storage.save("key", "second");
+        assertEquals("second", storage.get("key"));
+
+        storage.delete("key");
+        assertNull(storage.get("key"));
+    }
+
+    @Test
+    public void writeBehindFlushIsReadableByNewInstance() {
+        SharedPreferenceStorage storage = new SharedPreferenceStorage(mContext, PREF_NAME, true);
+        storage.edit().put("key", "value").commit();
+        storage.flush();
+
+        SharedPreferenceStorage other = new SharedPreferenceStorage(mContext, PREF_NAME);
+        assertEquals("value", other.get("key"));
+    }
+}
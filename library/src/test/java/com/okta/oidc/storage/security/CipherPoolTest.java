@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class CipherPoolTest {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 500;
+    private static final int MAX_IDLE = 4;
+
+    private AtomicInteger mCreated;
+    private CipherPool mPool;
+    private SecretKey mKey;
+
+    @Before
+    public void setUp() throws Exception {
+        mCreated = new AtomicInteger();
+        mPool = new CipherPool(() -> {
+            mCreated.incrementAndGet();
+            return Cipher.getInstance(TRANSFORMATION);
+        }, MAX_IDLE);
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        mKey = generator.generateKey();
+    }
+
+    @Test
+    public void releasedCipherIsReused() throws Exception {
+        Cipher first;
+        try (CipherPool.Lease lease = mPool.acquire()) {
+            first = lease.getCipher();
+        }
+        try (CipherPool.Lease lease = mPool.acquire()) {
+            assertSame(first, lease.getCipher());
+        }
+        assertEquals(1, mCreated.get());
+    }
+
+    @Test
+    public void discardedCipherIsNotReused() throws Exception {
+        Cipher first;
+        try (CipherPool.Lease lease = mPool.acquire()) {
+            first = lease.getCipher();
+            lease.discard();
+        }
+        try (CipherPool.Lease lease = mPool.acquire()) {
+            assertNotSame(first, lease.getCipher());
+        }
+        assertEquals(2, mCreated.get());
+    }
+
+    @Test
+    public void invalidateDropsIdleAndLeasedCiphers() throws Exception {
+        CipherPool.Lease leased = mPool.acquire();
+        mPool.acquire().close();
+        assertEquals(1, mPool.getIdleCount());
+
+        mPool.invalidate();
+        assertEquals(0, mPool.getIdleCount());
+        leased.close();
+        assertEquals(0, mPool.getIdleCount());
+
+        mPool.acquire().close();
+        assertEquals(3, mCreated.get());
+    }
+
+    @Test
+    public void idleCiphersAreBounded() throws Exception {
+        List<CipherPool.Lease> leases = new ArrayList<>();
+        for (int i = 0; i < MAX_IDLE * 2; i++) {
+            leases.add(mPool.acquire());
+        }
+        for (CipherPool.Lease lease : leases) {
+            lease.close();
+        }
+        assertEquals(MAX_IDLE, mPool.getIdleCount());
+    }
+
+    /**
+     * Stress test: many threads encrypt and decrypt with pooled ciphers. Every round trip must
+     * succeed and no cipher may be leased to two threads at the same time.
+     */
+    @Test
+    public void concurrentRoundTrips() throws Exception {
+        mPool = new CipherPool(() -> {
+            mCreated.incrementAndGet();
+            return Cipher.getInstance(TRANSFORMATION);
+        }, THREADS);
+        Set<Cipher> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger sharedLeases = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                SecureRandom random = new SecureRandom();
+                int completed = 0;
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    byte[] plain = ("thread " + thread + " value " + i)
+                            .getBytes(Charset.forName("UTF-8"));
+                    byte[] iv = new byte[12];
+                    random.nextBytes(iv);
+                    byte[] sealed = run(inUse, sharedLeases, Cipher.ENCRYPT_MODE, iv, plain);
+                    byte[] opened = run(inUse, sharedLeases, Cipher.DECRYPT_MODE, iv, sealed);
+                    assertArrayEquals(plain, opened);
+                    completed++;
+                }
+                return completed;
+            }));
+        }
+        for (Future<Integer> result : results) {
+            assertEquals(OPERATIONS_PER_THREAD, (int) result.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(0, sharedLeases.get());
+        // Ciphers are only created while every pooled one is leased.
+        assertTrue("created " + mCreated.get(), mCreated.get() <= THREADS);
+    }
+
+    private byte[] run(Set<Cipher> inUse, AtomicInteger sharedLeases, int mode, byte[] iv,
+                       byte[] input) throws Exception {
+        try (CipherPool.Lease lease = mPool.acquire()) {
+            Cipher cipher = lease.getCipher();
+            if (!inUse.add(cipher)) {
+                sharedLeases.incrementAndGet();
+            }
+            try {
+                cipher.init(mode, mKey, new GCMParameterSpec(128, iv));
+                return cipher.doFinal(input);
+            } finally {
+                inUse.remove(cipher);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import com.okta.oidc.util.EncryptionManagerStub;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class DelegatingEncryptionManagerTest {
+    @Test
+    public void hashingDoesNotWaitForKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestManager manager = new TestManager(() -> {
+            release.await();
+            return new EncryptionManagerStub();
+        }, true);
+
+        assertFalse(manager.getReadiness().isDone());
+        assertEquals(BaseEncryptionManager.hash("value"), manager.getHashed("value"));
+        assertFalse(manager.needsReEncryption("v2:value"));
+
+        release.countDown();
+        assertEquals("value" + EncryptionManagerStub.STUPID_SALT, manager.encrypt("value"));
+        assertTrue(manager.getReadiness().isDone());
+    }
+
+    @Test
+    public void encryptWaitsForKeys() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestManager manager = new TestManager(() -> {
+            started.countDown();
+            release.await();
+            return new EncryptionManagerStub();
+        }, true);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        assertEquals("value", manager.decrypt("value" + EncryptionManagerStub.STUPID_SALT));
+        releaser.join();
+    }
+
+    @Test
+    public void backgroundFailureIsThrownOnUse() throws Exception {
+        TestManager manager = new TestManager(() -> {
+            throw new IllegalStateException("no keystore");
+        }, true);
+        try {
+            manager.encrypt("value");
+            fail("Expected failure");
+        } catch (IllegalStateException e) {
+            assertEquals("no keystore", e.getMessage());
+        }
+    }
+
+    @Test
+    public void inlineFailureIsThrownFromConstructor() {
+        try {
+            new TestManager(() -> {
+                throw new IllegalStateException("no keystore");
+            }, false);
+            fail("Expected failure");
+        } catch (IllegalStateException e) {
+            assertEquals("no keystore", e.getMessage());
+        }
+    }
+
+    private static class TestManager extends DelegatingEncryptionManager {
+        TestManager(Callable<EncryptionManager> factory, boolean inBackground) {
+            super(factory, inBackground);
+        }
+    }
+}
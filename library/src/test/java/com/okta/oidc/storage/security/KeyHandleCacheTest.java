@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class KeyHandleCacheTest {
+    private static final int OPERATIONS = 200;
+    // Rough cost of one keystore round trip on a mid-range device.
+    private static final long KEYSTORE_CALL_MS = 1;
+
+    private KeyPair mKeyPair;
+    private CountingLoader mLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        mKeyPair = generator.generateKeyPair();
+        mLoader = new CountingLoader();
+    }
+
+    @Test
+    public void keysAreLoadedOnce() throws Exception {
+        KeyHandleCache cache = new KeyHandleCache(mLoader);
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertSame(mKeyPair.getPublic(), cache.getPublicKey());
+            assertSame(mKeyPair.getPrivate(), cache.getPrivateKey());
+        }
+        assertEquals(1, mLoader.mPublicLoads.get());
+        assertEquals(1, mLoader.mPrivateLoads.get());
+    }
+
+    @Test
+    public void invalidateReloadsKeys() throws Exception {
+        KeyHandleCache cache = new KeyHandleCache(mLoader);
+        cache.getPublicKey();
+        cache.getPrivateKey();
+
+        cache.invalidate();
+        cache.getPublicKey();
+        cache.getPrivateKey();
+
+        assertEquals(2, mLoader.mPublicLoads.get());
+        assertEquals(2, mLoader.mPrivateLoads.get());
+    }
+
+    @Test
+    public void missingPrivateKeyIsNotCached() throws Exception {
+        mLoader.mMissing = true;
+        KeyHandleCache cache = new KeyHandleCache(mLoader);
+        assertNull(cache.getPrivateKey());
+
+        mLoader.mMissing = false;
+        assertSame(mKeyPair.getPrivate(), cache.getPrivateKey());
+        assertEquals(2, mLoader.mPrivateLoads.get());
+    }
+
+    /**
+     * Benchmark: one encrypt and one decrypt cipher initialization per operation. Without the
+     * cache every initialization is a keystore call, with it only the first one is.
+     */
+    @Test
+    public void keystoreCallsBenchmark() throws Exception {
+        mLoader.mDelayMs = KEYSTORE_CALL_MS;
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            mLoader.loadPublicKey();
+            mLoader.loadPrivateKey();
+        }
+        long uncachedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int uncachedCalls = mLoader.getCalls();
+
+        CountingLoader cachedLoader = new CountingLoader();
+        cachedLoader.mDelayMs = KEYSTORE_CALL_MS;
+        KeyHandleCache cache = new KeyHandleCache(cachedLoader);
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            cache.getPublicKey();
+            cache.getPrivateKey();
+        }
+        long cachedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int cachedCalls = cachedLoader.getCalls();
+
+        assertEquals(2 * OPERATIONS, uncachedCalls);
+        assertEquals(2, cachedCalls);
+        assertTrue("uncached " + uncachedMs + "ms, cached " + cachedMs + "ms",
+                cachedMs < uncachedMs);
+    }
+
+    private class CountingLoader implements KeyHandleCache.Loader {
+        final AtomicInteger mPublicLoads = new AtomicInteger();
+        final AtomicInteger mPrivateLoads = new AtomicInteger();
+        volatile boolean mMissing;
+        volatile long mDelayMs;
+
+        int getCalls() {
+            return mPublicLoads.get() + mPrivateLoads.get();
+        }
+
+        @Override
+        public PublicKey loadPublicKey() throws GeneralSecurityException {
+            mPublicLoads.incrementAndGet();
+            simulateKeystoreCall();
+            return mKeyPair.getPublic();
+        }
+
+        @Override
+        public PrivateKey loadPrivateKey() throws GeneralSecurityException {
+            mPrivateLoads.incrementAndGet();
+            simulateKeystoreCall();
+            return mMissing ? null : mKeyPair.getPrivate();
+        }
+
+        private void simulateKeystoreCall() {
+            if (mDelayMs > 0) {
+                try {
+                    Thread.sleep(mDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
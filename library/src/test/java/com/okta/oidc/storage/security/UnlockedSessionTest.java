@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.storage.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class UnlockedSessionTest {
+    private static final long DURATION = TimeUnit.MINUTES.toMillis(1);
+    private static final String WRAPPED = "wrapped";
+
+    private long mNow = 1000;
+    private ScheduledExecutorService mTimer;
+    private UnlockedSession mSession;
+
+    @Before
+    public void setUp() {
+        mTimer = Executors.newSingleThreadScheduledExecutor();
+        mSession = new UnlockedSession(() -> mNow, mTimer);
+    }
+
+    @After
+    public void tearDown() {
+        mTimer.shutdownNow();
+    }
+
+    @Test
+    public void disabledSessionKeepsNoKeys() {
+        byte[] raw = key();
+        SecretKey key = mSession.unlock(WRAPPED, raw, "AES");
+
+        assertArrayEquals(key(), key.getEncoded());
+        assertArrayEquals(new byte[raw.length], raw);
+        assertFalse(mSession.isUnlocked());
+        assertNull(mSession.get(WRAPPED));
+    }
+
+    @Test
+    public void keysAreKeptUntilTimeout() {
+        mSession.setDuration(DURATION);
+        SecretKey key = mSession.unlock(WRAPPED, key(), "AES");
+        assertTrue(mSession.isUnlocked());
+
+        mNow += DURATION - 1;
+        assertSame(key, mSession.get(WRAPPED));
+        // Later unwraps don't extend the session.
+        mSession.unlock("other", key(), "AES");
+
+        mNow += 1;
+        assertNull(mSession.get(WRAPPED));
+        assertFalse(mSession.isUnlocked());
+        assertTrue(key.isDestroyed());
+    }
+
+    @Test
+    public void lockWipesKeys() {
+        mSession.setDuration(DURATION);
+        byte[] raw = key();
+        SecretKey key = mSession.unlock(WRAPPED, raw, "AES");
+
+        mSession.lock();
+
+        assertFalse(mSession.isUnlocked());
+        assertNull(mSession.get(WRAPPED));
+        assertTrue(key.isDestroyed());
+        assertArrayEquals(new byte[raw.length], raw);
+    }
+
+    @Test
+    public void timerLocksSession() throws Exception {
+        mSession.setDuration(10);
+        SecretKey key = mSession.unlock(WRAPPED, key(), "AES");
+
+        mTimer.schedule(() -> null, 20, TimeUnit.MILLISECONDS).get();
+
+        assertTrue(key.isDestroyed());
+    }
+
+    @Test
+    public void sessionKeyDecrypts() throws Exception {
+        mSession.setDuration(DURATION);
+        SecretKey key = mSession.unlock(WRAPPED, key(), "AES");
+        GCMParameterSpec spec = new GCMParameterSpec(128, new byte[12]);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, spec);
+        byte[] encrypted = cipher.doFinal(new byte[]{1, 2, 3});
+
+        cipher.init(Cipher.DECRYPT_MODE, mSession.get(WRAPPED), spec);
+        assertArrayEquals(new byte[]{1, 2, 3}, cipher.doFinal(encrypted));
+    }
+
+    @Test
+    public void concurrentUnwrapKeepsFirstKey() {
+        mSession.setDuration(DURATION);
+        SecretKey first = mSession.unlock(WRAPPED, key(), "AES");
+        byte[] raw = key();
+
+        assertSame(first, mSession.unlock(WRAPPED, raw, "AES"));
+        assertFalse(first.isDestroyed());
+        assertArrayEquals(new byte[raw.length], raw);
+        assertEquals(DURATION, mSession.getDuration());
+    }
+
+    private static byte[] key() {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i + 1);
+        }
+        return key;
+    }
+}
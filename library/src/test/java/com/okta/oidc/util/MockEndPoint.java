@@ -17,6 +17,7 @@ package com.okta.oidc.util;
 import com.google.gson.Gson;
 import com.okta.oidc.net.request.ProviderConfiguration;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -28,6 +29,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManagerFactory;
@@ -39,9 +41,14 @@ import okhttp3.HttpUrl;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
 
 import static com.okta.oidc.net.ConnectionParameters.CONTENT_TYPE;
 import static com.okta.oidc.net.ConnectionParameters.JSON_CONTENT_TYPE;
+import static com.okta.oidc.net.ContentEncodings.CONTENT_ENCODING;
+import static com.okta.oidc.net.ContentEncodings.GZIP;
+import static com.okta.oidc.net.HttpCacheEntry.CACHE_CONTROL;
+import static com.okta.oidc.net.HttpCacheEntry.ETAG;
 import static com.okta.oidc.util.JsonStrings.CONFIGURATION_NOT_FOUND;
 import static com.okta.oidc.util.JsonStrings.FORBIDDEN;
 import static com.okta.oidc.util.JsonStrings.INTROSPECT_RESPONSE;
@@ -56,8 +63,10 @@ import static com.okta.oidc.util.TestValues.EXCHANGE_CODE;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
 import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 
 public class MockEndPoint {
     private MockWebServer mServer;
@@ -91,6 +100,10 @@ public class MockEndPoint {
         return mServer.takeRequest();
     }
 
+    public int getRequestCount() {
+        return mServer.getRequestCount();
+    }
+
     public MockResponse enqueueUserInfoSuccess() {
         return enqueueUserInfoSuccess(0);
     }
@@ -112,6 +125,17 @@ public class MockEndPoint {
         mServer.enqueue(jsonResponse(HTTP_OK, PROVIDER_CONFIG));
     }
 
+    public void enqueueCachedConfigurationSuccess(String etag, int maxAgeSeconds) {
+        mServer.enqueue(jsonResponse(HTTP_OK, PROVIDER_CONFIG)
+                .addHeader(CACHE_CONTROL, "max-age=" + maxAgeSeconds)
+                .addHeader(ETAG, etag));
+    }
+
+    public void enqueueNotModified(int maxAgeSeconds) {
+        mServer.enqueue(emptyResponse(HTTP_NOT_MODIFIED)
+                .addHeader(CACHE_CONTROL, "max-age=" + maxAgeSeconds));
+    }
+
     public void enqueueOAuth2ConfigurationSuccess() {
         mServer.enqueue(jsonResponse(HTTP_OK, PROVIDER_CONFIG_OAUTH2));
     }
@@ -147,6 +171,22 @@ public class MockEndPoint {
         enqueueNativeRequestSuccess(state, 0);
     }
 
+    public void enqueueJsonSuccess(String json) {
+        mServer.enqueue(jsonResponse(HTTP_OK, json));
+    }
+
+    public byte[] enqueueGzipJsonSuccess(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json.getBytes("UTF-8"));
+        }
+        mServer.enqueue(new MockResponse().setResponseCode(HTTP_OK)
+                .addHeader(CONTENT_TYPE, JSON_CONTENT_TYPE)
+                .addHeader(CONTENT_ENCODING, GZIP)
+                .setBody(new Buffer().write(bytes.toByteArray())));
+        return bytes.toByteArray();
+    }
+
     public MockResponse enqueueReturnSuccessEmptyBody() {
         return enqueueReturnSuccessEmptyBody(0);
     }
@@ -165,6 +205,14 @@ public class MockEndPoint {
         return response;
     }
 
+    public void enqueueServiceUnavailable(String retryAfter) {
+        MockResponse response = textResponse(HTTP_UNAVAILABLE, "Service Unavailable");
+        if (retryAfter != null) {
+            response.addHeader("Retry-After", retryAfter);
+        }
+        mServer.enqueue(response);
+    }
+
     public void enqueueForbidden() {
         MockResponse response = textResponse(HTTP_FORBIDDEN, "Forbidden")
                 .addHeader(WWW_AUTHENTICATE, FORBIDDEN);
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.okhttp;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.Deadline;
+import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.OktaHttpExchange;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * A {@link OktaHttpClient} using OkHttp. Connections are pooled and HTTP/2 is used when the
+ * server supports it, so concurrent requests to the same host share one connection.
+ * Every instance created with {@link #OktaOkHttpClient()} uses the same connection pool and
+ * dispatcher. The timeouts of {@link ConnectionParameters} apply to each request, and the
+ * whole call is bounded by its {@link Deadline} if it has one. Redirects are never followed,
+ * the caller reads them from the response like {@link com.okta.oidc.net.HttpClientImpl} does.
+ */
+public class OktaOkHttpClient implements OktaHttpClient {
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static OkHttpClient sDefaultClient;
+    private final OkHttpClient mClient;
+    // Clients derived for other timeouts, they share the pool and dispatcher of mClient.
+    private final Map<Long, OkHttpClient> mTimeoutClients = new ConcurrentHashMap<>();
+    private final Set<OkHttpExchange> mExchanges =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // Exchange of the last connect(), for the getters of OktaHttpClient.
+    private volatile OkHttpExchange mCurrent;
+
+    /**
+     * Create a client sharing the connection pool and dispatcher of all instances created
+     * this way.
+     */
+    public OktaOkHttpClient() {
+        this(getDefaultClient());
+    }
+
+    /**
+     * Create a client sending requests with the given client. Pass a client derived from the
+     * app's own client with {@link OkHttpClient#newBuilder()} to share its connection pool.
+     * If the client follows redirects, a client derived from it that doesn't is used instead.
+     *
+     * @param client the client
+     */
+    public OktaOkHttpClient(@NonNull OkHttpClient client) {
+        mClient = withoutRedirects(client);
+    }
+
+    private static synchronized OkHttpClient getDefaultClient() {
+        if (sDefaultClient == null) {
+            sDefaultClient = withoutRedirects(new OkHttpClient());
+        }
+        return sDefaultClient;
+    }
+
+    //Authorize requests read the 302 and its Location header, following it would lose them.
+    private static OkHttpClient withoutRedirects(OkHttpClient client) {
+        if (!client.followRedirects() && !client.followSslRedirects()) {
+            return client;
+        }
+        return client.newBuilder()
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .build();
+    }
+
+    private OkHttpClient getClient(ConnectionParameters params) {
+        int connectTimeout = params.connectionTimeoutMs();
+        int readTimeout = params.readTimeOutMs();
+        if (mClient.connectTimeoutMillis() == connectTimeout
+                && mClient.readTimeoutMillis() == readTimeout) {
+            return mClient;
+        }
+        boolean shortened = params.getDeadline().isBounded();
+        long key = ((long) connectTimeout << 32) | readTimeout;
+        OkHttpClient client = shortened ? null : mTimeoutClients.get(key);
+        if (client == null) {
+            client = mClient.newBuilder()
+                    .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                    .build();
+            //Timeouts shortened to a deadline differ on every request, don't keep them.
+            if (!shortened) {
+                mTimeoutClients.put(key, client);
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Build the request for the connection parameters. Override to add anything the
+     * parameters don't cover.
+     *
+     * @param uri    uri for the connection.
+     * @param params parameters for the connection.
+     * @return the request
+     */
+    @NonNull
+    protected Request buildRequest(@NonNull Uri uri, @NonNull ConnectionParameters params) {
+        Request.Builder builder = new Request.Builder().url(uri.toString());
+        Map<String, String> requestProperties = params.requestProperties();
+        if (requestProperties != null) {
+            for (Map.Entry<String, String> property : requestProperties.entrySet()) {
+                builder.header(property.getKey(), property.getValue());
+            }
+        }
+        if (params.requestMethod() == ConnectionParameters.RequestMethod.POST) {
+            Map<String, String> postParameters = params.postParameters();
+            byte[] body = postParameters == null || postParameters.isEmpty() ? EMPTY_BODY
+                    : params.getEncodedPostParameters();
+            String contentType = requestProperties == null ? null
+                    : requestProperties.get(CONTENT_TYPE);
+            builder.post(RequestBody.create(body,
+                    contentType == null ? null : MediaType.parse(contentType)));
+        } else {
+            builder.get();
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    @Override
+    public OktaHttpExchange execute(@NonNull Uri uri, @NonNull ConnectionParameters params)
+            throws Exception {
+        Call call = getClient(params).newCall(buildRequest(uri, params));
+        Deadline deadline = params.getDeadline();
+        if (deadline.isBounded()) {
+            //Also bounds the body, which the read timeout only does per read.
+            call.timeout().timeout(deadline.getRemainingMs(), TimeUnit.MILLISECONDS);
+        }
+        OkHttpExchange exchange = new OkHttpExchange(call);
+        mExchanges.add(exchange);
+        try {
+            // The caller is a worker thread, executing on it keeps the dispatcher free.
+            exchange.mResponse = exchange.mCall.execute();
+        } catch (Exception e) {
+            exchange.close();
+            throw e;
+        }
+        return exchange;
+    }
+
+    @Nullable
+    @Override
+    public InputStream connect(@NonNull Uri uri, @NonNull ConnectionParameters param)
+            throws Exception {
+        OkHttpExchange exchange = (OkHttpExchange) execute(uri, param);
+        mCurrent = exchange;
+        return exchange.getBody();
+    }
+
+    @Override
+    public void cleanUp() {
+        OkHttpExchange exchange = mCurrent;
+        mCurrent = null;
+        if (exchange != null) {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        for (OkHttpExchange exchange : mExchanges) {
+            exchange.cancel();
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        OkHttpExchange exchange = mCurrent;
+        return exchange == null ? null : exchange.getHeaderFields();
+    }
+
+    @Override
+    public String getHeader(String header) {
+        OkHttpExchange exchange = mCurrent;
+        return exchange == null ? null : exchange.getHeader(header);
+    }
+
+    @Override
+    public int getResponseCode() {
+        OkHttpExchange exchange = mCurrent;
+        return exchange == null ? -1 : exchange.getResponseCode();
+    }
+
+    @Override
+    public int getContentLength() {
+        OkHttpExchange exchange = mCurrent;
+        return exchange == null ? -1 : exchange.getContentLength();
+    }
+
+    @Override
+    public String getResponseMessage() {
+        OkHttpExchange exchange = mCurrent;
+        return exchange == null ? null : exchange.getResponseMessage();
+    }
+
+    private final class OkHttpExchange implements OktaHttpExchange {
+        private final Call mCall;
+        private volatile Response mResponse;
+        private InputStream mBody;
+
+        OkHttpExchange(Call call) {
+            mCall = call;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return mResponse.code();
+        }
+
+        @Override
+        public String getResponseMessage() {
+            return mResponse.message();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return mResponse.headers().toMultimap();
+        }
+
+        @Override
+        public String getHeader(String header) {
+            return mResponse.header(header);
+        }
+
+        @Override
+        public int getContentLength() {
+            ResponseBody body = mResponse.body();
+            return body == null ? -1 : (int) body.contentLength();
+        }
+
+        @Override
+        public synchronized InputStream getBody() {
+            ResponseBody body = mResponse.body();
+            if (mBody == null && body != null) {
+                mBody = body.byteStream();
+            }
+            return mBody;
+        }
+
+        @Override
+        public void cancel() {
+            mCall.cancel();
+        }
+
+        @Override
+        public void close() {
+            mExchanges.remove(this);
+            Response response = mResponse;
+            if (response != null && response.body() != null) {
+                response.body().close();
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2019, Okta, Inc. and/or its affiliates. All rights reserved.
+ * The Okta software accompanied by this notice is provided pursuant to the Apache License,
+ * Version 2.0 (the "License.")
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+
+package com.okta.oidc.net.okhttp;
+
+import android.net.Uri;
+
+import com.okta.oidc.net.ConnectionParameters;
+import com.okta.oidc.net.HttpClientImpl;
+import com.okta.oidc.net.OktaHttpClient;
+import com.okta.oidc.net.OktaHttpExchange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class OktaOkHttpClientTest {
+    private static final String BODY = "{\"name\":\"John Doe\"}";
+    private static final int REQUESTS = 200;
+    private static final int THREADS = 8;
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(BODY);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void getRequest() throws Exception {
+        mServer.start();
+        OktaOkHttpClient client = new OktaOkHttpClient();
+        try (OktaHttpExchange exchange = client.execute(uri(), getParameters())) {
+            assertEquals(HTTP_OK, exchange.getResponseCode());
+            assertEquals(String.valueOf(BODY.length()), exchange.getHeader("content-length"));
+            assertEquals(BODY.length(), exchange.getContentLength());
+            assertEquals(BODY, read(exchange.getBody()));
+        }
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("GET", request.getMethod());
+        assertEquals(ConnectionParameters.USER_AGENT_HEADER,
+                request.getHeader(ConnectionParameters.USER_AGENT));
+    }
+
+    @Test
+    public void post() throws Exception {
+        mServer.start();
+        ConnectionParameters params = new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(ConnectionParameters.RequestMethod.POST)
+                .setPostParameter("grant_type", "refresh_token")
+                .create();
+        try (OktaHttpExchange exchange = new OktaOkHttpClient().execute(uri(), params)) {
+            assertEquals(HTTP_OK, exchange.getResponseCode());
+        }
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("grant_type=refresh_token", request.getBody().readUtf8());
+        assertTrue(request.getHeader("Content-Type")
+                .startsWith("application/x-www-form-urlencoded"));
+    }
+
+    @Test
+    public void redirectIsNotFollowed() throws Exception {
+        mServer.setDispatcher(new QueueDispatcher());
+        mServer.start();
+        String location = mServer.url("/callback?code=1").toString();
+        assertRedirect(new OktaOkHttpClient(), location);
+        assertRedirect(new OktaOkHttpClient(new OkHttpClient()), location);
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    private void assertRedirect(OktaOkHttpClient client, String location) throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(HTTP_MOVED_TEMP)
+                .addHeader("Location", location));
+        try (OktaHttpExchange exchange = client.execute(uri(), getParameters())) {
+            assertEquals(HTTP_MOVED_TEMP, exchange.getResponseCode());
+            assertEquals(location, exchange.getHeader("Location"));
+        }
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void readTimeoutFromParameters() throws Exception {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(BODY).setHeadersDelay(1, TimeUnit.SECONDS);
+            }
+        });
+        mServer.start();
+        ConnectionParameters params = new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(ConnectionParameters.RequestMethod.GET)
+                .setReadTimeOutMs(100)
+                .create();
+        new OktaOkHttpClient().execute(uri(), params);
+    }
+
+    @Test
+    public void connectReadsCurrentExchange() throws Exception {
+        mServer.start();
+        OktaOkHttpClient client = new OktaOkHttpClient();
+        InputStream stream = client.connect(uri(), getParameters());
+        assertEquals(HTTP_OK, client.getResponseCode());
+        assertEquals("OK", client.getResponseMessage());
+        assertEquals(BODY, read(stream));
+        client.cleanUp();
+        assertEquals(-1, client.getResponseCode());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneHttp2Connection() throws Exception {
+        List<Protocol> protocols = Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+        mServer.setProtocols(protocols);
+        mServer.start();
+        OktaOkHttpClient client =
+                new OktaOkHttpClient(new OkHttpClient.Builder().protocols(protocols).build());
+
+        runConcurrently(client);
+
+        assertEquals(1, countConnections());
+    }
+
+    @Test
+    public void reusesConnectionsLikeHttpClientImpl() throws Exception {
+        mServer.start();
+        runConcurrently(new HttpClientImpl());
+        assertTrue(countConnections() < REQUESTS);
+
+        runConcurrently(new OktaOkHttpClient());
+        assertTrue(countConnections() < REQUESTS);
+    }
+
+    private void runConcurrently(OktaHttpClient client) throws Exception {
+        Uri uri = uri();
+        ConnectionParameters params = getParameters();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                results.add(executor.submit(() -> {
+                    try (OktaHttpExchange exchange = client.execute(uri, params)) {
+                        return exchange.getResponseCode() + read(exchange.getBody());
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(HTTP_OK + BODY, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // A request starting a new connection is the first on it.
+    private int countConnections() throws InterruptedException {
+        int connections = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            if (mServer.takeRequest().getSequenceNumber() == 0) {
+                connections++;
+            }
+        }
+        return connections;
+    }
+
+    private Uri uri() {
+        return Uri.parse(mServer.url("/").toString());
+    }
+
+    private static ConnectionParameters getParameters() {
+        return new ConnectionParameters.ParameterBuilder()
+                .setRequestMethod(ConnectionParameters.RequestMethod.GET)
+                .create();
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+}